@@ -0,0 +1,125 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer;
+
+import org.humanistika.oxygen.tei.completer.configuration.Configuration;
+import org.humanistika.oxygen.tei.completer.configuration.beans.AutoComplete;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the lookups made for each completion request
+ * from many threads at once, as happens when completions
+ * are requested concurrently: finding the auto-completes which
+ * match an attribute, and getting the client for each of them.
+ *
+ * None of these lookups should take a lock once the matches
+ * have been memoized and the clients created, so the throughput
+ * should scale with the number of threads.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class SnapshotContentionBenchmark {
+
+    @Param({"10", "100"})
+    public int autoCompleteCount;
+
+    private TeiCompleter teiCompleter;
+    private String[] elemXPaths;
+
+    @Setup
+    public void setup() {
+        final List<AutoComplete> autoCompletes = new ArrayList<>();
+        this.elemXPaths = new String[autoCompleteCount];
+        for(int i = 0; i < autoCompleteCount; i++) {
+            autoCompletes.add(new AutoComplete(Collections.emptyMap(), "//w" + i, "@lemma", null, null, null, null));
+            elemXPaths[i] = "/TEI/text/body/p/w" + i;
+        }
+        final Configuration<AutoComplete> configuration = new Configuration<AutoComplete>() {
+            @Override
+            public List<AutoComplete> getAutoCompletes() {
+                return autoCompletes;
+            }
+
+            @Override
+            public MatchMode getMatchMode() {
+                return MatchMode.FIRST;
+            }
+
+            @Override
+            public long getLiveSearchDelay() {
+                return 100;
+            }
+
+            @Override
+            public boolean isWarmUp() {
+                return false;
+            }
+        };
+
+        this.teiCompleter = new TeiCompleter();
+        this.teiCompleter.configuration = configuration;
+    }
+
+    @TearDown
+    public void tearDown() {
+        TeiCompleter.clearClients();
+    }
+
+    /**
+     * Each thread looks up the elements in turn
+     */
+    @State(Scope.Thread)
+    public static class Lookup {
+        private int next = 0;
+
+        String nextElemXPath(final SnapshotContentionBenchmark benchmark) {
+            final String elemXPath = benchmark.elemXPaths[next];
+            next = (next + 1) % benchmark.elemXPaths.length;
+            return elemXPath;
+        }
+    }
+
+    @Benchmark
+    public void matchingAutoCompletes(final Lookup lookup, final Blackhole blackhole) {
+        blackhole.consume(teiCompleter.getMatchingAutoCompletes(lookup.nextElemXPath(this), "lemma"));
+    }
+
+    @Benchmark
+    public void autoCompletesToRequestAndClients(final Lookup lookup, final Blackhole blackhole) {
+        for(final AutoComplete autoComplete : teiCompleter.getAutoCompletesToRequest(lookup.nextElemXPath(this), "lemma")) {
+            blackhole.consume(teiCompleter.getClient(autoComplete));
+        }
+    }
+}
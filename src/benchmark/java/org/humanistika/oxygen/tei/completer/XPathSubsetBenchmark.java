@@ -0,0 +1,69 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer;
+
+import com.evolvedbinary.xpath.parser.ast.Expr;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link XPathUtil#isSubset(Expr, Expr)}, which is
+ * evaluated between the context XPath of an attribute
+ * and the XPaths of the configured auto-completes.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XPathSubsetBenchmark {
+
+    @Param({
+            "/TEI/text[1]/body[1]/div[2]/p[4]/w[17]/@lemma",
+            "/TEI/teiHeader[1]/fileDesc[1]/sourceDesc[1]/listPerson[1]/person[3]/persName[1]/@ref"
+    })
+    public String subsetXPath;
+
+    @Param({
+            "//w/@lemma",
+            "/TEI/text/body//p/w/@lemma"
+    })
+    public String supersetXPath;
+
+    private Expr subset;
+    private Expr superset;
+
+    @Setup
+    public void setup() {
+        this.subset = XPathUtil.parseXPath(subsetXPath);
+        this.superset = XPathUtil.parseXPath(supersetXPath);
+    }
+
+    @Benchmark
+    public boolean isSubset() {
+        return XPathUtil.isSubset(subset, superset);
+    }
+}
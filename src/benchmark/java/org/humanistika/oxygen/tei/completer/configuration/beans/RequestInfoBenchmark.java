@@ -0,0 +1,96 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.configuration.beans;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks expanding the URL template of a request
+ * into the URI that is requested
+ *
+ * {@link #getUri()} expands the pre-parsed template with
+ * {@link RequestInfo#getUri(String, String)}, {@link #legacyGetUri()}
+ * expands it as it was previously expanded, by a {@link String#replace}
+ * for each substitution and then converting a {@link URL} to a URI.
+ *
+ * Run with {@code -prof gc} to compare the allocation per request.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestInfoBenchmark {
+
+    @Param({
+            "http://localhost:8080/multext/getlemma/$selection/$dependent",
+            "http://localhost:8080/getlemma.php?selection=$selection&dependent=$dependent"
+    })
+    public String urlTemplate;
+
+    private final static String SELECTION = "пример речи";
+    private final static String DEPENDENT = "NCMSN";
+
+    private RequestInfo requestInfo;
+
+    @Setup
+    public void setup() {
+        this.requestInfo = new RequestInfo(urlTemplate, null);
+    }
+
+    @Benchmark
+    public URI getUri() throws URISyntaxException {
+        return requestInfo.getUri(SELECTION, DEPENDENT);
+    }
+
+    @Benchmark
+    public URI legacyGetUri() throws MalformedURLException, URISyntaxException {
+        final Map<RequestInfo.UrlVar, String> substitutions = new HashMap<>();
+        substitutions.put(RequestInfo.UrlVar.SELECTION, SELECTION);
+        substitutions.put(RequestInfo.UrlVar.DEPENDENT, DEPENDENT);
+
+        String expandedUrl = urlTemplate;
+        for(final Map.Entry<RequestInfo.UrlVar, String> substitution : substitutions.entrySet()) {
+            final String encodedValue;
+            try {
+                encodedValue = URLEncoder.encode(substitution.getValue(), "UTF-8");
+            } catch(final UnsupportedEncodingException e) {
+                throw new MalformedURLException(e.getMessage());
+            }
+            expandedUrl = expandedUrl.replace(substitution.getKey().var(), encodedValue);
+        }
+        return new URL(expandedUrl).toURI();
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.index.impl;
+
+import org.humanistika.oxygen.tei.completer.configuration.beans.IndexInfo;
+import org.humanistika.oxygen.tei.completer.index.SuggestionIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Benchmarks finding suggestions by prefix in a large
+ * local index, held either in memory or in a mapped index file
+ *
+ * The bulk export, and for {@code MAPPED} its index file, are
+ * built once in the setup. Run with {@code -prof gc} to compare the
+ * allocation per lookup; the heap which is retained by each storage
+ * is not measured by the benchmark.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuggestionIndexBenchmark {
+
+    private final static String[] SYLLABLES = { "a", "be", "ča", "do", "đu", "ka", "li", "ma", "no", "še", "ži", "ro", "vi", "ze" };
+
+    @Param({"MEMORY", "MAPPED"})
+    public IndexInfo.Storage storage;
+
+    @Param({"1000000"})
+    public int suggestions;
+
+    private Path dir;
+    private SuggestionIndex index;
+    private String[] selections;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        this.dir = Files.createTempDirectory("suggestion-index-benchmark");
+        final Path file = dir.resolve("index.csv");
+        final Random random = new Random(20261018);
+        try(final BufferedWriter writer = Files.newBufferedWriter(file, UTF_8)) {
+            writer.write("value,description\n");
+            for(int i = 0; i < suggestions; i++) {
+                writer.write(word(random, 6));
+                writer.write(' ');
+                writer.write(Integer.toString(i));
+                writer.write(",Suggestion ");
+                writer.write(Integer.toString(i));
+                writer.write('\n');
+            }
+        }
+
+        final IndexInfo indexInfo = new IndexInfo(file, IndexInfo.Format.CSV, IndexInfo.Match.PREFIX, true, true, 100, storage);
+        this.index = storage == IndexInfo.Storage.MAPPED ? MappedSuggestionIndex.load(indexInfo) : MemorySuggestionIndex.load(indexInfo);
+
+        this.selections = new String[1024];
+        for(int i = 0; i < selections.length; i++) {
+            selections[i] = word(random, 3);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        this.index = null;
+        try(final Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void findPrefix(final Blackhole blackhole) {
+        final String selection = selections[next++ & (selections.length - 1)];
+        index.find(selection, null, blackhole::consume);
+    }
+
+    private static String word(final Random random, final int maxSyllables) {
+        final StringBuilder word = new StringBuilder();
+        for(int i = random.nextInt(maxSyllables) + 1; i > 0; i--) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+}
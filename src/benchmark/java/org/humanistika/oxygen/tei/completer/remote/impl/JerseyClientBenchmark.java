@@ -0,0 +1,100 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.remote.impl;
+
+import org.humanistika.ns.tei_completer.Suggestions;
+import org.humanistika.oxygen.tei.completer.configuration.beans.RequestInfo;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseAction;
+import org.humanistika.oxygen.tei.completer.remote.ClientFactory.AuthenticationType;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end benchmarks of {@link JerseyClient#getSuggestions(RequestInfo, String, String, ResponseAction)}
+ * against the mock server of {@link JerseyClientTest} running in the
+ * in-memory Jersey test container
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JerseyClientBenchmark extends JerseyClientTest {
+
+    private final static String SELECTION = "some-selection";
+    private final static String DEPENDENT = "some-dependent";
+
+    private JerseyClient jerseyClient;
+    private RequestInfo xmlRequest;
+    private RequestInfo jsonRequest;
+    private RequestInfo customXmlRequest;
+    private RequestInfo customJsonRequest;
+    private ResponseAction xmlResponseAction;
+    private ResponseAction jsonResponseAction;
+
+    @Setup(Level.Trial)
+    public void startServer() throws Exception {
+        setUp();
+
+        this.jerseyClient = new JerseyClient(AuthenticationType.NONE, client());
+        this.xmlRequest = request("multext/getlemma/xml/");
+        this.jsonRequest = request("multext/getlemma/json/");
+        this.customXmlRequest = request("multext/getlemma/custom/xml/");
+        this.customJsonRequest = request("multext/getlemma/custom/json/");
+        this.xmlResponseAction = new ResponseAction(Paths.get(JerseyClientTest.class.getResource("custom-transform-test.xslt").toURI()));
+        this.jsonResponseAction = new ResponseAction(Paths.get(JerseyClientTest.class.getResource("custom-transform-test.js").toURI()));
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws Exception {
+        tearDown();
+    }
+
+    private RequestInfo request(final String path) {
+        return new RequestInfo(getBaseUri() + path + RequestInfo.UrlVar.SELECTION.var() + "/" + RequestInfo.UrlVar.DEPENDENT.var(), null);
+    }
+
+    @Benchmark
+    public Suggestions xml() {
+        return jerseyClient.getSuggestions(xmlRequest, SELECTION, DEPENDENT, null);
+    }
+
+    @Benchmark
+    public Suggestions json() {
+        return jerseyClient.getSuggestions(jsonRequest, SELECTION, DEPENDENT, null);
+    }
+
+    @Benchmark
+    public Suggestions customXml() {
+        return jerseyClient.getSuggestions(customXmlRequest, SELECTION, DEPENDENT, xmlResponseAction);
+    }
+
+    @Benchmark
+    public Suggestions customJson() {
+        return jerseyClient.getSuggestions(customJsonRequest, SELECTION, DEPENDENT, jsonResponseAction);
+    }
+}
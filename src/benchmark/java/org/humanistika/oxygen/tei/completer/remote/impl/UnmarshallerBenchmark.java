@@ -0,0 +1,87 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.remote.impl;
+
+import org.humanistika.ns.tei_completer.Suggestions;
+import org.openjdk.jmh.annotations.*;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compares creating a new JAXBContext for every transformed
+ * response, against the pooled Unmarshallers used by {@link JerseyClient}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnmarshallerBenchmark {
+
+    private final static byte[] XML = (
+            "<tc:suggestions xmlns:tc=\"http://humanistika.org/ns/tei-completer\">" +
+            "<tc:suggestion><tc:value>suggestion1</tc:value><tc:description>some-selection:some-dependent</tc:description></tc:suggestion>" +
+            "<tc:suggestion><tc:value>suggestion2</tc:value><tc:description>some-selection:some-dependent</tc:description></tc:suggestion>" +
+            "</tc:suggestions>").getBytes(UTF_8);
+
+    private final static String JSON =
+            "{\"tc:suggestion\":[" +
+            "{\"tc:value\":\"suggestion1\",\"tc:description\":\"some-selection:some-dependent\"}," +
+            "{\"tc:value\":\"suggestion2\",\"tc:description\":\"some-selection:some-dependent\"}" +
+            "]}";
+
+    @Benchmark
+    public Suggestions xmlNewContext() throws JAXBException {
+        final JAXBContext context = JAXBContext.newInstance(Suggestions.class);
+        final Unmarshaller unmarshaller = context.createUnmarshaller();
+        return (Suggestions)unmarshaller.unmarshal(new ByteArrayInputStream(XML));
+    }
+
+    @Benchmark
+    public Suggestions xmlPooled() throws JAXBException {
+        return JerseyClient.unmarshalXml(new ByteArrayInputStream(XML));
+    }
+
+    @Benchmark
+    public Suggestions jsonNewContext() throws JAXBException {
+        final JAXBContext context = org.eclipse.persistence.jaxb.JAXBContextFactory.createContext(new Class[]{Suggestions.class}, null);
+        final Unmarshaller unmarshaller = context.createUnmarshaller();
+        JerseyClient.configureJsonUnmarshaller(unmarshaller);
+        return unmarshaller.unmarshal(new StreamSource(new StringReader(JSON)), Suggestions.class).getValue();
+    }
+
+    @Benchmark
+    public Suggestions jsonPooled() throws JAXBException {
+        return JerseyClient.unmarshalJson(new StringReader(JSON));
+    }
+}
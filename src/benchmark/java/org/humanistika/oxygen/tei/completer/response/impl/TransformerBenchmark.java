@@ -0,0 +1,93 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.response.impl;
+
+import org.humanistika.ns.tei_completer.Suggestions;
+import org.humanistika.oxygen.tei.completer.remote.impl.JerseyClientTest;
+import org.humanistika.oxygen.tei.completer.response.TransformationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Benchmarks the response transformations {@link XMLTransformer}
+ * and {@link JSONTransformer} using the same transformations and
+ * server responses as {@link JerseyClientTest}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformerBenchmark {
+
+    private final static String TEST_RESOURCES = "/org/humanistika/oxygen/tei/completer/remote/impl/";
+
+    private XMLTransformer xmlTransformer;
+    private JSONTransformer jsonTransformer;
+    private Path xmlTransformation;
+    private Path jsonTransformation;
+    private byte[] xmlContent;
+    private byte[] jsonContent;
+
+    @Setup
+    public void setup() throws URISyntaxException {
+        this.xmlTransformer = new XMLTransformer();
+        this.jsonTransformer = new JSONTransformer();
+        this.xmlTransformation = Paths.get(getClass().getResource(TEST_RESOURCES + "custom-transform-test.xslt").toURI());
+        this.jsonTransformation = Paths.get(getClass().getResource(TEST_RESOURCES + "custom-transform-test.js").toURI());
+        this.xmlContent = JerseyClientTest.getTestSuggestions_CustomXml("some-selection", "some-dependent").getBytes(UTF_8);
+        this.jsonContent = JerseyClientTest.getTestSuggestions_CustomJson("some-selection", "some-dependent").getBytes(UTF_8);
+    }
+
+    @Benchmark
+    public byte[] xmlTransform() throws IOException, TransformationException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        xmlTransformer.transform(new ByteArrayInputStream(xmlContent), xmlTransformation, result);
+        return result.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] jsonTransform() throws IOException, TransformationException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        jsonTransformer.transform(new ByteArrayInputStream(jsonContent), jsonTransformation, result);
+        return result.toByteArray();
+    }
+
+    @Benchmark
+    public Suggestions jsonTransformToSuggestions() throws IOException, TransformationException {
+        return jsonTransformer.transform(new ByteArrayInputStream(jsonContent), jsonTransformation, json -> {
+            throw new TransformationException("Result is not in the suggestions format");
+        });
+    }
+}
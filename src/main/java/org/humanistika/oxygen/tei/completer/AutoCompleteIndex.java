@@ -0,0 +1,281 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer;
+
+import com.evolvedbinary.xpath.parser.ast.*;
+import org.humanistika.oxygen.tei.completer.configuration.beans.AutoComplete;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static org.humanistika.oxygen.tei.completer.XPathUtil.getSteps;
+import static org.humanistika.oxygen.tei.completer.XPathUtil.isSubset;
+import static org.humanistika.oxygen.tei.completer.XPathUtil.parseXPath;
+
+/**
+ * An index of the configured auto-completes by the
+ * local-name of the attribute and of its parent element
+ * which their attribute XPath addresses
+ *
+ * Looking up the candidates for an attribute XPath is
+ * a handful of map lookups rather than a scan of
+ * every auto-complete, the candidates must still be checked with
+ * {@link XPathUtil#isSubset(Expr, Expr)} as names are only compared
+ * by local-name and predicates are ignored.
+ *
+ * Auto-completes whose attribute or element cannot be determined
+ * from the XPath (e.g. a `*` wildcard, a kind test, or `//@attr`) are held
+ * in wildcard buckets which are consulted for every lookup.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class AutoCompleteIndex<T extends AutoComplete> {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(AutoCompleteIndex.class);
+
+    private final static String ANY = QNameW.WILDCARD;
+
+    private final static int MAX_MATCHES = 1000;
+
+    private final List<? extends T> autoCompletes;
+    private final Map<String, Map<String, List<Entry<T>>>> byAttributeThenElement = new HashMap<>();
+    private final BoundedMemo<String, List<T>> matches = new BoundedMemo<>(MAX_MATCHES);
+
+    /**
+     * @param autoCompletes The configured auto-completes
+     * @param attributeXPath A function which returns the parsed attribute XPath
+     *     of an auto-complete, or null if it does not have a valid attribute XPath
+     */
+    public AutoCompleteIndex(final List<? extends T> autoCompletes, final Function<T, Expr> attributeXPath) {
+        this.autoCompletes = autoCompletes;
+        for(int i = 0; i < autoCompletes.size(); i++) {
+            final T autoComplete = autoCompletes.get(i);
+            final Expr expr = attributeXPath.apply(autoComplete);
+            if(expr == null) {
+                continue;
+            }
+
+            final Names names = getNames(expr);
+            final String attributeName = names == null || names.attributeName == null ? ANY : names.attributeName;
+            final String elementName = names == null || names.elementName == null ? ANY : names.elementName;
+            byAttributeThenElement
+                    .computeIfAbsent(attributeName, k -> new HashMap<>())
+                    .computeIfAbsent(elementName, k -> new ArrayList<>())
+                    .add(new Entry<>(i, autoComplete, expr));
+        }
+    }
+
+    /**
+     * Get the auto-completes that the index was built from
+     *
+     * @return the auto-completes
+     */
+    public List<? extends T> getAutoCompletes() {
+        return autoCompletes;
+    }
+
+    /**
+     * Get the auto-completes which match an attribute XPath
+     *
+     * The matches for each attribute XPath are memoized.
+     *
+     * @param attributeXPath The XPath of an attribute
+     *
+     * @return The matching auto-completes, in configuration order
+     */
+    public List<T> getMatches(final String attributeXPath) {
+        return matches.computeIfAbsent(attributeXPath, this::findMatches);
+    }
+
+    /**
+     * Get the memo of attribute XPaths and their matching auto-completes,
+     * for example to obtain its statistics
+     *
+     * @return the memo of matching auto-completes
+     */
+    public BoundedMemo<String, List<T>> getMatchesMemo() {
+        return matches;
+    }
+
+    private List<T> findMatches(final String attributeXPath) {
+        final Expr attributeExpr;
+        try {
+            attributeExpr = parseXPath(attributeXPath);
+        } catch (final Exception e) {
+            LOGGER.error(e.getMessage(), e);
+            return Collections.emptyList();
+        }
+        if(attributeExpr == null) {
+            return Collections.emptyList();
+        }
+
+        final List<T> matching = new ArrayList<>();
+        for(final Entry<T> candidate : getCandidates(attributeExpr)) {
+            //check if attributeExpr addresses a subset of the candidate's attributeXPath
+            if(isSubset(attributeExpr, candidate.getAttributeXPath())) {
+                matching.add(candidate.getAutoComplete());
+            } else {
+                LOGGER.debug("Attribute XPath '{}' is not a subset of configured auto-complete XPath '{}/{}'", attributeXPath, candidate.getAutoComplete().getContext(), candidate.getAutoComplete().getAttribute());
+            }
+        }
+        return Collections.unmodifiableList(matching);
+    }
+
+    /**
+     * Get the auto-completes which may match an attribute XPath
+     *
+     * @param attributeExpr The XPath of an attribute
+     *
+     * @return The candidate auto-completes, in configuration order
+     */
+    public List<Entry<T>> getCandidates(final Expr attributeExpr) {
+        final Names names = getNames(attributeExpr);
+        final String attributeName = names == null ? null : names.attributeName;
+        final String elementName = names == null ? null : names.elementName;
+
+        final List<Entry<T>> candidates = new ArrayList<>();
+        if(attributeName != null) {
+            addCandidates(candidates, byAttributeThenElement.get(attributeName), elementName);
+            addCandidates(candidates, byAttributeThenElement.get(ANY), elementName);
+        } else {
+            // we can't tell which attribute is addressed, so everything is a candidate
+            for(final Map<String, List<Entry<T>>> byElement : byAttributeThenElement.values()) {
+                for(final List<Entry<T>> entries : byElement.values()) {
+                    candidates.addAll(entries);
+                }
+            }
+        }
+
+        candidates.sort(Comparator.comparingInt(entry -> entry.position));
+        return candidates;
+    }
+
+    private static <T extends AutoComplete> void addCandidates(final List<Entry<T>> candidates, @Nullable final Map<String, List<Entry<T>>> byElement, @Nullable final String elementName) {
+        if(byElement == null) {
+            return;
+        }
+
+        if(elementName != null) {
+            final List<Entry<T>> entries = byElement.get(elementName);
+            if(entries != null) {
+                candidates.addAll(entries);
+            }
+            final List<Entry<T>> anyEntries = byElement.get(ANY);
+            if(anyEntries != null) {
+                candidates.addAll(anyEntries);
+            }
+        } else {
+            for(final List<Entry<T>> entries : byElement.values()) {
+                candidates.addAll(entries);
+            }
+        }
+    }
+
+    /**
+     * Extracts the local-names of the attribute and its parent element
+     * from the last steps of an attribute XPath
+     *
+     * @return the names, or null if the XPath does not end in an attribute step
+     */
+    @Nullable
+    private static Names getNames(final Expr expr) {
+        final List<? extends StepExpr> steps = getSteps(expr);
+        if(steps.isEmpty()) {
+            return null;
+        }
+
+        final StepExpr lastStep = steps.get(steps.size() - 1);
+        if(!(lastStep instanceof AxisStep)) {
+            return null;
+        }
+        final Step attributeStep = ((AxisStep)lastStep).getStep();
+        if(!attributeStep.getAxis().equals(Axis.ATTRIBUTE)) {
+            return null;
+        }
+        final String attributeName = getLocalName(attributeStep.getNodeTest());
+
+        // find the parent element step, a `//` before the attribute means any element
+        String elementName = null;
+        int parentIdx = steps.size() - 2;
+        if(parentIdx > 0 && steps.get(parentIdx).equals(PathExpr.SLASH_ABBREV)) {
+            parentIdx--;
+        }
+        if(parentIdx >= 0) {
+            final StepExpr parentStep = steps.get(parentIdx);
+            if(parentStep instanceof AxisStep) {
+                final Step elementStep = ((AxisStep)parentStep).getStep();
+                if(!elementStep.getAxis().equals(Axis.ATTRIBUTE)) {
+                    elementName = getLocalName(elementStep.getNodeTest());
+                }
+            }
+        }
+
+        return new Names(attributeName, elementName);
+    }
+
+    @Nullable
+    private static String getLocalName(final NodeTest nodeTest) {
+        if(nodeTest instanceof NameTest) {
+            final QNameW name = ((NameTest)nodeTest).getName();
+            if(name != null && name.getLocalPart() != null && !name.getLocalPart().equals(QNameW.WILDCARD)) {
+                return name.getLocalPart();
+            }
+        }
+        return null;
+    }
+
+    private static class Names {
+        @Nullable final String attributeName;
+        @Nullable final String elementName;
+
+        Names(@Nullable final String attributeName, @Nullable final String elementName) {
+            this.attributeName = attributeName;
+            this.elementName = elementName;
+        }
+    }
+
+    /**
+     * An indexed auto-complete and its parsed attribute XPath
+     */
+    public static class Entry<T extends AutoComplete> {
+        private final int position;
+        private final T autoComplete;
+        private final Expr attributeXPath;
+
+        Entry(final int position, final T autoComplete, final Expr attributeXPath) {
+            this.position = position;
+            this.autoComplete = autoComplete;
+            this.attributeXPath = attributeXPath;
+        }
+
+        public T getAutoComplete() {
+            return autoComplete;
+        }
+
+        public Expr getAttributeXPath() {
+            return attributeXPath;
+        }
+    }
+}
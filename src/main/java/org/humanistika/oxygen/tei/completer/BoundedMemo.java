@@ -0,0 +1,136 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer;
+
+import javax.annotation.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A thread-safe memo of computed values which holds at most
+ * a fixed number of entries, evicting approximately the least
+ * recently used
+ *
+ * Looking up a memoized value takes no lock, so that concurrent
+ * readers never wait for each other. Each entry records when it was
+ * last used from a logical clock, which is only advanced when a
+ * different entry than the last to be used is used. When an entry
+ * is added to a full memo, the entry with the oldest use is evicted;
+ * as uses are recorded without a lock, concurrent use may occasionally
+ * evict an entry which is not strictly the least recently used.
+ *
+ * Values are computed without a lock, so two threads may
+ * occasionally compute the same value, the functions
+ * used with this memo must therefore be side-effect free.
+ * Null values are never memoized.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class BoundedMemo<K, V> {
+
+    private final int maxEntries;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public BoundedMemo(final int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Get the memoized value for a key, computing it if it is not present
+     *
+     * @param key The key
+     * @param compute A function to compute the value for the key
+     *
+     * @return The value, or null if the function returned null
+     */
+    @Nullable
+    public V computeIfAbsent(final K key, final Function<K, V> compute) {
+        final Entry<V> entry = entries.get(key);
+        if(entry != null) {
+            hits.incrementAndGet();
+            //NOTE: the clock is only advanced when the entry was not the last to be used
+            if(entry.lastUsed != clock.get()) {
+                entry.lastUsed = clock.incrementAndGet();
+            }
+            return entry.value;
+        }
+
+        misses.incrementAndGet();
+        final V value = compute.apply(key);
+        if(value != null) {
+            entries.put(key, new Entry<>(value, clock.incrementAndGet()));
+            while(entries.size() > maxEntries) {
+                evictLeastRecentlyUsed();
+            }
+        }
+        return value;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Map.Entry<K, Entry<V>> eldest = null;
+        for(final Map.Entry<K, Entry<V>> candidate : entries.entrySet()) {
+            if(eldest == null || candidate.getValue().lastUsed < eldest.getValue().lastUsed) {
+                eldest = candidate;
+            }
+        }
+        if(eldest != null) {
+            entries.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount();
+    }
+
+    private static class Entry<V> {
+        final V value;
+        volatile long lastUsed;
+
+        Entry(final V value, final long lastUsed) {
+            this.value = value;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer;
+
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Notifies listeners when files are changed, so that
+ * anything derived from a file may be invalidated without
+ * checking the file each time that it is used
+ *
+ * Files are watched by a single background thread. Editors often
+ * write a file in several steps, so events are collected until
+ * none have arrived for {@link #SETTLE_DELAY} milliseconds, and then
+ * each changed file is notified once.
+ *
+ * If the directory of a watched file can no longer be watched,
+ * e.g. because it has been deleted, then the listeners of its files are
+ * notified once more and are no longer registered. A listener may check
+ * {@link #isWatched(Path, Runnable)} when it is notified, and should then
+ * watch the file again when it is next used.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class FileWatcher {
+    private final static Logger LOGGER = LoggerFactory.getLogger(FileWatcher.class);
+    private final static FileWatcher instance = new FileWatcher();
+
+    private final static long SETTLE_DELAY = 100;  // milliseconds
+
+    @Nullable private final WatchService watchService;
+    private final Map<Path, WatchKey> directories = new HashMap<>();
+    private final Map<Path, List<Runnable>> listeners = new HashMap<>();
+
+    private FileWatcher() {
+        this.watchService = newWatchService();
+        if(watchService != null) {
+            final Thread thread = new Thread(this::run, "tei-completer-file-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    @Nullable
+    private static WatchService newWatchService() {
+        try {
+            return FileSystems.getDefault().newWatchService();
+        } catch(final IOException | UnsupportedOperationException e) {
+            LOGGER.warn("Unable to watch for changes to files: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    public static FileWatcher getInstance() {
+        return instance;
+    }
+
+    /**
+     * Watch a file for changes
+     *
+     * @param file The file to watch
+     * @param listener Called from the watching thread after the file has been created, modified or deleted, or once the file can no longer be watched
+     *
+     * @return true if the file is watched, or false if changes to the file cannot be detected
+     */
+    public boolean watch(final Path file, final Runnable listener) {
+        if(watchService == null) {
+            return false;
+        }
+
+        final Path absFile = file.toAbsolutePath().normalize();
+        final Path dir = absFile.getParent();
+        if(dir == null) {
+            return false;
+        }
+
+        synchronized(listeners) {
+            if(!directories.containsKey(dir)) {
+                try {
+                    directories.put(dir, dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE));
+                } catch(final IOException | ClosedWatchServiceException e) {
+                    LOGGER.warn("Unable to watch for changes to: {}: {}", absFile, e.getMessage());
+                    return false;
+                }
+            }
+            listeners.computeIfAbsent(absFile, k -> new ArrayList<>()).add(listener);
+        }
+        return true;
+    }
+
+    /**
+     * Stop notifying a listener of changes to a file
+     *
+     * @param file The watched file
+     * @param listener The listener that was passed to {@link #watch(Path, Runnable)}
+     */
+    public void unwatch(final Path file, final Runnable listener) {
+        final Path absFile = file.toAbsolutePath().normalize();
+        synchronized(listeners) {
+            final List<Runnable> fileListeners = listeners.get(absFile);
+            if(fileListeners != null) {
+                fileListeners.remove(listener);
+                if(fileListeners.isEmpty()) {
+                    listeners.remove(absFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Determine if a listener is still notified of changes to a file
+     *
+     * @param file The watched file
+     * @param listener The listener that was passed to {@link #watch(Path, Runnable)}
+     *
+     * @return true if the listener is notified of changes to the file
+     */
+    public boolean isWatched(final Path file, final Runnable listener) {
+        final Path absFile = file.toAbsolutePath().normalize();
+        synchronized(listeners) {
+            final List<Runnable> fileListeners = listeners.get(absFile);
+            return fileListeners != null && fileListeners.contains(listener);
+        }
+    }
+
+    private void run() {
+        try {
+            while(true) {
+                final Set<Path> changed = new LinkedHashSet<>();
+                final Map<Path, List<Runnable>> unwatched = new LinkedHashMap<>();
+                WatchKey key = watchService.take();
+                while(key != null) {
+                    collectChanges(key, changed, unwatched);
+                    key = watchService.poll(SETTLE_DELAY, TimeUnit.MILLISECONDS);
+                }
+                notifyListeners(changed);
+                for(final Map.Entry<Path, List<Runnable>> lost : unwatched.entrySet()) {
+                    LOGGER.debug("No longer watching: {}", lost.getKey());
+                    notifyListeners(lost.getValue());
+                }
+            }
+        } catch(final InterruptedException | ClosedWatchServiceException e) {
+            LOGGER.debug("Stopped watching for changes to files");
+        }
+    }
+
+    private void collectChanges(final WatchKey key, final Set<Path> changed, final Map<Path, List<Runnable>> unwatched) {
+        final Path dir = (Path)key.watchable();
+        for(final WatchEvent<?> event : key.pollEvents()) {
+            if(event.kind() == OVERFLOW) {
+                // events were lost, so we can't tell which files changed
+                synchronized(listeners) {
+                    for(final Path file : listeners.keySet()) {
+                        if(dir.equals(file.getParent())) {
+                            changed.add(file);
+                        }
+                    }
+                }
+            } else {
+                changed.add(dir.resolve((Path)event.context()));
+            }
+        }
+
+        if(!key.reset()) {
+            // the directory is no longer accessible, so its files are no longer watched
+            synchronized(listeners) {
+                directories.remove(dir);
+                final Iterator<Map.Entry<Path, List<Runnable>>> it = listeners.entrySet().iterator();
+                while(it.hasNext()) {
+                    final Map.Entry<Path, List<Runnable>> fileListeners = it.next();
+                    if(dir.equals(fileListeners.getKey().getParent())) {
+                        unwatched.computeIfAbsent(fileListeners.getKey(), k -> new ArrayList<>()).addAll(fileListeners.getValue());
+                        it.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    private void notifyListeners(final Set<Path> changed) {
+        for(final Path file : changed) {
+            final List<Runnable> fileListeners;
+            synchronized(listeners) {
+                final List<Runnable> registered = listeners.get(file);
+                if(registered == null) {
+                    continue;
+                }
+                fileListeners = new ArrayList<>(registered);
+            }
+
+            LOGGER.debug("Detected change to: {}", file);
+            notifyListeners(fileListeners);
+        }
+    }
+
+    private void notifyListeners(final List<Runnable> fileListeners) {
+        for(final Runnable listener : fileListeners) {
+            try {
+                listener.run();
+            } catch(final RuntimeException e) {
+                LOGGER.error(e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -19,7 +19,6 @@
  */
 package org.humanistika.oxygen.tei.completer.GUI;
 
-import com.evolvedbinary.xpath.parser.ast.Expr;
 import org.humanistika.oxygen.tei.completer.SuggestedAutocomplete;
 import org.humanistika.oxygen.tei.completer.TeiCompleter;
 import org.humanistika.oxygen.tei.completer.configuration.beans.AutoComplete;
@@ -34,10 +33,9 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static org.humanistika.oxygen.tei.completer.XPathUtil.isSubset;
-import static org.humanistika.oxygen.tei.completer.XPathUtil.parseXPath;
 
 /**
  *
@@ -64,6 +62,8 @@ public class newSuggestionForm extends javax.swing.JDialog {
         this.teiCompleter = teiCompleter;
         this.autoCompleteContext = autoCompleteContext;
         this.context = context;
+        this.liveSearchTimer = new Timer((int)Math.min(teiCompleter.getConfiguration().getLiveSearchDelay(), Integer.MAX_VALUE), e -> startLiveAutoComplete());
+        this.liveSearchTimer.setRepeats(false);
         initComponents();
         customLabels();
     }
@@ -242,32 +242,21 @@ public class newSuggestionForm extends javax.swing.JDialog {
         String dependent = dependentJTextField.getText();
 
         // get the auto complete suggestions based on the user input
-        final List<CIValue> suggestions = new ArrayList<>();
-
         final String elemXPath = context.computeContextXPathExpression();
-        final String attrXPath = elemXPath + "/@" + context.getAttributeName();
-        Expr attributeExpr;
-        try {
-            attributeExpr = parseXPath(attrXPath);
-        } catch (Exception e) {
+        final List<AutoComplete> autoCompletes = teiCompleter.getMatchingAutoCompletes(elemXPath, context.getAttributeName());
+        if (autoCompletes.isEmpty()) {
             return;
         }
 
-
-        for (final AutoComplete autoComplete : teiCompleter.getConfiguration().getAutoCompletes()) {
-            //check if attributeExpr addresses a subset of autoCompleteXPaths.attributeXPath
-            // only request auto completer suggestions if it matches
-            final TeiCompleter.AutoCompleteXPaths autoCompleteXPaths = teiCompleter.getXPaths(autoComplete);
-            if (isSubset(attributeExpr, autoCompleteXPaths.getAttributeXPath())) {
-                suggestions.addAll(teiCompleter.requestAutoComplete(autoComplete, selection, dependent));
-            }
-        }
+        // only request auto completer suggestions from the matching auto completes
+        final List<CIValue> suggestions = teiCompleter.requestAutoCompletes(autoCompletes, selection, dependent);
 
         //get the model to populate the table
         DefaultTableModel model = (DefaultTableModel) restultsJTable.getModel();
 
         // clear the old results
         model.setRowCount(0);
+        results.clear();
 
         for(int i= 0;i< suggestions.size();i++) {
             results.add(new SuggestedAutocomplete(suggestions.get(i).getValue(), suggestions.get(i).getAnnotation(), new ArrayList<>()));
@@ -344,24 +333,61 @@ public class newSuggestionForm extends javax.swing.JDialog {
     private javax.swing.JTextField selectionJTextField;
     // End of variables declaration//GEN-END:variables
 
-    private AtomicBoolean runningState = new AtomicBoolean(false);
+    private final Timer liveSearchTimer;
+    @Nullable private LiveAutoComplete liveAutoComplete = null;
 
     private void textChanged() {
 
+        // the search for the previous text is now stale
+        cancelLiveAutoComplete();
+
         // GATE Keeper
         // reject if either fields have less than 3 chars
         // this correspond to requestAutoComplete function as well
          //TODO USE a constant for this value
-        if(selectionJTextField.getText().length() < 3) return;
-        if(this.teiCompleter.getConfiguration().getAutoCompletes().get(0).getDependent() != null && dependentJTextField.getText().length() < 3) return;
-
-        // if we are already fetching results no need to do it again
-        if(runningState.compareAndSet(false, true)) {
-            //No SwingWorker is running.
-            //Create and start swing worker.
-            LiveAutoComplete live = new LiveAutoComplete();
-            live.execute();
+        if(selectionJTextField.getText().length() < 3) {
+            liveSearchTimer.stop();
+            return;
         }
+        if(this.teiCompleter.getConfiguration().getAutoCompletes().get(0).getDependent() != null && dependentJTextField.getText().length() < 3) {
+            liveSearchTimer.stop();
+            return;
+        }
+
+        // search once there has been no further typing for the quiet period
+        liveSearchTimer.restart();
+    }
+
+    private void startLiveAutoComplete() {
+        cancelLiveAutoComplete();
+
+        fetchjButton.setText("Loading...");
+        fetchjButton.setEnabled(false);
+
+        // clear the old results
+        DefaultTableModel model = (DefaultTableModel) restultsJTable.getModel();
+        model.setRowCount(0);
+        results.clear();
+
+        liveAutoComplete = new LiveAutoComplete(selectionJTextField.getText(), dependentJTextField.getText());
+        liveAutoComplete.execute();
+    }
+
+    private void cancelLiveAutoComplete() {
+        if(liveAutoComplete != null) {
+            liveAutoComplete.abort();
+            liveAutoComplete = null;
+
+            fetchjButton.setText("Search...");
+            fetchjButton.setEnabled(true);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        liveSearchTimer.stop();
+        cancelLiveAutoComplete();
+        super.dispose();
     }
 
     @Nullable
@@ -382,78 +408,92 @@ public class newSuggestionForm extends javax.swing.JDialog {
         selectionJTextField.setText(autoCompleteContext.getSelectedValue());
     }
 
-    public class LiveAutoComplete extends SwingWorker {
-        List<CIValue> suggestions = new ArrayList<>();
-        String selection;
-        String dependent;
-        @Override
-        protected Object doInBackground() throws Exception {
-
-            fetchjButton.setText("Loading...");
-            fetchjButton.setEnabled(false);
-
-            DefaultTableModel model = (DefaultTableModel) restultsJTable.getModel();
-            // clear the old results
-            model.setRowCount(0);
-
-            // Introduce a delay of 100 milliseconds
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                // Handle interruption if necessary
-            }
+    /**
+     * Requests the suggestions in the background, each
+     * suggestion is added to the table as soon as it arrives
+     *
+     * A search which is aborted adds no further suggestions
+     * to the table, and its requests to the server are aborted.
+     */
+    public class LiveAutoComplete extends SwingWorker<Void, CIValue> {
+        final AtomicInteger received = new AtomicInteger();
+        final String selection;
+        final String dependent;
+        private volatile CompletableFuture<Void> request;
+
+        LiveAutoComplete(final String selection, final String dependent) {
+            this.selection = selection;
+            this.dependent = dependent;
+        }
 
-            // get the text field values after the cool down
-            selection = selectionJTextField.getText();
-            dependent = dependentJTextField.getText();
+        @Override
+        protected Void doInBackground() throws Exception {
 
             // get the auto complete suggestions based on the user input
-            final List<CIValue> suggestions = new ArrayList<>();
-
+            // only request auto complete suggestions from the matching auto completes
             final String elemXPath = context.computeContextXPathExpression();
-            final String attrXPath = elemXPath + "/@" + context.getAttributeName();
-            Expr attributeExpr;
-            try {
-                attributeExpr = parseXPath(attrXPath);
-            } catch (Exception e) {
-                throw new Exception(e);
+            final List<AutoComplete> autoCompletes = teiCompleter.getMatchingAutoCompletes(elemXPath, context.getAttributeName());
+            request = teiCompleter.requestAutoCompletes(autoCompletes, selection, dependent, suggestion -> {
+                received.incrementAndGet();
+                publish(suggestion);
+            });
+
+            // we may have been aborted before the request was made
+            if(isCancelled()) {
+                request.cancel(false);
+                return null;
             }
 
+            request.get();
 
-            for (final AutoComplete autoComplete : teiCompleter.getConfiguration().getAutoCompletes()) {
-                //check if attributeExpr addresses a subset of autoCompleteXPaths.attributeXPath
-                // only request auto complete suggestions if it matches
-                final TeiCompleter.AutoCompleteXPaths autoCompleteXPaths = teiCompleter.getXPaths(autoComplete);
-                if (isSubset(attributeExpr, autoCompleteXPaths.getAttributeXPath())) {
-                    suggestions.addAll(teiCompleter.requestAutoComplete(autoComplete, selection, dependent));
+            return null;
+        }
 
-                }
+        /**
+         * Abort the search, and any requests which are still in progress
+         */
+        void abort() {
+            cancel(true);
+            final CompletableFuture<Void> request = this.request;
+            if(request != null) {
+                request.cancel(false);
             }
+        }
 
-            this.suggestions.addAll(suggestions);
+        @Override
+        protected void process(final List<CIValue> suggestions) {
+            if(isCancelled()) {
+                return;
+            }
 
-            return null;
+            // Update UI on EDT as the suggestions arrive
+            DefaultTableModel model = (DefaultTableModel) restultsJTable.getModel();
+            for(final CIValue suggestion : suggestions) {
+                results.add(new SuggestedAutocomplete(suggestion.getValue(), suggestion.getAnnotation(), new ArrayList<>()));
+                model.addRow(new Object[]{suggestion.getValue(), suggestion.getAnnotation()});
+            }
         }
 
         @Override
         protected void done() {
+            if(isCancelled()) {
+                // a newer search is responsible for the UI
+                return;
+            }
+
             // Update UI on EDT when the task is complete
             fetchjButton.setText("Search...");
             fetchjButton.setEnabled(true);
             DefaultTableModel model = (DefaultTableModel) restultsJTable.getModel();
 
-            //populate with the new results
-            for(int i= 0;i< suggestions.size();i++) {
-                results.add(new SuggestedAutocomplete(suggestions.get(i).getValue(), suggestions.get(i).getAnnotation(), new ArrayList<>()));
-                model.addRow(new Object[]{suggestions.get(i).getValue(), suggestions.get(i).getAnnotation()});
-                System.out.println(suggestions.get(i).getAnnotation());
-            }
-
-            if(suggestions.size() == 0) {
+            // NOTE: the rows for the last suggestions may not have been added yet
+            if(received.get() == 0) {
                 model.addRow(new Object[]{"No results Matching " + dependent + "+" + selection , ""});
             }
 
-            runningState.set(false);
+            if(liveAutoComplete == this) {
+                liveAutoComplete = null;
+            }
         }
     }
 }
@@ -29,12 +29,18 @@ import org.humanistika.oxygen.tei.completer.GUI.newSuggestionForm;
 import org.humanistika.oxygen.tei.completer.configuration.beans.Authentication;
 import org.humanistika.oxygen.tei.completer.configuration.beans.AutoComplete;
 import org.humanistika.oxygen.tei.completer.configuration.Configuration;
+import org.humanistika.oxygen.tei.completer.configuration.Configuration.MatchMode;
 import org.humanistika.oxygen.tei.completer.configuration.ConfigurationFactory;
 import org.humanistika.oxygen.tei.completer.configuration.beans.Dependent;
+import org.humanistika.oxygen.tei.completer.configuration.beans.IndexInfo;
+import org.humanistika.oxygen.tei.completer.configuration.beans.RequestInfo;
 import org.humanistika.oxygen.tei.completer.remote.Client;
 import org.humanistika.oxygen.tei.completer.remote.ClientFactory;
 import org.humanistika.oxygen.tei.completer.remote.ClientFactory.AuthenticationType;
+import org.humanistika.oxygen.tei.completer.remote.impl.CachingClient;
+import org.humanistika.oxygen.tei.completer.remote.impl.CoalescingClient;
 import org.humanistika.oxygen.tei.completer.remote.impl.JerseyClientFactory;
+import org.humanistika.oxygen.tei.completer.remote.impl.LocalIndexClient;
 import javax.annotation.Nullable;
 
 import org.slf4j.Logger;
@@ -49,12 +55,23 @@ import ro.sync.contentcompletion.xml.WhatAttributesCanGoHereContext;
 import ro.sync.contentcompletion.xml.WhatElementsCanGoHereContext;
 import ro.sync.contentcompletion.xml.WhatPossibleValuesHasAttributeContext;
 
-import static org.humanistika.oxygen.tei.completer.XPathUtil.isSubset;
 import static org.humanistika.oxygen.tei.completer.XPathUtil.parseXPath;
 
 
 import java.awt.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -73,10 +90,18 @@ import java.util.stream.Collectors;
  */
 public class TeiCompleter implements SchemaManagerFilter {
     private final static Logger LOGGER = LoggerFactory.getLogger(TeiCompleter.class);
-    private final static Map<AuthenticationType, Client> clientsWithAuth = new EnumMap<>(AuthenticationType.class);
-    private final static Map<AutoComplete, AutoCompleteXPaths> cachedAutoCompleteXPaths = new HashMap<>();
-
-    protected Configuration<? extends AutoComplete> configuration = null;
+    private final static ConcurrentMap<AuthenticationType, Client> clientsWithAuth = new ConcurrentHashMap<>();
+    private final static ConcurrentMap<IndexInfo, LocalIndexClient> indexClients = new ConcurrentHashMap<>();
+    private final static int FAN_OUT_THREADS = 4;
+    private final static AtomicInteger fanOutThreadCount = new AtomicInteger();
+    private final static ExecutorService fanOutExecutor = Executors.newFixedThreadPool(FAN_OUT_THREADS, runnable -> {
+        final Thread thread = new Thread(runnable, "tei-completer-fan-out-" + fanOutThreadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    protected volatile Configuration<? extends AutoComplete> configuration = null;
+    private volatile Snapshot snapshot = null;
 
     @Override
     public String getDescription() {
@@ -114,52 +139,269 @@ public class TeiCompleter implements SchemaManagerFilter {
      * Get the autocomplete suggestions from the server if
      * we have a configured XPath
      *
+     * When the configuration's match mode is {@link MatchMode#ALL}, all
+     * matching auto-completes are queried concurrently and their
+     * suggestions merged, otherwise only the first matching auto-complete
+     * is used.
+     *
      * @param context The attribute context
      * @return The list of possible suggestions or null if there was no configured XPath
      */
     @Nullable
     protected final AutoCompleteSuggestions<AutoComplete> getAutoCompleteSuggestions(final WhatPossibleValuesHasAttributeContext context) {
         final String elemXPath = context.computeContextXPathExpression();
-        final String attrXPath = elemXPath + "/@" + context.getAttributeName();
-        Expr attributeExpr;
-        try {
-            attributeExpr = parseXPath(attrXPath);
-        } catch (Exception e) {
+        final List<AutoComplete> autoCompletes = getAutoCompletesToRequest(elemXPath, context.getAttributeName());
+        if(autoCompletes.isEmpty()) {
             return null;
         }
 
+        if(autoCompletes.size() == 1) {
+            final AutoComplete autoComplete = autoCompletes.get(0);
+            final AutoCompleteContext autoCompleteContext = getAutoCompleteContext(context, elemXPath, autoComplete);
+            return new AutoCompleteSuggestions<>(autoComplete, autoCompleteContext, requestAutoComplete(autoComplete, autoCompleteContext.getSelectedValue(), autoCompleteContext.getDependentValue()));
+        }
+
+        final Map<AutoComplete, AutoCompleteContext> requests = new LinkedHashMap<>();
+        for(final AutoComplete autoComplete : autoCompletes) {
+            requests.put(autoComplete, getAutoCompleteContext(context, elemXPath, autoComplete));
+        }
+        final AutoComplete firstAutoComplete = autoCompletes.get(0);
+        return new AutoCompleteSuggestions<>(firstAutoComplete, requests.get(firstAutoComplete), requestAutoCompletes(requests));
+    }
+
+    private AutoCompleteContext getAutoCompleteContext(final WhatPossibleValuesHasAttributeContext context, final String elemXPath, final AutoComplete autoComplete) {
+        final String selection = getSelection(context, elemXPath, autoComplete);
+
+        final String dependent;
+        if(autoComplete.getDependent() != null) {
+            dependent = getDependent(context, elemXPath, autoComplete.getDependent());
+        } else {
+            dependent = null;
+        }
 
-        for (final AutoComplete autoComplete : getConfiguration().getAutoCompletes()) {
-            final AutoCompleteXPaths autoCompleteXPaths = getXPaths(autoComplete);
+        return new AutoCompleteContext(selection, dependent);
+    }
 
-            if(autoCompleteXPaths != null) {
-                //check if attributeExpr addresses a subset of autoCompleteXPaths.attributeXPath
-                if (isSubset(attributeExpr, autoCompleteXPaths.getAttributeXPath())) {
-                    final String selection = getSelection(context, elemXPath, autoComplete);
+    /**
+     * Get the configured auto-completes which match an attribute
+     *
+     * @param elemXPath The XPath of the element
+     * @param attributeName The name of the attribute on the element
+     *
+     * @return The matching auto-completes in configuration order, or an empty list if there are none
+     */
+    public List<AutoComplete> getMatchingAutoCompletes(final String elemXPath, final String attributeName) {
+        final AutoCompleteIndex<AutoComplete> index = getAutoCompleteIndex();
+        final List<AutoComplete> matching = index.getMatches(elemXPath + "/@" + attributeName);
+        if(LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Parsed XPaths memo: {}, matching auto-completes memo: {}", XPathUtil.getParsedXPaths(), index.getMatchesMemo());
+        }
+        return matching;
+    }
 
-                    final String dependent;
-                    if(autoComplete.getDependent() != null) {
-                        dependent = getDependent(context, elemXPath, autoComplete.getDependent());
-                    } else {
-                        dependent = null;
+    /**
+     * Get the configured auto-completes which suggestions should
+     * be requested from for an attribute by the content completion
+     *
+     * When the configuration's match mode is {@link MatchMode#ALL}, these
+     * are all of the matching auto-completes, otherwise only the first.
+     * The new suggestion dialog instead always requests all of the
+     * matching auto-completes.
+     *
+     * @param elemXPath The XPath of the element
+     * @param attributeName The name of the attribute on the element
+     *
+     * @return The auto-completes in configuration order, or an empty list if there are none
+     */
+    public List<AutoComplete> getAutoCompletesToRequest(final String elemXPath, final String attributeName) {
+        final List<AutoComplete> matching = getMatchingAutoCompletes(elemXPath, attributeName);
+        if(matching.size() > 1 && getConfiguration().getMatchMode() == MatchMode.FIRST) {
+            return Collections.singletonList(matching.get(0));
+        }
+        return matching;
+    }
+
+    /**
+     * Request suggestions for several auto-completes which all
+     * use the same selection and dependent
+     *
+     * @param autoCompletes The auto-completes to request suggestions for
+     * @param selection The selection
+     * @param dependent The dependent or null
+     *
+     * @return The merged suggestions
+     */
+    public List<CIValue> requestAutoCompletes(final List<AutoComplete> autoCompletes, final String selection, @Nullable final String dependent) {
+        final Map<AutoComplete, AutoCompleteContext> requests = new LinkedHashMap<>();
+        for(final AutoComplete autoComplete : autoCompletes) {
+            requests.put(autoComplete, new AutoCompleteContext(selection, dependent));
+        }
+        return requestAutoCompletes(requests);
+    }
+
+    /**
+     * Concurrently request suggestions for several auto-completes
+     * and merge the results
+     *
+     * Suggestions are de-duplicated by value, the suggestion from
+     * the earliest auto-complete is kept. If an auto-complete has a label
+     * then its suggestions are annotated with it.
+     *
+     * @param requests The auto-completes and the context to request suggestions with
+     *
+     * @return The merged suggestions
+     */
+    public List<CIValue> requestAutoCompletes(final Map<AutoComplete, AutoCompleteContext> requests) {
+        final List<Map.Entry<AutoComplete, CompletableFuture<List<CIValue>>>> futureResults = new ArrayList<>(requests.size());
+        for(final Map.Entry<AutoComplete, AutoCompleteContext> request : requests.entrySet()) {
+            final AutoComplete autoComplete = request.getKey();
+            final AutoCompleteContext autoCompleteContext = request.getValue();
+            final CompletableFuture<List<CIValue>> futureResult = CompletableFuture.supplyAsync(() ->
+                    requestAutoComplete(autoComplete, autoCompleteContext.getSelectedValue(), autoCompleteContext.getDependentValue()), fanOutExecutor);
+            futureResults.add(new AbstractMap.SimpleImmutableEntry<>(autoComplete, futureResult));
+        }
+
+        final Map<String, CIValue> merged = new LinkedHashMap<>();
+        for(final Map.Entry<AutoComplete, CompletableFuture<List<CIValue>>> futureResult : futureResults) {
+            final String label = futureResult.getKey().getLabel();
+            try {
+                for(final CIValue result : futureResult.getValue().get()) {
+                    if(!merged.containsKey(result.getValue())) {
+                        merged.put(result.getValue(), label == null ? result : new CIValue(result.getValue(), labelAnnotation(label, result.getAnnotation())));
                     }
+                }
+            } catch(final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch(final ExecutionException e) {
+                LOGGER.error(e.getMessage(), e);
+            }
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    /**
+     * Concurrently request suggestions for several auto-completes which all
+     * use the same selection and dependent, passing each suggestion to the
+     * consumer as soon as it has been received
+     *
+     * Suggestions are de-duplicated by value, the suggestion which
+     * arrives first is kept. If an auto-complete has a label then its
+     * suggestions are annotated with it. The consumer may be called
+     * concurrently from several threads.
+     *
+     * @param autoCompletes The auto-completes to request suggestions for
+     * @param selection The selection
+     * @param dependent The dependent or null
+     * @param results A consumer of the suggestions
+     *
+     * @return A future which completes once all of the suggestions have been received,
+     *     cancelling it aborts any requests which are still in progress
+     */
+    public CompletableFuture<Void> requestAutoCompletes(final List<AutoComplete> autoCompletes, final String selection, @Nullable final String dependent, final Consumer<CIValue> results) {
+        if(selection.length() < 3) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final Set<String> received = ConcurrentHashMap.newKeySet();
+        final ResultsSubscriber[] subscribers = new ResultsSubscriber[autoCompletes.size()];
+        final CompletableFuture<?>[] completions = new CompletableFuture<?>[autoCompletes.size()];
+        for(int i = 0; i < autoCompletes.size(); i++) {
+            final AutoComplete autoComplete = autoCompletes.get(i);
+            final Client client = getClient(autoComplete);
+            final String label = autoComplete.getLabel();
+
+            final ResultsSubscriber subscriber = new ResultsSubscriber(suggestion -> {
+                if(received.add(suggestion.getValue())) {
+                    results.accept(new CIValue(suggestion.getValue(), label == null ? suggestion.getDescription() : labelAnnotation(label, suggestion.getDescription())));
+                }
+            });
+            client.getSuggestionsPublisher(autoComplete.getRequestInfo(), selection, dependent, autoComplete.getResponseAction()).subscribe(subscriber);
+            subscribers[i] = subscriber;
+            completions[i] = subscriber.completion;
+        }
 
-                    //TODO(AR) should we consider all options?
-                    return new AutoCompleteSuggestions<>(autoComplete, new AutoCompleteContext(selection, dependent), requestAutoComplete(autoComplete, selection, dependent));
-                } else {
-                    LOGGER.debug("Attribute XPath '{}' is not a subset of configured auto-complete XPath '{}'", attrXPath, getAutoCompleteAttributeXPath(autoComplete));
+        final CompletableFuture<Void> all = CompletableFuture.allOf(completions);
+        all.whenComplete((result, throwable) -> {
+            if(throwable instanceof CancellationException) {
+                for(final ResultsSubscriber subscriber : subscribers) {
+                    subscriber.cancel();
                 }
             }
+        });
+        return all;
+    }
+
+    /**
+     * Subscribes to all of the suggestions from a client,
+     * errors are logged and complete the subscription
+     */
+    private static class ResultsSubscriber implements Flow.Subscriber<Suggestion> {
+        private final Consumer<Suggestion> suggestions;
+        final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private final CompletableFuture<Flow.Subscription> subscription = new CompletableFuture<>();
+
+        ResultsSubscriber(final Consumer<Suggestion> suggestions) {
+            this.suggestions = suggestions;
         }
 
-        return null;
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription.complete(subscription);
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        /**
+         * Cancels the subscription, now if we are
+         * subscribed, or otherwise as soon as we are
+         */
+        void cancel() {
+            completion.cancel(false);
+            subscription.thenAccept(Flow.Subscription::cancel);
+        }
+
+        @Override
+        public void onNext(final Suggestion suggestion) {
+            if(completion.isDone()) {
+                return;
+            }
+            if(suggestion.getValue() != null) {
+                suggestions.accept(suggestion);
+            }
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            if(!completion.isDone()) {
+                LOGGER.error(throwable.getMessage(), throwable);
+            }
+            completion.complete(null);
+        }
+
+        @Override
+        public void onComplete() {
+            completion.complete(null);
+        }
+    }
+
+    private static String labelAnnotation(final String label, @Nullable final String annotation) {
+        if(annotation == null || annotation.isEmpty()) {
+            return "[" + label + "]";
+        } else {
+            return "[" + label + "] " + annotation;
+        }
     }
 
     public List<CIValue> requestAutoComplete(final AutoComplete autoComplete, final String selection, @Nullable final String dependent) {
-        final Authentication.AuthenticationType authenticationType = autoComplete.getRequestInfo().getAuthentication() == null ? null : autoComplete.getRequestInfo().getAuthentication().getAuthenticationType();
         //TODO USE a constant for this value
         if(selection.length() >= 3) {
-            final Suggestions suggestions = getClient(authenticationType).getSuggestions(autoComplete.getRequestInfo(), selection, dependent, autoComplete.getResponseAction());
+            final Client client = getClient(autoComplete);
+            final Suggestions suggestions;
+            if(autoComplete.getRequestInfo() == null || autoComplete.getRequestInfo().getTimeout() == null) {
+                suggestions = client.getSuggestions(autoComplete.getRequestInfo(), selection, dependent, autoComplete.getResponseAction());
+            } else {
+                suggestions = getSuggestionsWithDeadline(client, autoComplete, selection, dependent);
+            }
             final List<CIValue> results = new ArrayList<>();
             for(final Suggestion suggestion : suggestions.getSuggestion()) {
                 results.add(new CIValue(suggestion.getValue(), suggestion.getDescription()));
@@ -172,25 +414,246 @@ public class TeiCompleter implements SchemaManagerFilter {
     }
 
 
+    /**
+     * Gets the suggestions from the server, but waits no longer than
+     * the deadline configured for the request
+     *
+     * If the deadline passes, any cached suggestions are returned
+     * instead (even if they have expired). The request is not cancelled,
+     * it continues in the background until the server responds or its
+     * connect or read timeout passes, so that a caching client
+     * still caches the response for subsequent requests.
+     *
+     * @param client The client to use for the request
+     * @param autoComplete The auto-complete configuration
+     * @param selection The selection
+     * @param dependent The dependent or null
+     *
+     * @return The suggestions, or whatever is cached if the deadline passed
+     */
+    private Suggestions getSuggestionsWithDeadline(final Client client, final AutoComplete autoComplete, final String selection, @Nullable final String dependent) {
+        final RequestInfo requestInfo = autoComplete.getRequestInfo();
+        final CompletableFuture<Suggestions> futureSuggestions = client.getSuggestionsAsync(requestInfo, selection, dependent, autoComplete.getResponseAction()).toCompletableFuture();
+        try {
+            return futureSuggestions.get(requestInfo.getTimeout(), TimeUnit.MILLISECONDS);
+        } catch(final TimeoutException e) {
+            LOGGER.warn("No response from server within {}ms for selection '{}' and dependent '{}', using cached suggestions", requestInfo.getTimeout(), selection, dependent);
+        } catch(final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch(final ExecutionException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+
+        if(client instanceof CachingClient) {
+            final Suggestions cached = ((CachingClient)client).getCachedSuggestions(requestInfo, selection, dependent, autoComplete.getResponseAction());
+            if(cached != null) {
+                return cached;
+            }
+        }
+        return new Suggestions();
+    }
+
      public Configuration<? extends AutoComplete> getConfiguration() {
         if(configuration == null) {
             synchronized(this) {
                 if(configuration == null) {
-                    this.configuration = ConfigurationFactory.getInstance().loadConfiguration();
+                    final Configuration<? extends AutoComplete> configuration = loadConfiguration();
+                    configuration.addReloadListener(() -> configurationReloaded(configuration));
+                    prepare(configuration);
+                    this.configuration = configuration;
                 }
             }
         }
         return configuration;
     }
 
+    /**
+     * Loads the configuration of the plugin
+     *
+     * @return the configuration
+     */
+    protected Configuration<? extends AutoComplete> loadConfiguration() {
+        return ConfigurationFactory.getInstance().loadConfiguration();
+    }
+
+    /**
+     * Discards everything that was derived from the previous
+     * configuration, in-flight completions may continue to use
+     * what they have already obtained
+     */
+    private void configurationReloaded(final Configuration<? extends AutoComplete> configuration) {
+        //NOTE: the snapshot of XPaths is replaced when the reloaded auto-completes are next used
+        clearClients(configuration.getAutoCompletes());
+        prepare(configuration);
+    }
+
+    /**
+     * Discards and closes the clients, so that new clients are
+     * created when they are next needed
+     */
+    static void clearClients() {
+        clearClients(Collections.emptyList());
+    }
+
+    /**
+     * Discards and closes the clients, except for those of the indexes which
+     * are still configured, so that those indexes are not loaded again
+     *
+     * @param autoCompletes The auto-completes whose index clients are kept
+     */
+    static void clearClients(final List<? extends AutoComplete> autoCompletes) {
+        for(final Map.Entry<AuthenticationType, Client> client : clientsWithAuth.entrySet()) {
+            if(clientsWithAuth.remove(client.getKey(), client.getValue())) {
+                client.getValue().close();
+            }
+        }
+
+        final Set<IndexInfo> configured = new HashSet<>();
+        for(final AutoComplete autoComplete : autoCompletes) {
+            if(autoComplete.getIndexInfo() != null) {
+                configured.add(autoComplete.getIndexInfo());
+            }
+        }
+        for(final Map.Entry<IndexInfo, LocalIndexClient> indexClient : indexClients.entrySet()) {
+            if(!configured.contains(indexClient.getKey()) && indexClients.remove(indexClient.getKey(), indexClient.getValue())) {
+                indexClient.getValue().close();
+            }
+        }
+    }
+
+    /**
+     * Compiles the transformations and parses the XPaths of
+     * the configuration in the background, and if the configuration
+     * asks for it, also warms up the clients and their connections
+     */
+    private void prepare(final Configuration<? extends AutoComplete> configuration) {
+        final List<? extends AutoComplete> autoCompletes = configuration.getAutoCompletes();
+        if(autoCompletes != null) {
+            final Set<WarmUp.Step> steps = configuration.isWarmUp() ? EnumSet.allOf(WarmUp.Step.class) : EnumSet.of(WarmUp.Step.TRANSFORMATIONS, WarmUp.Step.XPATHS);
+            startWarmUp(autoCompletes, steps);
+        }
+    }
+
+    /**
+     * Starts warming up for the auto-completes on a background thread
+     *
+     * @param autoCompletes The configured auto-completes
+     * @param steps The steps of the warm-up to perform
+     *
+     * @return the warm-up
+     */
+    protected WarmUp startWarmUp(final List<? extends AutoComplete> autoCompletes, final Set<WarmUp.Step> steps) {
+        final WarmUp warmUp = new WarmUp(this, autoCompletes, steps);
+        final Thread thread = new Thread(warmUp, "tei-completer-warm-up");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return warmUp;
+    }
+
+    /**
+     * Get the index of the configured auto-completes
+     *
+     * The index is built once from the configuration's
+     * auto-completes, and rebuilt only if they change.
+     *
+     * @return the index of auto-completes
+     */
+    protected AutoCompleteIndex<AutoComplete> getAutoCompleteIndex() {
+        return getSnapshot().index;
+    }
+
+    private Snapshot getSnapshot() {
+        final List<? extends AutoComplete> autoCompletes = getConfiguration().getAutoCompletes();
+        return getSnapshot(autoCompletes == null ? Collections.emptyList() : autoCompletes);
+    }
+
+    /**
+     * Get the snapshot of the parsed XPaths of the auto-completes
+     *
+     * Snapshots are immutable, and are published without locking. If the
+     * auto-completes have changed, a new snapshot is built and replaces the
+     * previous snapshot. Concurrent callers may occasionally build
+     * the same snapshot, which is harmless.
+     *
+     * @param autoCompletes The configured auto-completes
+     *
+     * @return the snapshot for the auto-completes
+     */
+    Snapshot getSnapshot(final List<? extends AutoComplete> autoCompletes) {
+        Snapshot current = snapshot;
+        if(current == null || current.autoCompletes != autoCompletes) {
+            current = new Snapshot(autoCompletes);
+            snapshot = current;
+        }
+        return current;
+    }
+
+    /**
+     * An immutable snapshot of the configured auto-completes
+     * and their parsed XPaths
+     */
+    class Snapshot {
+        private final List<? extends AutoComplete> autoCompletes;
+        private final Map<AutoComplete, AutoCompleteXPaths> xPaths;
+        private final AutoCompleteIndex<AutoComplete> index;
+
+        Snapshot(final List<? extends AutoComplete> autoCompletes) {
+            this.autoCompletes = autoCompletes;
+
+            //NOTE: invalid XPaths are recorded as null, so that they are not parsed again
+            final Map<AutoComplete, AutoCompleteXPaths> xPaths = new HashMap<>();
+            for(final AutoComplete autoComplete : autoCompletes) {
+                xPaths.put(autoComplete, createXPaths(autoComplete));
+            }
+            this.xPaths = xPaths;
+
+            this.index = new AutoCompleteIndex<>(autoCompletes, autoComplete -> {
+                final AutoCompleteXPaths autoCompleteXPaths = xPaths.get(autoComplete);
+                return autoCompleteXPaths == null ? null : autoCompleteXPaths.getAttributeXPath();
+            });
+        }
+    }
+
     protected ClientFactory getClientFactory() {
         return JerseyClientFactory.getInstance();
     }
 
+    /**
+     * Will get a client which is suitable for the auto-complete
+     *
+     * An auto-complete which is configured with a local index gets
+     * a client for that index, the index is loaded only once and
+     * is shared, even when the configuration is reloaded, for as long
+     * as the index remains configured. Otherwise
+     * the client is that for the authentication type of the request.
+     *
+     * @param autoComplete The auto-complete that a client is needed for
+     *
+     * @return A client which provides the suggestions for the auto-complete
+     */
+    protected final Client getClient(final AutoComplete autoComplete) {
+        final IndexInfo indexInfo = autoComplete.getIndexInfo();
+        if(indexInfo != null) {
+            //NOTE: get before computeIfAbsent, so that finding an existing client takes no lock
+            final LocalIndexClient indexClient = indexClients.get(indexInfo);
+            if(indexClient != null) {
+                return indexClient;
+            }
+            return indexClients.computeIfAbsent(indexInfo, LocalIndexClient::new);
+        }
+
+        final RequestInfo requestInfo = autoComplete.getRequestInfo();
+        final Authentication.AuthenticationType authenticationType = requestInfo == null || requestInfo.getAuthentication() == null ? null : requestInfo.getAuthentication().getAuthenticationType();
+        return getClient(authenticationType);
+    }
+
     /**
      * Will get a client which is suitable for the authenticationType
      *
-     * Clients are reused pre-authentication type
+     * Clients are reused pre-authentication type, cache
+     * the suggestions for any request which is configured for caching,
+     * and coalesce identical concurrent requests
      *
      * @param authenticationType The type of authentication that a client is needed for
      *
@@ -198,12 +661,11 @@ public class TeiCompleter implements SchemaManagerFilter {
      */
     protected final Client getClient(final Authentication.AuthenticationType authenticationType) {
         final AuthenticationType cfAuthenticationType = asClientFactoryAuthenticationType(authenticationType);
-        Client client = clientsWithAuth.get(cfAuthenticationType);
-        if(client == null) {
-            client = getClientFactory().createClient(cfAuthenticationType);
-            clientsWithAuth.put(cfAuthenticationType, client);
+        final Client client = clientsWithAuth.get(cfAuthenticationType);
+        if(client != null) {
+            return client;
         }
-        return client;
+        return clientsWithAuth.computeIfAbsent(cfAuthenticationType, type -> new CachingClient(new CoalescingClient(getClientFactory().createClient(type))));
     }
 
     private AuthenticationType asClientFactoryAuthenticationType(@Nullable final Authentication.AuthenticationType authenticationType) {
@@ -247,17 +709,24 @@ public class TeiCompleter implements SchemaManagerFilter {
         }
     }
 
+    /**
+     * Get the parsed XPaths of an auto-complete
+     *
+     * The XPaths of the configured auto-completes are
+     * found in the current snapshot without locking, those of
+     * any other auto-complete are parsed on each call.
+     *
+     * @param autoComplete The auto-complete
+     *
+     * @return the XPaths, or null if the auto-complete's XPaths are invalid
+     */
+    @Nullable
     public AutoCompleteXPaths getXPaths(final AutoComplete autoComplete) {
-        synchronized(cachedAutoCompleteXPaths) {
-            AutoCompleteXPaths autoCompleteXPaths = cachedAutoCompleteXPaths.get(autoComplete);
-            if(autoCompleteXPaths == null) {
-                autoCompleteXPaths = createXPaths(autoComplete);
-                if(autoCompleteXPaths != null) {
-                    cachedAutoCompleteXPaths.put(autoComplete, autoCompleteXPaths);
-                }
-            }
-            return autoCompleteXPaths;
+        final Map<AutoComplete, AutoCompleteXPaths> xPaths = getSnapshot().xPaths;
+        if(xPaths.containsKey(autoComplete)) {
+            return xPaths.get(autoComplete);
         }
+        return createXPaths(autoComplete);
     }
 
     protected String getAutoCompleteAttributeXPath(final AutoComplete autoComplete) {
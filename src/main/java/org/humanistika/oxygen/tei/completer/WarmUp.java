@@ -0,0 +1,230 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer;
+
+import org.humanistika.oxygen.tei.completer.configuration.beans.Authentication;
+import org.humanistika.oxygen.tei.completer.configuration.beans.AutoComplete;
+import org.humanistika.oxygen.tei.completer.configuration.beans.IndexInfo;
+import org.humanistika.oxygen.tei.completer.configuration.beans.RequestInfo;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseAction;
+import org.humanistika.oxygen.tei.completer.remote.Client;
+import org.humanistika.oxygen.tei.completer.response.TransformationException;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prepares for the first auto-completion, so that
+ * it need not pay for the start-up costs of the plugin
+ *
+ * Each of the {@link Step}s is performed in turn, and the time
+ * taken by each is logged. A step which fails for one auto-complete
+ * is logged and the remaining auto-completes are still prepared.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class WarmUp implements Runnable {
+    private final static Logger LOGGER = LoggerFactory.getLogger(WarmUp.class);
+
+    public enum Step {
+        /**
+         * Create the client for each type of authentication
+         */
+        CLIENTS,
+
+        /**
+         * Open a connection to each distinct server
+         */
+        CONNECTIONS,
+
+        /**
+         * Compile the transformation of each response action
+         */
+        TRANSFORMATIONS,
+
+        /**
+         * Parse the XPath of each auto-complete
+         */
+        XPATHS
+    }
+
+    private final TeiCompleter teiCompleter;
+    private final List<? extends AutoComplete> autoCompletes;
+    private final Set<Step> steps;
+    private final Map<Step, Long> timings = Collections.synchronizedMap(new EnumMap<>(Step.class));
+
+    /**
+     * @param teiCompleter The TEI Completer to warm up
+     * @param autoCompletes The configured auto-completes
+     */
+    public WarmUp(final TeiCompleter teiCompleter, final List<? extends AutoComplete> autoCompletes) {
+        this(teiCompleter, autoCompletes, EnumSet.allOf(Step.class));
+    }
+
+    /**
+     * @param teiCompleter The TEI Completer to warm up
+     * @param autoCompletes The configured auto-completes
+     * @param steps The steps of the warm-up to perform
+     */
+    public WarmUp(final TeiCompleter teiCompleter, final List<? extends AutoComplete> autoCompletes, final Set<Step> steps) {
+        this.teiCompleter = teiCompleter;
+        this.autoCompletes = autoCompletes;
+        this.steps = steps;
+    }
+
+    @Override
+    public void run() {
+        final long start = System.nanoTime();
+
+        time(Step.CLIENTS, this::createClients);
+        time(Step.CONNECTIONS, this::openConnections);
+        time(Step.TRANSFORMATIONS, this::compileTransformations);
+        time(Step.XPATHS, this::parseXPaths);
+
+        LOGGER.info("Warm-up of {} auto-completes took {}ms: {}", autoCompletes.size(), toMillis(System.nanoTime() - start), getTimings());
+    }
+
+    /**
+     * Get the time taken by each step of the warm-up
+     *
+     * @return the number of milliseconds taken by each step which has completed
+     */
+    public Map<Step, Long> getTimings() {
+        synchronized(timings) {
+            return new EnumMap<>(timings);
+        }
+    }
+
+    private void time(final Step step, final Runnable action) {
+        if(!steps.contains(step) || Thread.currentThread().isInterrupted()) {
+            return;
+        }
+
+        final long start = System.nanoTime();
+        action.run();
+        final long millis = toMillis(System.nanoTime() - start);
+        timings.put(step, millis);
+        LOGGER.debug("Warm-up step {} took {}ms", step, millis);
+    }
+
+    private void createClients() {
+        for(final AutoComplete autoComplete : autoCompletes) {
+            getClient(autoComplete);
+        }
+    }
+
+    private void openConnections() {
+        // one connection per server and type of authentication
+        final Map<String, AutoComplete> servers = new LinkedHashMap<>();
+        // and one load of each local index
+        final Map<Path, AutoComplete> indexes = new LinkedHashMap<>();
+        for(final AutoComplete autoComplete : autoCompletes) {
+            final IndexInfo indexInfo = autoComplete.getIndexInfo();
+            if(indexInfo != null) {
+                indexes.putIfAbsent(indexInfo.getFile(), autoComplete);
+                continue;
+            }
+
+            final RequestInfo requestInfo = autoComplete.getRequestInfo();
+            if(requestInfo == null) {
+                continue;
+            }
+            try {
+                final URL url = requestInfo.getUrl(null);
+                final String server = url.getProtocol() + "://" + url.getAuthority() + " " + getAuthenticationType(requestInfo);
+                servers.putIfAbsent(server, autoComplete);
+            } catch(final MalformedURLException e) {
+                LOGGER.warn("Unable to warm-up connection for: {}: {}", requestInfo.getUrlTemplate(), e.getMessage());
+            }
+        }
+
+        for(final AutoComplete autoComplete : servers.values()) {
+            if(Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                getClient(autoComplete).warmUpConnection(autoComplete.getRequestInfo());
+            } catch(final IOException | RuntimeException e) {
+                LOGGER.warn("Unable to warm-up connection for: {}: {}", autoComplete.getRequestInfo().getUrlTemplate(), e.getMessage());
+            }
+        }
+
+        for(final AutoComplete autoComplete : indexes.values()) {
+            if(Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                getClient(autoComplete).warmUpConnection(null);
+            } catch(final IOException | RuntimeException e) {
+                LOGGER.warn("Unable to warm-up index: {}: {}", autoComplete.getIndexInfo().getFile(), e.getMessage());
+            }
+        }
+    }
+
+    private void compileTransformations() {
+        final Set<Path> transformations = new HashSet<>();
+        for(final AutoComplete autoComplete : autoCompletes) {
+            final ResponseAction responseAction = autoComplete.getResponseAction();
+            if(responseAction == null || responseAction.getTransformation() == null || !transformations.add(responseAction.getTransformation())) {
+                continue;
+            }
+            try {
+                getClient(autoComplete).warmUpResponseAction(responseAction);
+            } catch(final IOException | TransformationException | RuntimeException e) {
+                LOGGER.error("Unable to compile transformation: {}: {}", responseAction.getTransformation(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void parseXPaths() {
+        teiCompleter.getSnapshot(autoCompletes);
+    }
+
+    private Client getClient(final AutoComplete autoComplete) {
+        return teiCompleter.getClient(autoComplete);
+    }
+
+    @Nullable
+    private static Authentication.AuthenticationType getAuthenticationType(@Nullable final RequestInfo requestInfo) {
+        if(requestInfo == null || requestInfo.getAuthentication() == null) {
+            return null;
+        }
+        return requestInfo.getAuthentication().getAuthenticationType();
+    }
+
+    private static long toMillis(final long nanos) {
+        return nanos / 1_000_000;
+    }
+}
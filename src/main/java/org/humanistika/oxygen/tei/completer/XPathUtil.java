@@ -25,9 +25,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.PrintStream;
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 
@@ -40,62 +39,134 @@ public class XPathUtil {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(XPathUtil.class);
 
+    private final static int MAX_PARSED_XPATHS = 1000;
+    private final static BoundedMemo<String, Expr> parsedXPaths = new BoundedMemo<>(MAX_PARSED_XPATHS);
+
+    /**
+     * Parses an XPath expression
+     *
+     * Parsed expressions are memoized, so repeatedly parsing
+     * the same XPath only costs a lookup.
+     *
+     * @param xpath The XPath expression
+     *
+     * @return The parsed expression
+     */
     public static Expr parseXPath(final String xpath) {
+        return parsedXPaths.computeIfAbsent(xpath, XPathUtil::parse);
+    }
+
+    /**
+     * Get the memo of parsed XPath expressions,
+     * for example to obtain its statistics
+     *
+     * @return the memo of parsed XPath expressions
+     */
+    public static BoundedMemo<String, Expr> getParsedXPaths() {
+        return parsedXPaths;
+    }
 
-        ByteArrayOutputStream osErr = null;
-        PrintStream err = null;
-        ByteArrayOutputStream osOut = null;
-        PrintStream out = null;
+    private static Expr parse(final String xpath) {
+        return parseXPath(xpath, LOGGING_DIAGNOSTICS);
+    }
 
+    /**
+     * Parses an XPath expression without memoization
+     *
+     * Diagnostics from the parser are captured into reusable per-thread
+     * buffers, and only converted to strings and reported if there are any,
+     * so a successful parse allocates little more than the AST.
+     *
+     * @param xpath The XPath expression
+     * @param diagnostics Receives any diagnostics from the parser
+     *
+     * @return The parsed expression
+     */
+    public static Expr parseXPath(final String xpath, final ParseDiagnostics diagnostics) {
+        final DiagnosticsCapture capture = diagnosticsCapture.get();
+        capture.reset();
         try {
-            osErr = new ByteArrayOutputStream();
-            err = new PrintStream(osErr, true, "UTF-8");
+            return com.evolvedbinary.xpath.parser.XPathUtil.parseXPath(xpath, diagnostics.isDebugEnabled() ? capture.out : null, capture.err);
+        } finally {
+            capture.report(diagnostics);
+        }
+    }
 
-            if (LOGGER.isDebugEnabled()) {
-                osOut = new ByteArrayOutputStream();
-                out = new PrintStream(osOut, true, "UTF-8");
-            }
+    /**
+     * Receives diagnostic messages from the XPath parser
+     */
+    public interface ParseDiagnostics {
+        void error(String message);
 
-            final Expr result = com.evolvedbinary.xpath.parser.XPathUtil.parseXPath(xpath, out, err);
+        default boolean isDebugEnabled() {
+            return false;
+        }
 
-            final String strOut = asString(out, osOut);
-            if(!strOut.isEmpty()) {
-                LOGGER.debug(strOut);
-            }
+        default void debug(final String message) {
+        }
+    }
 
-            final String strErr = asString(err, osErr);
-            if(!strErr.isEmpty()) {
-                LOGGER.error(strErr);
-            }
+    private final static ParseDiagnostics LOGGING_DIAGNOSTICS = new ParseDiagnostics() {
+        @Override
+        public void error(final String message) {
+            LOGGER.error(message);
+        }
 
-            return result;
-        } catch (final UnsupportedEncodingException e) {
-            LOGGER.error(e.getMessage(), e);
-            return null;
-        } finally {
-            close(out, osOut);
-            close(err, osErr);
+        @Override
+        public boolean isDebugEnabled() {
+            return LOGGER.isDebugEnabled();
         }
-    }
 
-    private static String asString(final PrintStream ps, ByteArrayOutputStream os) throws UnsupportedEncodingException {
-        if(ps != null) {
-            ps.flush();
-            return os.toString("UTF-8");
-        } else {
-            return "";
+        @Override
+        public void debug(final String message) {
+            LOGGER.debug(message);
         }
-    }
+    };
+
+    private final static ThreadLocal<DiagnosticsCapture> diagnosticsCapture = ThreadLocal.withInitial(DiagnosticsCapture::new);
 
-    private static void close(final PrintStream ps, final ByteArrayOutputStream os) {
-        if(ps != null) {
-            ps.close();
+    /**
+     * Reusable buffers and streams for capturing the
+     * output of the XPath parser on a single thread
+     */
+    private static class DiagnosticsCapture {
+        private final static int MAX_RETAINED_BUFFER = 64 * 1024;
+
+        private ByteArrayOutputStream osOut;
+        private ByteArrayOutputStream osErr;
+        private PrintStream out;
+        private PrintStream err;
+
+        DiagnosticsCapture() {
+            allocate();
+        }
+
+        private void allocate() {
+            this.osOut = new ByteArrayOutputStream();
+            this.out = new PrintStream(osOut, false, StandardCharsets.UTF_8);
+            this.osErr = new ByteArrayOutputStream();
+            this.err = new PrintStream(osErr, false, StandardCharsets.UTF_8);
         }
-        if(os != null) {
-            try {
-                os.close();
-            } catch (final IOException e) {
-                LOGGER.error(e.getMessage(), e);
+
+        void reset() {
+            // don't hold on to the memory from a pathological parse
+            if(osOut.size() > MAX_RETAINED_BUFFER || osErr.size() > MAX_RETAINED_BUFFER) {
+                allocate();
+            } else {
+                osOut.reset();
+                osErr.reset();
+            }
+        }
+
+        void report(final ParseDiagnostics diagnostics) {
+            out.flush();
+            if(osOut.size() > 0) {
+                diagnostics.debug(osOut.toString(StandardCharsets.UTF_8));
+            }
+
+            err.flush();
+            if(osErr.size() > 0) {
+                diagnostics.error(osErr.toString(StandardCharsets.UTF_8));
             }
         }
     }
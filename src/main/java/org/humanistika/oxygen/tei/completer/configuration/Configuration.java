@@ -32,4 +32,53 @@ import java.util.List;
  */
 public interface Configuration<T extends AutoComplete> {
     List<T> getAutoCompletes();
+
+    /**
+     * Get how suggestions should be found when
+     * more than one auto-complete matches
+     *
+     * @return the match mode
+     */
+    MatchMode getMatchMode();
+
+    /**
+     * Get the quiet period after typing in the
+     * new suggestion dialog before a search is made
+     *
+     * @return the delay in milliseconds
+     */
+    long getLiveSearchDelay();
+
+    /**
+     * Determines if the plugin should prepare for the
+     * first auto-completion in the background, once
+     * the configuration has been loaded
+     *
+     * @return true if warm-up is enabled
+     */
+    boolean isWarmUp();
+
+    /**
+     * Register a listener to be called after the configuration
+     * has been reloaded, for example because its file was changed
+     *
+     * By default the configuration is never reloaded, and so the
+     * listener is never called.
+     *
+     * @param listener The listener
+     */
+    default void addReloadListener(final Runnable listener) {
+    }
+
+    enum MatchMode {
+        /**
+         * Only the first matching auto-complete is used
+         */
+        FIRST,
+
+        /**
+         * All matching auto-completes are used, and their suggestions merged
+         */
+        ALL
+    }
 }
\ No newline at end of file
@@ -37,10 +37,31 @@ public class AutoComplete {
     private final String attribute;
     @Nullable private final Dependent dependent;
     private final Selection selection;
-    private final RequestInfo requestInfo;
+    @Nullable private final RequestInfo requestInfo;
     @Nullable private final ResponseAction responseAction;
+    @Nullable private final String label;
+    @Nullable private final IndexInfo indexInfo;
 
     public AutoComplete(final Map<String, String> namespaceBindings, final String context, final String attribute, final Dependent dependent, final Selection selection, final RequestInfo requestInfo, final ResponseAction responseAction) {
+        this(namespaceBindings, context, attribute, dependent, selection, requestInfo, responseAction, null);
+    }
+
+    public AutoComplete(final Map<String, String> namespaceBindings, final String context, final String attribute, final Dependent dependent, final Selection selection, final RequestInfo requestInfo, final ResponseAction responseAction, final String label) {
+        this(namespaceBindings, context, attribute, dependent, selection, requestInfo, responseAction, label, null);
+    }
+
+    /**
+     * @param namespaceBindings The namespace bindings for the XPaths
+     * @param context The XPath of the context element
+     * @param attribute The attribute which triggers auto-complete
+     * @param dependent The dependent, or null
+     * @param selection The selection
+     * @param requestInfo The request to make to the server, or null if the suggestions are found in a local index
+     * @param responseAction The action to take upon the response from the server, or null
+     * @param label A human-readable label for the source of the suggestions, or null
+     * @param indexInfo The local index in which to find the suggestions, or null if a request is made to the server
+     */
+    public AutoComplete(final Map<String, String> namespaceBindings, final String context, final String attribute, final Dependent dependent, final Selection selection, @Nullable final RequestInfo requestInfo, final ResponseAction responseAction, final String label, @Nullable final IndexInfo indexInfo) {
         this.namespaceBindings = namespaceBindings;
         this.context = context;
         this.attribute = attribute;
@@ -48,6 +69,8 @@ public class AutoComplete {
         this.selection = selection;
         this.requestInfo = requestInfo;
         this.responseAction = responseAction;
+        this.label = label;
+        this.indexInfo = indexInfo;
     }
 
     public Map<String, String> getNamespaceBindings() {
@@ -71,6 +94,12 @@ public class AutoComplete {
         return selection;
     }
 
+    /**
+     * The request to make to the server for suggestions
+     *
+     * @return The request, or null if the suggestions are found in a local index
+     */
+    @Nullable
     public RequestInfo getRequestInfo() {
         return requestInfo;
     }
@@ -80,5 +109,25 @@ public class AutoComplete {
         return responseAction;
     }
 
+    /**
+     * A human-readable label for the source of the suggestions
+     *
+     * @return The label, or null if there is no label
+     */
+    @Nullable
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * The local index in which to find suggestions
+     *
+     * @return The local index, or null if a request is made to the server for suggestions
+     */
+    @Nullable
+    public IndexInfo getIndexInfo() {
+        return indexInfo;
+    }
+
 
 }
@@ -0,0 +1,85 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.configuration.beans;
+
+import javax.annotation.Nullable;
+
+/**
+ * Configuration details for caching the suggestions
+ * received in response to a request
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class CacheInfo {
+    private final long timeToLive;
+    private final boolean prefixMonotonic;
+    @Nullable private final Long resultLimit;
+
+    /**
+     * @param timeToLive The number of seconds that cached suggestions are valid for
+     */
+    public CacheInfo(final long timeToLive) {
+        this(timeToLive, false, null);
+    }
+
+    /**
+     * @param timeToLive The number of seconds that cached suggestions are valid for
+     * @param prefixMonotonic true if the suggestions for a selection are always a subset of those for a shorter prefix of the selection
+     * @param resultLimit The maximum number of suggestions that the server returns, or null if unknown
+     */
+    public CacheInfo(final long timeToLive, final boolean prefixMonotonic, @Nullable final Long resultLimit) {
+        this.timeToLive = timeToLive;
+        this.prefixMonotonic = prefixMonotonic;
+        this.resultLimit = resultLimit;
+    }
+
+    /**
+     * Get the time to live of cached suggestions
+     *
+     * @return The number of seconds that cached suggestions are valid for
+     */
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Determines if the server performs prefix matching
+     * of the selection, and so suggestions for a selection
+     * may be found by filtering the suggestions of a shorter
+     * prefix of the selection
+     *
+     * @return true if the suggestions are prefix monotonic
+     */
+    public boolean isPrefixMonotonic() {
+        return prefixMonotonic;
+    }
+
+    /**
+     * Get the maximum number of suggestions that the server returns
+     *
+     * @return The result limit, or null if unknown
+     */
+    @Nullable
+    public Long getResultLimit() {
+        return resultLimit;
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.configuration.beans;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Configuration details for a local index of
+ * suggestions, which is loaded from a bulk export
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class IndexInfo {
+    public enum Format {
+        XML,
+        JSON,
+        CSV;
+
+        /**
+         * Determine the format of a file from its extension
+         *
+         * @param file The file
+         *
+         * @return JSON or CSV for a {@code .json} or {@code .csv} file, otherwise XML
+         */
+        public static Format of(final Path file) {
+            final String fileName = file.getFileName().toString().toLowerCase();
+            if(fileName.endsWith(".json")) {
+                return JSON;
+            } else if(fileName.endsWith(".csv")) {
+                return CSV;
+            } else {
+                return XML;
+            }
+        }
+    }
+
+    public enum Match {
+        PREFIX,
+        EXACT
+    }
+
+    public enum Storage {
+        MEMORY,
+        MAPPED
+    }
+
+    private final Path file;
+    private final Format format;
+    private final Match match;
+    private final boolean ignoreCase;
+    private final boolean ignoreDiacritics;
+    private final long resultLimit;
+    private final Storage storage;
+
+    /**
+     * @param file The file containing the bulk export of suggestions
+     * @param format The format of the file
+     * @param match How the selection is matched against the suggestions
+     * @param ignoreCase true if the selection and dependent are matched case-insensitively
+     * @param ignoreDiacritics true if the selection and dependent are matched ignoring diacritics
+     * @param resultLimit The maximum number of suggestions to find for a selection
+     */
+    public IndexInfo(final Path file, final Format format, final Match match, final boolean ignoreCase, final boolean ignoreDiacritics, final long resultLimit) {
+        this(file, format, match, ignoreCase, ignoreDiacritics, resultLimit, Storage.MEMORY);
+    }
+
+    /**
+     * @param file The file containing the bulk export of suggestions
+     * @param format The format of the file
+     * @param match How the selection is matched against the suggestions
+     * @param ignoreCase true if the selection and dependent are matched case-insensitively
+     * @param ignoreDiacritics true if the selection and dependent are matched ignoring diacritics
+     * @param resultLimit The maximum number of suggestions to find for a selection
+     * @param storage Where the index is held whilst it is used
+     */
+    public IndexInfo(final Path file, final Format format, final Match match, final boolean ignoreCase, final boolean ignoreDiacritics, final long resultLimit, final Storage storage) {
+        this.file = file;
+        this.format = format;
+        this.match = match;
+        this.ignoreCase = ignoreCase;
+        this.ignoreDiacritics = ignoreDiacritics;
+        this.resultLimit = resultLimit;
+        this.storage = storage;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public Match getMatch() {
+        return match;
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    public boolean isIgnoreDiacritics() {
+        return ignoreDiacritics;
+    }
+
+    public long getResultLimit() {
+        return resultLimit;
+    }
+
+    public Storage getStorage() {
+        return storage;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if(this == obj) {
+            return true;
+        }
+        if(!(obj instanceof IndexInfo)) {
+            return false;
+        }
+        final IndexInfo other = (IndexInfo)obj;
+        return file.equals(other.file)
+                && format == other.format
+                && match == other.match
+                && ignoreCase == other.ignoreCase
+                && ignoreDiacritics == other.ignoreDiacritics
+                && resultLimit == other.resultLimit
+                && storage == other.storage;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(file, format, match, ignoreCase, ignoreDiacritics, resultLimit, storage);
+    }
+}
@@ -21,10 +21,10 @@ package org.humanistika.oxygen.tei.completer.configuration.beans;
 
 import javax.annotation.Nullable;
 
-import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.net.URLEncoder;
 import java.util.Map;
 
 /**
@@ -60,32 +60,109 @@ public class RequestInfo {
         }
     }
 
-    private final String url;
+    private final UrlTemplate url;
     @Nullable private final Authentication authentication;
+    @Nullable private final CacheInfo cacheInfo;
+    @Nullable private final Long timeout;
+    @Nullable private final Long connectTimeout;
+    @Nullable private final Long readTimeout;
 
     public RequestInfo(final String url, final Authentication authentication) {
-        this.url = url;
+        this(url, authentication, null, null);
+    }
+
+    public RequestInfo(final String url, final Authentication authentication, final CacheInfo cacheInfo) {
+        this(url, authentication, cacheInfo, null);
+    }
+
+    public RequestInfo(final String url, final Authentication authentication, final CacheInfo cacheInfo, final Long timeout) {
+        this(url, authentication, cacheInfo, timeout, null, null);
+    }
+
+    /**
+     * @param url The URL template
+     * @param authentication The authentication details, or null
+     * @param cacheInfo The caching details, or null
+     * @param timeout The deadline in milliseconds for the request, or null
+     * @param connectTimeout The maximum number of milliseconds to wait for a connection to the server, or null to use the timeout
+     * @param readTimeout The maximum number of milliseconds to wait for data from the server, or null to use the timeout
+     */
+    public RequestInfo(final String url, final Authentication authentication, final CacheInfo cacheInfo, final Long timeout, final Long connectTimeout, final Long readTimeout) {
+        this.url = UrlTemplate.parse(url);
         this.authentication = authentication;
+        this.cacheInfo = cacheInfo;
+        this.timeout = timeout;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Get the URL template, i.e. the URL before any
+     * substitutions have been made
+     *
+     * @return The URL template
+     */
+    public String getUrlTemplate() {
+        return url.getTemplate();
     }
 
     public URL getUrl(@Nullable final Map<UrlVar, String> substitutions) throws MalformedURLException {
-        String expandedUrl = url;
-        if(substitutions != null) {
-            for (final Map.Entry<UrlVar, String> substitution : substitutions.entrySet()) {
-                final String encodedValue;
-                try {
-                    encodedValue = URLEncoder.encode(substitution.getValue(), "UTF-8");
-                } catch (final UnsupportedEncodingException e) {
-                    throw new MalformedURLException(e.getMessage());
-                }
-                expandedUrl = expandedUrl.replace(substitution.getKey().var(), encodedValue);
-            }
-        }
-        return new URL(expandedUrl);
+        return new URL(url.expand(substitutions));
+    }
+
+    /**
+     * Get the URI for a request, by substituting the
+     * selection and dependent into the URL template
+     *
+     * @param selection The selection
+     * @param dependent The dependent, or null
+     *
+     * @return The URI for the request
+     *
+     * @throws URISyntaxException If the expanded URL is not a valid URI
+     */
+    public URI getUri(final String selection, @Nullable final String dependent) throws URISyntaxException {
+        return new URI(url.expand(selection, dependent));
     }
 
     @Nullable
     public Authentication getAuthentication() {
         return authentication;
     }
+
+    @Nullable
+    public CacheInfo getCacheInfo() {
+        return cacheInfo;
+    }
+
+    /**
+     * Get the deadline for the request
+     *
+     * @return The maximum number of milliseconds to wait for a response, or null if there is no deadline
+     */
+    @Nullable
+    public Long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Get the maximum time to wait whilst connecting to the server
+     *
+     * @return The maximum number of milliseconds to wait for a connection, or null if not set
+     */
+    @Nullable
+    public Long getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Get the maximum time to wait for data from the server
+     * once connected
+     *
+     * @return The maximum number of milliseconds to wait for data, or null if not set
+     */
+    @Nullable
+    public Long getReadTimeout() {
+        return readTimeout;
+    }
 }
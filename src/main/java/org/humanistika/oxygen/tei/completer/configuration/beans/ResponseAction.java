@@ -19,6 +19,7 @@
  */
 package org.humanistika.oxygen.tei.completer.configuration.beans;
 
+import javax.annotation.Nullable;
 import java.nio.file.Path;
 
 /**
@@ -29,18 +30,36 @@ import java.nio.file.Path;
  * @serial 20160126
  */
 public class ResponseAction {
-    private final Path transformation;
+    @Nullable private final Path transformation;
+    @Nullable private final ResponseMapping mapping;
 
     public ResponseAction(final Path transformation) {
         this.transformation = transformation;
+        this.mapping = null;
+    }
+
+    public ResponseAction(final ResponseMapping mapping) {
+        this.transformation = null;
+        this.mapping = mapping;
     }
 
     /**
      * Path to a transformation which should be applied
      *
-     * @return The path to the transformation
+     * @return The path to the transformation, or null if a mapping should be applied instead
      */
+    @Nullable
     public Path getTransformation() {
         return transformation;
     }
+
+    /**
+     * A declarative mapping which should be applied
+     *
+     * @return The mapping, or null if a transformation should be applied instead
+     */
+    @Nullable
+    public ResponseMapping getMapping() {
+        return mapping;
+    }
 }
@@ -0,0 +1,95 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.configuration.beans;
+
+import javax.annotation.Nullable;
+import java.util.Objects;
+
+/**
+ * Configuration details for a declarative mapping of
+ * the items in a response to suggestions
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class ResponseMapping {
+    private final String items;
+    private final String value;
+    @Nullable private final String description;
+
+    /**
+     * @param items The path to the items in the response
+     * @param value The path of the value of a suggestion relative to an item
+     * @param description The path of the description of a suggestion relative to an item, or null
+     */
+    public ResponseMapping(final String items, final String value, @Nullable final String description) {
+        this.items = items;
+        this.value = value;
+        this.description = description;
+    }
+
+    /**
+     * Get the path to the items in the response
+     *
+     * @return The path to the items
+     */
+    public String getItems() {
+        return items;
+    }
+
+    /**
+     * Get the path of the value of a suggestion
+     *
+     * @return The path of the value relative to an item
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Get the path of the description of a suggestion
+     *
+     * @return The path of the description relative to an item, or null
+     */
+    @Nullable
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if(this == obj) {
+            return true;
+        }
+        if(!(obj instanceof ResponseMapping)) {
+            return false;
+        }
+        final ResponseMapping other = (ResponseMapping)obj;
+        return items.equals(other.items)
+                && value.equals(other.value)
+                && Objects.equals(description, other.description);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(items, value, description);
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.configuration.beans;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A URL template which has been parsed into a list of
+ * literal and variable segments
+ *
+ * The template is parsed once when the configuration is loaded,
+ * and is then expanded for each request in a single pass into a
+ * {@link StringBuilder}. The values of variables are encoded as
+ * by {@link java.net.URLEncoder} with UTF-8. A variable which has no
+ * value is left in the expanded URL as it appears in the template.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+class UrlTemplate {
+    private final static char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final String template;
+    private final Segment[] segments;
+
+    private UrlTemplate(final String template, final Segment[] segments) {
+        this.template = template;
+        this.segments = segments;
+    }
+
+    /**
+     * Parse a URL template
+     *
+     * @param template The URL template
+     *
+     * @return The parsed URL template
+     */
+    static UrlTemplate parse(final String template) {
+        final List<Segment> segments = new ArrayList<>();
+        int literalStart = 0;
+        int idx = template.indexOf('$');
+        while(idx > -1) {
+            final RequestInfo.UrlVar variable = variableAt(template, idx);
+            if(variable == null) {
+                idx = template.indexOf('$', idx + 1);
+            } else {
+                if(idx > literalStart) {
+                    segments.add(new Segment(template.substring(literalStart, idx), null));
+                }
+                final String var = variable.var();
+                segments.add(new Segment(var, variable));
+                literalStart = idx + var.length();
+                idx = template.indexOf('$', literalStart);
+            }
+        }
+        if(literalStart < template.length()) {
+            segments.add(new Segment(template.substring(literalStart), null));
+        }
+        return new UrlTemplate(template, segments.toArray(new Segment[0]));
+    }
+
+    @Nullable
+    private static RequestInfo.UrlVar variableAt(final String template, final int idx) {
+        for(final RequestInfo.UrlVar variable : RequestInfo.UrlVar.values()) {
+            if(template.startsWith(variable.var(), idx)) {
+                return variable;
+            }
+        }
+        return null;
+    }
+
+    String getTemplate() {
+        return template;
+    }
+
+    /**
+     * Expand the template
+     *
+     * @param substitutions The values of the variables, or null
+     *
+     * @return The expanded URL
+     */
+    String expand(@Nullable final Map<RequestInfo.UrlVar, String> substitutions) {
+        final StringBuilder builder = new StringBuilder(template.length() + 32);
+        for(final Segment segment : segments) {
+            if(segment.variable == null || substitutions == null) {
+                builder.append(segment.text);
+            } else {
+                append(builder, segment, substitutions.get(segment.variable));
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Expand the template with the values of the
+     * selection and dependent variables
+     *
+     * @param selection The value of the selection, or null
+     * @param dependent The value of the dependent, or null
+     *
+     * @return The expanded URL
+     */
+    String expand(@Nullable final String selection, @Nullable final String dependent) {
+        final StringBuilder builder = new StringBuilder(template.length() + 32);
+        for(final Segment segment : segments) {
+            if(segment.variable == RequestInfo.UrlVar.SELECTION) {
+                append(builder, segment, selection);
+            } else if(segment.variable == RequestInfo.UrlVar.DEPENDENT) {
+                append(builder, segment, dependent);
+            } else {
+                builder.append(segment.text);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void append(final StringBuilder builder, final Segment segment, @Nullable final String value) {
+        if(value == null) {
+            builder.append(segment.text);
+        } else {
+            appendEncoded(builder, value);
+        }
+    }
+
+    /**
+     * Appends the application/x-www-form-urlencoded
+     * form of a value, the same as {@link java.net.URLEncoder}
+     * would produce with UTF-8, but without intermediate strings
+     */
+    static void appendEncoded(final StringBuilder builder, final String value) {
+        int i = 0;
+        while(i < value.length()) {
+            final int c = value.codePointAt(i);
+            i += Character.charCount(c);
+
+            if((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '.' || c == '-' || c == '*' || c == '_') {
+                builder.append((char)c);
+            } else if(c == ' ') {
+                builder.append('+');
+            } else if(c < 0x80) {
+                appendByte(builder, c);
+            } else if(c < 0x800) {
+                appendByte(builder, 0xC0 | (c >> 6));
+                appendByte(builder, 0x80 | (c & 0x3F));
+            } else if(c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                //an unpaired surrogate cannot be encoded as UTF-8, and is replaced
+                appendByte(builder, '?');
+            } else if(c < 0x10000) {
+                appendByte(builder, 0xE0 | (c >> 12));
+                appendByte(builder, 0x80 | ((c >> 6) & 0x3F));
+                appendByte(builder, 0x80 | (c & 0x3F));
+            } else {
+                appendByte(builder, 0xF0 | (c >> 18));
+                appendByte(builder, 0x80 | ((c >> 12) & 0x3F));
+                appendByte(builder, 0x80 | ((c >> 6) & 0x3F));
+                appendByte(builder, 0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static void appendByte(final StringBuilder builder, final int b) {
+        builder.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+    }
+
+    /**
+     * A literal part of the template, or a variable
+     */
+    private static class Segment {
+        /**
+         * The literal text, or for a variable
+         * its name as it appears in the template
+         */
+        final String text;
+        @Nullable final RequestInfo.UrlVar variable;
+
+        Segment(final String text, @Nullable final RequestInfo.UrlVar variable) {
+            this.text = text;
+            this.variable = variable;
+        }
+    }
+}
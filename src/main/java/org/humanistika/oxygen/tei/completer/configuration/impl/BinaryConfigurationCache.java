@@ -0,0 +1,396 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.configuration.impl;
+
+import org.humanistika.oxygen.tei.completer.configuration.Configuration;
+import org.humanistika.oxygen.tei.completer.configuration.beans.*;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * A compact binary copy of the expanded configuration, kept
+ * next to the XML configuration file that it was expanded from
+ *
+ * Reading the cache avoids creating a JAXB context, unmarshalling
+ * the XML and resolving the servers, authentication and URLs. The
+ * cache records a checksum of the XML configuration file, and is
+ * only used whilst the checksum of the file still matches.
+ *
+ * The cache is disposable, if it cannot be read for any reason
+ * then the XML configuration file is loaded instead.
+ *
+ * A configuration which contains authentication is never cached, as
+ * the credentials, which are also expanded into the URLs, would
+ * otherwise be written in plain text outside of the XML configuration file.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+class BinaryConfigurationCache {
+    private final static Logger LOGGER = LoggerFactory.getLogger(BinaryConfigurationCache.class);
+
+    private final static int MAGIC = 0x54454943;  // "TEIC"
+    private final static int FORMAT_VERSION = 4;
+
+    private final Path configFile;
+    private final Path cacheFile;
+
+    /**
+     * @param configFile The XML configuration file
+     */
+    BinaryConfigurationCache(final Path configFile) {
+        this.configFile = configFile.toAbsolutePath();
+        this.cacheFile = this.configFile.resolveSibling(this.configFile.getFileName() + ".cache");
+    }
+
+    Path getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * Calculate the checksum of the XML configuration file
+     *
+     * @return the checksum, or null if the file cannot be read
+     */
+    @Nullable
+    Long checksum() {
+        if(Files.notExists(configFile)) {
+            return null;
+        }
+
+        try {
+            final CRC32C crc = new CRC32C();
+            crc.update(Files.readAllBytes(configFile));
+            return crc.getValue();
+        } catch(final IOException e) {
+            LOGGER.warn("Unable to calculate checksum of configuration file: {}: {}", configFile, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Read the cached configuration
+     *
+     * @param checksum The current checksum of the XML configuration file
+     *
+     * @return the cached configuration, or null if there is no cache or it is stale or unreadable
+     */
+    @Nullable
+    XmlConfiguration.Loaded<AutoComplete> read(final long checksum) {
+        if(Files.notExists(cacheFile)) {
+            return null;
+        }
+
+        try(final DataInputStream is = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if(is.readInt() != MAGIC
+                    || is.readInt() != FORMAT_VERSION
+                    || is.readLong() != checksum
+                    || !configFile.toString().equals(readString(is))) {
+                LOGGER.debug("Configuration cache is stale: {}", cacheFile);
+                return null;
+            }
+
+            final Configuration.MatchMode matchMode = Configuration.MatchMode.valueOf(readString(is));
+            final long liveSearchDelay = is.readLong();
+            final boolean warmUp = is.readBoolean();
+
+            final int count = is.readInt();
+            final List<AutoComplete> autoCompletes = new ArrayList<>(count);
+            for(int i = 0; i < count; i++) {
+                autoCompletes.add(readAutoComplete(is));
+            }
+
+            return new XmlConfiguration.Loaded<>(autoCompletes, matchMode, liveSearchDelay, warmUp);
+        } catch(final IOException | RuntimeException e) {
+            LOGGER.warn("Unable to read configuration cache: {}: {}", cacheFile, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write the configuration to the cache
+     *
+     * The cache is written to a temporary file which then replaces
+     * the cache, so that a partially written cache is never read.
+     *
+     * If the configuration contains authentication then it is not
+     * written, and any previous cache is deleted instead.
+     *
+     * @param checksum The checksum of the XML configuration file that the configuration was loaded from
+     * @param loaded The configuration
+     *
+     * @return true if the configuration was written, false if it contains authentication
+     */
+    boolean write(final long checksum, final XmlConfiguration.Loaded<? extends AutoComplete> loaded) throws IOException {
+        if(hasAuthentication(loaded)) {
+            Files.deleteIfExists(cacheFile);
+            return false;
+        }
+
+        final Path tmpFile = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+        try {
+            try(final DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+                os.writeInt(MAGIC);
+                os.writeInt(FORMAT_VERSION);
+                os.writeLong(checksum);
+                writeString(os, configFile.toString());
+
+                writeString(os, loaded.matchMode.name());
+                os.writeLong(loaded.liveSearchDelay);
+                os.writeBoolean(loaded.warmUp);
+
+                os.writeInt(loaded.autoCompletes.size());
+                for(final AutoComplete autoComplete : loaded.autoCompletes) {
+                    writeAutoComplete(os, autoComplete);
+                }
+            }
+
+            try {
+                Files.move(tmpFile, cacheFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch(final AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+        return true;
+    }
+
+    private static boolean hasAuthentication(final XmlConfiguration.Loaded<? extends AutoComplete> loaded) {
+        for(final AutoComplete autoComplete : loaded.autoCompletes) {
+            if(autoComplete.getRequestInfo() != null && autoComplete.getRequestInfo().getAuthentication() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeAutoComplete(final DataOutputStream os, final AutoComplete autoComplete) throws IOException {
+        final Map<String, String> namespaceBindings = autoComplete.getNamespaceBindings();
+        os.writeInt(namespaceBindings.size());
+        for(final Map.Entry<String, String> binding : namespaceBindings.entrySet()) {
+            writeString(os, binding.getKey());
+            writeString(os, binding.getValue());
+        }
+
+        writeString(os, autoComplete.getContext());
+        writeString(os, autoComplete.getAttribute());
+
+        final Dependent dependent = autoComplete.getDependent();
+        os.writeBoolean(dependent != null);
+        if(dependent != null) {
+            writeString(os, dependent.getDefault());
+            writeString(os, dependent.getAttribute());
+            writeString(os, dependent.getLabel());
+        }
+
+        final Selection selection = autoComplete.getSelection();
+        os.writeBoolean(selection != null);
+        if(selection != null) {
+            writeString(os, selection.getDefault());
+            writeString(os, selection.getLabel());
+        }
+
+        final RequestInfo requestInfo = autoComplete.getRequestInfo();
+        os.writeBoolean(requestInfo != null);
+        if(requestInfo != null) {
+            writeRequestInfo(os, requestInfo);
+        }
+
+        writeResponseAction(os, autoComplete.getResponseAction());
+        writeString(os, autoComplete.getLabel());
+
+        final IndexInfo indexInfo = autoComplete.getIndexInfo();
+        os.writeBoolean(indexInfo != null);
+        if(indexInfo != null) {
+            writeIndexInfo(os, indexInfo);
+        }
+    }
+
+    private static void writeRequestInfo(final DataOutputStream os, final RequestInfo requestInfo) throws IOException {
+        writeString(os, requestInfo.getUrlTemplate());
+
+        final CacheInfo cacheInfo = requestInfo.getCacheInfo();
+        os.writeBoolean(cacheInfo != null);
+        if(cacheInfo != null) {
+            os.writeLong(cacheInfo.getTimeToLive());
+            os.writeBoolean(cacheInfo.isPrefixMonotonic());
+            writeLong(os, cacheInfo.getResultLimit());
+        }
+
+        writeLong(os, requestInfo.getTimeout());
+        writeLong(os, requestInfo.getConnectTimeout());
+        writeLong(os, requestInfo.getReadTimeout());
+    }
+
+    private static void writeIndexInfo(final DataOutputStream os, final IndexInfo indexInfo) throws IOException {
+        writeString(os, indexInfo.getFile().toAbsolutePath().toString());
+        writeString(os, indexInfo.getFormat().name());
+        writeString(os, indexInfo.getMatch().name());
+        os.writeBoolean(indexInfo.isIgnoreCase());
+        os.writeBoolean(indexInfo.isIgnoreDiacritics());
+        os.writeLong(indexInfo.getResultLimit());
+        writeString(os, indexInfo.getStorage().name());
+    }
+
+    private static void writeResponseAction(final DataOutputStream os, @Nullable final ResponseAction responseAction) throws IOException {
+        if(responseAction == null) {
+            os.writeByte(0);
+        } else if(responseAction.getTransformation() != null) {
+            os.writeByte(1);
+            writeString(os, responseAction.getTransformation().toAbsolutePath().toString());
+        } else {
+            os.writeByte(2);
+            final ResponseMapping mapping = responseAction.getMapping();
+            writeString(os, mapping.getItems());
+            writeString(os, mapping.getValue());
+            writeString(os, mapping.getDescription());
+        }
+    }
+
+    private static AutoComplete readAutoComplete(final DataInputStream is) throws IOException {
+        final int bindingCount = is.readInt();
+        final Map<String, String> namespaceBindings = new HashMap<>();
+        for(int i = 0; i < bindingCount; i++) {
+            namespaceBindings.put(readString(is), readString(is));
+        }
+
+        final String context = readString(is);
+        final String attribute = readString(is);
+
+        final Dependent dependent;
+        if(is.readBoolean()) {
+            dependent = new Dependent(readString(is), readString(is), readString(is));
+        } else {
+            dependent = null;
+        }
+
+        final Selection selection;
+        if(is.readBoolean()) {
+            selection = new Selection(readString(is), readString(is));
+        } else {
+            selection = null;
+        }
+
+        final RequestInfo requestInfo = is.readBoolean() ? readRequestInfo(is) : null;
+        final ResponseAction responseAction = readResponseAction(is);
+        final String label = readString(is);
+        final IndexInfo indexInfo = is.readBoolean() ? readIndexInfo(is) : null;
+
+        return new AutoComplete(namespaceBindings, context, attribute, dependent, selection, requestInfo, responseAction, label, indexInfo);
+    }
+
+    private static IndexInfo readIndexInfo(final DataInputStream is) throws IOException {
+        return new IndexInfo(
+                Paths.get(readString(is)),
+                IndexInfo.Format.valueOf(readString(is)),
+                IndexInfo.Match.valueOf(readString(is)),
+                is.readBoolean(),
+                is.readBoolean(),
+                is.readLong(),
+                IndexInfo.Storage.valueOf(readString(is))
+        );
+    }
+
+    private static RequestInfo readRequestInfo(final DataInputStream is) throws IOException {
+        final String url = readString(is);
+
+        final CacheInfo cacheInfo;
+        if(is.readBoolean()) {
+            cacheInfo = new CacheInfo(is.readLong(), is.readBoolean(), readLong(is));
+        } else {
+            cacheInfo = null;
+        }
+
+        return new RequestInfo(url, null, cacheInfo, readLong(is), readLong(is), readLong(is));
+    }
+
+    @Nullable
+    private static ResponseAction readResponseAction(final DataInputStream is) throws IOException {
+        final byte responseActionType = is.readByte();
+        switch(responseActionType) {
+            case 0:
+                return null;
+
+            case 1:
+                return new ResponseAction(Paths.get(readString(is)));
+
+            case 2:
+                return new ResponseAction(new ResponseMapping(readString(is), readString(is), readString(is)));
+
+            default:
+                throw new IOException("Unknown response action type: " + responseActionType);
+        }
+    }
+
+    private static void writeString(final DataOutputStream os, @Nullable final String value) throws IOException {
+        if(value == null) {
+            os.writeInt(-1);
+        } else {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            os.writeInt(bytes.length);
+            os.write(bytes);
+        }
+    }
+
+    @Nullable
+    private static String readString(final DataInputStream is) throws IOException {
+        final int length = is.readInt();
+        if(length == -1) {
+            return null;
+        } else if(length < 0) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        final byte[] bytes = new byte[length];
+        is.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeLong(final DataOutputStream os, @Nullable final Long value) throws IOException {
+        os.writeBoolean(value != null);
+        if(value != null) {
+            os.writeLong(value);
+        }
+    }
+
+    @Nullable
+    private static Long readLong(final DataInputStream is) throws IOException {
+        return is.readBoolean() ? is.readLong() : null;
+    }
+}
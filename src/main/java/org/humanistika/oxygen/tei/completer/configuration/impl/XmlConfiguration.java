@@ -19,10 +19,14 @@
  */
 package org.humanistika.oxygen.tei.completer.configuration.impl;
 
+import org.humanistika.ns.tei_completer.Cache;
 import org.humanistika.ns.tei_completer.Config;
+import org.humanistika.ns.tei_completer.Index;
+import org.humanistika.ns.tei_completer.Mapping;
 import org.humanistika.ns.tei_completer.NamespaceBindings;
 import org.humanistika.ns.tei_completer.Request;
 import org.humanistika.ns.tei_completer.Server;
+import org.humanistika.oxygen.tei.completer.FileWatcher;
 import org.humanistika.oxygen.tei.completer.configuration.Configuration;
 import org.humanistika.oxygen.tei.completer.configuration.beans.*;
 import javax.annotation.Nullable;
@@ -32,12 +36,16 @@ import org.slf4j.LoggerFactory;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import static org.humanistika.oxygen.tei.completer.configuration.beans.RequestInfo.UrlVar.*;
 
 /**
@@ -48,31 +56,185 @@ import static org.humanistika.oxygen.tei.completer.configuration.beans.RequestIn
  *
  * On Windows platforms the properties file will be loaded from %USER_PROFILE%/Application Data/.bcdh-tei-completer/config.xml
  *
+ * The file is watched for changes, when it changes it is reloaded in the background
+ * and the newly loaded configuration replaces the previous configuration at once. If
+ * the changed file cannot be loaded, then the previous configuration is kept.
+ *
+ * The expanded configuration is also kept in a binary cache next to the
+ * file (see {@link BinaryConfigurationCache}). Whilst the checksum of the file
+ * matches that recorded in the cache, the configuration is read from the cache
+ * instead of from the XML. Otherwise the XML is loaded and the cache is rebuilt
+ * in the background. A configuration which contains authentication is not cached.
+ *
  * @author Adam Retter, Evolved Binary Ltd
  * @version 1.0
  * @serial 20160126
  */
 public class XmlConfiguration<T extends AutoComplete> implements Configuration<T> {
     private final static Logger LOGGER = LoggerFactory.getLogger(XmlConfiguration.class);
+    private final static long DEFAULT_LIVE_SEARCH_DELAY = 100;
+    private final static ExecutorService cacheWriter = Executors.newSingleThreadExecutor(r -> {
+        final Thread thread = new Thread(r, "tei-completer-config-cache");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     protected final Path configFile;
-    private List<T> autoCompletes = null;
+    private final BinaryConfigurationCache cache;
+    private volatile Loaded<T> loaded = null;
+    private volatile boolean watched = false;
+    private final Runnable reloadListener = this::reload;
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
 
     public XmlConfiguration(final Path configFile) {
         this.configFile = configFile;
+        this.cache = new BinaryConfigurationCache(configFile);
     }
 
     @Override
     public List<T> getAutoCompletes() {
+        final Loaded<T> loaded = getLoaded();
+        return loaded == null ? null : loaded.autoCompletes;
+    }
+
+    @Override
+    public MatchMode getMatchMode() {
+        final Loaded<T> loaded = getLoaded();
+        return loaded == null ? MatchMode.FIRST : loaded.matchMode;
+    }
+
+    @Override
+    public long getLiveSearchDelay() {
+        final Loaded<T> loaded = getLoaded();
+        return loaded == null ? DEFAULT_LIVE_SEARCH_DELAY : loaded.liveSearchDelay;
+    }
+
+    @Override
+    public boolean isWarmUp() {
+        final Loaded<T> loaded = getLoaded();
+        return loaded != null && loaded.warmUp;
+    }
+
+    @Override
+    public void addReloadListener(final Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    /**
+     * Get the loaded configuration, once loaded
+     * the configuration is read without locking
+     */
+    @Nullable
+    private Loaded<T> getLoaded() {
+        final Loaded<T> current = this.loaded;
+        if(current != null && watched) {
+            return current;
+        }
+
         synchronized(this) {
-            if(this.autoCompletes == null) {
-                this.autoCompletes = loadAutoCompletes();
+            if(this.loaded == null) {
+                this.loaded = load();
+            }
+            if(!watched) {
+                //changes are only detected if the file can be watched
+                watched = true;
+                if(!FileWatcher.getInstance().watch(configFile, reloadListener)) {
+                    LOGGER.warn("Changes to the configuration file: {} will not be detected", configFile.toAbsolutePath());
+                }
             }
+            return this.loaded;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private Loaded<T> load() {
+        final Long checksum = cache.checksum();
+        if(checksum != null) {
+            final Loaded<AutoComplete> cached = cache.read(checksum);
+            if(cached != null) {
+                LOGGER.debug("Loaded configuration from cache: {}", cache.getCacheFile());
+                return (Loaded<T>)cached;
+            }
+        }
+
+        final Config config = loadConfig();
+        if(config == null) {
+            return null;
+        }
+        final Loaded<T> loaded = new Loaded<>(expandConfig(config), expandMatchMode(config.getMatch()), config.getLiveSearchDelay(), config.isWarmUp());
+
+        if(checksum != null) {
+            cacheWriter.execute(() -> writeCache(checksum, loaded));
+        }
+
+        return loaded;
+    }
+
+    private void writeCache(final long checksum, final Loaded<T> loaded) {
+        if(!Long.valueOf(checksum).equals(cache.checksum())) {
+            //the file changed whilst it was loaded, it will be cached when it is reloaded
+            return;
+        }
+
+        try {
+            if(cache.write(checksum, loaded)) {
+                LOGGER.debug("Wrote configuration cache: {}", cache.getCacheFile());
+            } else {
+                LOGGER.debug("Configuration contains authentication, so it is not cached: {}", cache.getCacheFile());
+            }
+        } catch(final IOException | RuntimeException e) {
+            LOGGER.warn("Unable to write configuration cache: {}: {}", cache.getCacheFile(), e.getMessage());
+        }
+    }
+
+    /**
+     * Reloads the configuration after the file has changed
+     *
+     * The file is loaded without holding the lock, so readers
+     * of the previous configuration are not blocked whilst it loads.
+     */
+    private void reload() {
+        //NOTE: if the file can no longer be watched, it is watched again when the configuration is next used
+        if(!FileWatcher.getInstance().isWatched(configFile, reloadListener)) {
+            watched = false;
+        }
+
+        final Loaded<T> reloaded = load();
+        if(reloaded == null) {
+            LOGGER.error("Unable to reload changed configuration file: {}, the previous configuration is still in use", configFile.toAbsolutePath());
+            return;
+        }
+
+        this.loaded = reloaded;
+        LOGGER.info("Reloaded configuration file: {}", configFile.toAbsolutePath());
+
+        for(final Runnable listener : reloadListeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * The configuration as loaded from a single
+     * version of the configuration file, it is immutable
+     * so that it may be shared between threads without locking
+     */
+    static class Loaded<T> {
+        final List<T> autoCompletes;
+        final MatchMode matchMode;
+        final long liveSearchDelay;
+        final boolean warmUp;
+
+        Loaded(final List<T> autoCompletes, final MatchMode matchMode, final long liveSearchDelay, final boolean warmUp) {
+            this.autoCompletes = autoCompletes;
+            this.matchMode = matchMode;
+            this.liveSearchDelay = liveSearchDelay;
+            this.warmUp = warmUp;
         }
-        return this.autoCompletes;
     }
 
     @Nullable
-    protected List<T> loadAutoCompletes() {
+    protected Config loadConfig() {
         if(Files.notExists(configFile)) {
             LOGGER.error("Configuration file does not exist: {}", configFile.toAbsolutePath());
             return null;
@@ -81,14 +243,26 @@ public class XmlConfiguration<T extends AutoComplete> implements Configuration<T
         try {
             final JAXBContext jaxbContext = JAXBContext.newInstance(Config.class);
             final Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-            final Config config = (Config)unmarshaller.unmarshal(configFile.toFile());
-            return expandConfig(config);
+            return (Config)unmarshaller.unmarshal(configFile.toFile());
         } catch(final JAXBException e) {
             LOGGER.error("Unable to load config: " + configFile.toAbsolutePath(), e);
             return null;
         }
     }
 
+    private MatchMode expandMatchMode(final org.humanistika.ns.tei_completer.MatchMode match) {
+        switch(match) {
+            case FIRST:
+                return MatchMode.FIRST;
+
+            case ALL:
+                return MatchMode.ALL;
+
+            default:
+                throw new IllegalStateException("Unknown match mode: " + match);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private List<T> expandConfig(final Config config) {
         final List<AutoComplete> autoCompletes = new ArrayList<>();
@@ -117,17 +291,26 @@ public class XmlConfiguration<T extends AutoComplete> implements Configuration<T
                 );
             }
 
-            final Authentication requestAuthentication = resolveAuthentication(config.getServer(), autoComplete.getRequest().getServer());
-            final RequestInfo requestInfo = new RequestInfo(
-                    expandUrl(config.getServer(), autoComplete.getRequest(), i+1, requestAuthentication),
-                    requestAuthentication
-            );
+            final RequestInfo requestInfo;
+            final IndexInfo indexInfo;
+            if(autoComplete.getIndex() != null) {
+                requestInfo = null;
+                indexInfo = expandIndex(autoComplete.getIndex());
+            } else {
+                requestInfo = expandRequest(config.getServer(), autoComplete.getRequest(), i+1);
+                indexInfo = null;
+            }
 
             final ResponseAction responseAction;
             if(autoComplete.getResponse() == null) {
                 responseAction = null;
-            } else {
+            } else if(autoComplete.getResponse().getMapping() != null) {
+                final Mapping mapping = autoComplete.getResponse().getMapping();
+                responseAction = new ResponseAction(new ResponseMapping(mapping.getItems(), mapping.getValue(), mapping.getDescription()));
+            } else if(autoComplete.getResponse().getTransformation() != null) {
                 responseAction = new ResponseAction(configFile.resolveSibling(autoComplete.getResponse().getTransformation()));
+            } else {
+                responseAction = null;
             }
 
             autoCompletes.add(new AutoComplete(
@@ -137,13 +320,92 @@ public class XmlConfiguration<T extends AutoComplete> implements Configuration<T
                     dependent,
                     selection,
                     requestInfo,
-                    responseAction
+                    responseAction,
+                    autoComplete.getLabel(),
+                    indexInfo
             ));
         }
 
         return (List<T>)autoCompletes;
     }
 
+    private RequestInfo expandRequest(@Nullable final Server global, final Request request, final int index) {
+        final Authentication requestAuthentication = resolveAuthentication(global, request.getServer());
+        final CacheInfo cacheInfo;
+        if(request.getCache() == null) {
+            cacheInfo = null;
+        } else {
+            final Cache cache = request.getCache();
+            cacheInfo = new CacheInfo(cache.getTtl(), cache.isPrefixMonotonic(), cache.getResultLimit());
+        }
+
+        final Server server = request.getServer() != null ? request.getServer() : global;
+        return new RequestInfo(
+                expandUrl(global, request, index, requestAuthentication),
+                requestAuthentication,
+                cacheInfo,
+                request.getTimeout(),
+                server != null ? server.getConnectTimeout() : null,
+                server != null ? server.getReadTimeout() : null
+        );
+    }
+
+    private IndexInfo expandIndex(final Index index) {
+        final Path file = configFile.resolveSibling(index.getValue());
+
+        final IndexInfo.Format format;
+        if(index.getFormat() == null) {
+            format = IndexInfo.Format.of(file);
+        } else {
+            switch(index.getFormat()) {
+                case XML:
+                    format = IndexInfo.Format.XML;
+                    break;
+
+                case JSON:
+                    format = IndexInfo.Format.JSON;
+                    break;
+
+                case CSV:
+                    format = IndexInfo.Format.CSV;
+                    break;
+
+                default:
+                    throw new IllegalStateException("Unknown index format: " + index.getFormat());
+            }
+        }
+
+        final IndexInfo.Match match;
+        switch(index.getMatch()) {
+            case PREFIX:
+                match = IndexInfo.Match.PREFIX;
+                break;
+
+            case EXACT:
+                match = IndexInfo.Match.EXACT;
+                break;
+
+            default:
+                throw new IllegalStateException("Unknown index match: " + index.getMatch());
+        }
+
+        final IndexInfo.Storage storage;
+        switch(index.getStorage()) {
+            case MEMORY:
+                storage = IndexInfo.Storage.MEMORY;
+                break;
+
+            case MAPPED:
+                storage = IndexInfo.Storage.MAPPED;
+                break;
+
+            default:
+                throw new IllegalStateException("Unknown index storage: " + index.getStorage());
+        }
+
+        return new IndexInfo(file, format, match, index.isIgnoreCase(), index.isIgnoreDiacritics(), index.getResultLimit(), storage);
+    }
+
     private String expandUrl(final Server global, final Request specific, final int index, final Authentication authentication) {
         final String baseUrl;
         if(specific.getServer() != null) {
@@ -0,0 +1,52 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.index;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import javax.annotation.Nullable;
+
+import java.util.function.Consumer;
+
+/**
+ * A local index of suggestions, in which suggestions
+ * may be found without contacting a server
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public interface SuggestionIndex {
+
+    /**
+     * Find the suggestions for a selection
+     *
+     * @param selection The selection
+     * @param dependent The dependent, or null or empty to find the suggestions for any dependent
+     * @param suggestions A consumer of the suggestions which are found
+     */
+    void find(final String selection, @Nullable final String dependent, final Consumer<Suggestion> suggestions);
+
+    /**
+     * Get the number of suggestions in the index
+     *
+     * @return The number of suggestions
+     */
+    int size();
+}
@@ -0,0 +1,58 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.index.impl;
+
+import javax.annotation.Nullable;
+
+/**
+ * A suggestion as read from a bulk export of suggestions
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+class IndexEntry {
+    final String value;
+    @Nullable final String description;
+    @Nullable final String selection;
+    @Nullable final String dependent;
+
+    /**
+     * @param value The value of the suggestion
+     * @param description The description of the suggestion, or null
+     * @param selection The selection for which the suggestion is found, or null if it is found for its value
+     * @param dependent The dependent for which the suggestion is found, or null if it is found for any dependent
+     */
+    IndexEntry(final String value, @Nullable final String description, @Nullable final String selection, @Nullable final String dependent) {
+        this.value = value;
+        this.description = description;
+        this.selection = selection;
+        this.dependent = dependent;
+    }
+
+    /**
+     * Get the selection for which the suggestion is found
+     *
+     * @return The selection, or the value if there is no selection
+     */
+    String getSelectionOrValue() {
+        return selection == null ? value : selection;
+    }
+}
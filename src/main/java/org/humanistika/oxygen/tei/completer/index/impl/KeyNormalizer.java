@@ -0,0 +1,74 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.index.impl;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes the selections and dependents of suggestions,
+ * and those that are searched for, so that they may be compared
+ * case- and/or diacritic-insensitively
+ *
+ * Strings are always normalized to a Unicode normal form, so that
+ * precomposed and decomposed characters are equal. When diacritics
+ * are ignored, the string is decomposed and its combining marks are
+ * removed, e.g. {@code Čačak} becomes {@code Cacak}.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+class KeyNormalizer {
+    private final static Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final boolean ignoreCase;
+    private final boolean ignoreDiacritics;
+
+    KeyNormalizer(final boolean ignoreCase, final boolean ignoreDiacritics) {
+        this.ignoreCase = ignoreCase;
+        this.ignoreDiacritics = ignoreDiacritics;
+    }
+
+    String normalize(final String str) {
+        String normalized = str;
+        if(!isAscii(normalized)) {
+            if(ignoreDiacritics) {
+                normalized = COMBINING_MARKS.matcher(Normalizer.normalize(normalized, Normalizer.Form.NFD)).replaceAll("");
+            } else {
+                normalized = Normalizer.normalize(normalized, Normalizer.Form.NFC);
+            }
+        }
+        if(ignoreCase) {
+            normalized = normalized.toLowerCase(Locale.ROOT);
+        }
+        return normalized;
+    }
+
+    private static boolean isAscii(final String str) {
+        for(int i = 0; i < str.length(); i++) {
+            if(str.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,552 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.index.impl;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.oxygen.tei.completer.configuration.beans.IndexInfo;
+import org.humanistika.oxygen.tei.completer.index.SuggestionIndex;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * An index of suggestions which is held in a file
+ * that is mapped into memory
+ *
+ * The index file is built from the bulk export of suggestions into a
+ * file beside it, which is named after the bulk export, its size and
+ * modification time, and how the index is normalized, i.e.
+ * {@code <export>.<size>-<modified>-<flags>.idx}. A new index file is
+ * built whenever any of those change, rather than replacing an index
+ * file which may still be mapped. Superseded index files are then
+ * deleted, or if they are still mapped on Windows, by a later load.
+ * Building the index needs the suggestions in memory once, thereafter
+ * only the pages of the file that a lookup touches are read, by the
+ * operating system, which also shares them between all processes that
+ * map the same file.
+ *
+ * The file consists of:
+ * <ol>
+ *     <li>a header, which records the size and modification time of the
+ *     bulk export and the settings that the index was built with</li>
+ *     <li>the records of the suggestions, i.e. the normalized dependent,
+ *     value and description of each</li>
+ *     <li>the normalized selections in sorted order, as UTF-8, in blocks of
+ *     {@link #BLOCK_SIZE}. The first selection of a block is written in full,
+ *     each following selection only as the length of the prefix that it shares
+ *     with the previous selection and the remaining suffix. Each selection is
+ *     followed by the offset of its record</li>
+ *     <li>the offset of each block</li>
+ * </ol>
+ *
+ * A lookup binary searches the first selection of each block, and then
+ * decodes at most one block before reaching the first selection which
+ * matches. Integers other than those of the header and block offsets
+ * are written as unsigned variable length integers.
+ *
+ * As a file is mapped by a single buffer, an index file is
+ * limited to 2GB.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class MappedSuggestionIndex implements SuggestionIndex {
+    private final static Logger LOGGER = LoggerFactory.getLogger(MappedSuggestionIndex.class);
+
+    private final static int MAGIC = 0x54454958;  // "TEIX"
+    private final static int FORMAT_VERSION = 1;
+    private final static int HEADER_SIZE = 44;
+    final static int BLOCK_SIZE = 16;
+
+    private final static int FLAG_IGNORE_CASE = 1;
+    private final static int FLAG_IGNORE_DIACRITICS = 1 << 1;
+    private final static int FLAG_FORMAT_SHIFT = 2;
+
+    private final KeyNormalizer normalizer;
+    private final IndexInfo.Match match;
+    private final long resultLimit;
+
+    private final MappedByteBuffer buffer;
+    private final int entryCount;
+    private final int blockCount;
+    private final int blockTableOffset;
+
+    private MappedSuggestionIndex(final IndexInfo indexInfo, final KeyNormalizer normalizer, final MappedByteBuffer buffer) {
+        this.normalizer = normalizer;
+        this.match = indexInfo.getMatch();
+        this.resultLimit = indexInfo.getResultLimit();
+
+        this.buffer = buffer;
+        this.entryCount = buffer.getInt(28);
+        this.blockCount = buffer.getInt(32);
+        this.blockTableOffset = buffer.getInt(40);
+    }
+
+    /**
+     * Load an index from a bulk export of suggestions, building
+     * the index file first if it does not exist or is out of date
+     *
+     * @param indexInfo The configuration of the index
+     *
+     * @return The index
+     *
+     * @throws IOException If the bulk export cannot be read, or the index file cannot be built or mapped
+     */
+    public static MappedSuggestionIndex load(final IndexInfo indexInfo) throws IOException {
+        final KeyNormalizer normalizer = new KeyNormalizer(indexInfo.isIgnoreCase(), indexInfo.isIgnoreDiacritics());
+        final BasicFileAttributes sourceAttributes = Files.readAttributes(indexInfo.getFile(), BasicFileAttributes.class);
+        final int flags = flags(indexInfo);
+        final Path indexFile = getIndexFile(indexInfo.getFile(), sourceAttributes, flags);
+
+        if(!isCurrent(indexFile, sourceAttributes, flags)) {
+            LOGGER.info("Building index file: {} from: {}", indexFile.toAbsolutePath(), indexInfo.getFile().toAbsolutePath());
+            build(indexInfo, normalizer, indexFile, sourceAttributes, flags);
+        }
+
+        try(final FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if(size > Integer.MAX_VALUE) {
+                throw new IOException("Index file is too large to be mapped: " + indexFile.toAbsolutePath());
+            }
+            //NOTE: the mapping remains valid after the channel is closed
+            final MappedSuggestionIndex index = new MappedSuggestionIndex(indexInfo, normalizer, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            deleteSuperseded(indexInfo.getFile(), sourceAttributes);
+            return index;
+        }
+    }
+
+    /**
+     * Get the path of the index file for a bulk export in its current state
+     *
+     * @param indexInfo The configuration of the index
+     *
+     * @return The path of the index file
+     *
+     * @throws IOException If the attributes of the bulk export cannot be read
+     */
+    static Path getIndexFile(final IndexInfo indexInfo) throws IOException {
+        final BasicFileAttributes sourceAttributes = Files.readAttributes(indexInfo.getFile(), BasicFileAttributes.class);
+        return getIndexFile(indexInfo.getFile(), sourceAttributes, flags(indexInfo));
+    }
+
+    private static Path getIndexFile(final Path file, final BasicFileAttributes sourceAttributes, final int flags) {
+        return file.resolveSibling(versionPrefix(file, sourceAttributes) + flags + ".idx");
+    }
+
+    private static String versionPrefix(final Path file, final BasicFileAttributes sourceAttributes) {
+        return file.getFileName().toString() + '.' + sourceAttributes.size() + '-' + sourceAttributes.lastModifiedTime().toMillis() + '-';
+    }
+
+    /**
+     * Deletes the index files which were built from previous
+     * states of the bulk export
+     *
+     * Index files which were built from the current state of the bulk
+     * export with other settings are kept. An index file which cannot be
+     * deleted, e.g. on Windows whilst it is mapped, is left to be deleted
+     * by a later load.
+     *
+     * @param file The file containing the bulk export
+     * @param sourceAttributes The current attributes of the bulk export
+     */
+    private static void deleteSuperseded(final Path file, final BasicFileAttributes sourceAttributes) {
+        final Pattern indexFileName = Pattern.compile(Pattern.quote(file.getFileName().toString()) + "(\\.\\d+--?\\d+-\\d+)?\\.idx");
+        final String currentPrefix = versionPrefix(file, sourceAttributes);
+        try(final DirectoryStream<Path> indexFiles = Files.newDirectoryStream(file.toAbsolutePath().getParent(),
+                path -> {
+                    final String name = path.getFileName().toString();
+                    return indexFileName.matcher(name).matches() && !name.startsWith(currentPrefix);
+                })) {
+            for(final Path indexFile : indexFiles) {
+                try {
+                    Files.deleteIfExists(indexFile);
+                    LOGGER.info("Deleted superseded index file: {}", indexFile);
+                } catch(final IOException e) {
+                    LOGGER.debug("Unable to delete superseded index file: {}: {}", indexFile, e.getMessage());
+                }
+            }
+        } catch(final IOException e) {
+            LOGGER.debug("Unable to find superseded index files of: {}: {}", file.toAbsolutePath(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void find(final String selection, @Nullable final String dependent, final Consumer<Suggestion> suggestions) {
+        if(entryCount == 0) {
+            return;
+        }
+
+        final byte[] key = normalizer.normalize(selection).getBytes(UTF_8);
+        final byte[] dependentKey = dependent == null || dependent.isEmpty() ? null : normalizer.normalize(dependent).getBytes(UTF_8);
+
+        // each lookup reads through its own views of the buffer
+        final ByteBuffer keys = buffer.duplicate();
+        final ByteBuffer records = buffer.duplicate();
+
+        final int block = findBlock(keys, key);
+        keys.position(blockOffset(block));
+
+        byte[] current = new byte[Math.max(64, key.length)];
+        final Set<String> found = new HashSet<>();
+        for(int i = block * BLOCK_SIZE; i < entryCount && found.size() < resultLimit; i++) {
+            final int shared = readVarInt(keys);
+            final int suffix = readVarInt(keys);
+            final int length = shared + suffix;
+            if(length > current.length) {
+                current = Arrays.copyOf(current, Math.max(length, current.length * 2));
+            }
+            keys.get(current, shared, suffix);
+            final int recordOffset = readVarInt(keys);
+
+            if(Arrays.compareUnsigned(current, 0, length, key, 0, key.length) < 0) {
+                // not yet reached the first selection which may match
+                continue;
+            }
+            if(!matches(current, length, key)) {
+                break;
+            }
+
+            records.position(recordOffset);
+            if(!dependentMatches(records, dependentKey)) {
+                continue;
+            }
+            final String value = readString(records);
+            if(found.add(value)) {
+                final Suggestion suggestion = new Suggestion();
+                suggestion.setValue(value);
+                suggestion.setDescription(readString(records));
+                suggestions.accept(suggestion);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return entryCount;
+    }
+
+    private boolean matches(final byte[] selection, final int length, final byte[] key) {
+        if(match == IndexInfo.Match.EXACT) {
+            return length == key.length && Arrays.equals(selection, 0, length, key, 0, key.length);
+        }
+        return length >= key.length && Arrays.equals(selection, 0, key.length, key, 0, key.length);
+    }
+
+    /**
+     * Find the last block whose first selection is less than the key
+     *
+     * @return the block, or the first block if there is no such block
+     */
+    private int findBlock(final ByteBuffer keys, final byte[] key) {
+        int low = 0;
+        int high = blockCount - 1;
+        int block = 0;
+        while(low <= high) {
+            final int mid = (low + high) >>> 1;
+            keys.position(blockOffset(mid));
+            readVarInt(keys);  // the shared length, which is always 0 for the first selection of a block
+            final int length = readVarInt(keys);
+            if(compare(keys, keys.position(), length, key) < 0) {
+                block = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return block;
+    }
+
+    private int blockOffset(final int block) {
+        return buffer.getInt(blockTableOffset + (block * Integer.BYTES));
+    }
+
+    /**
+     * Compares bytes of the buffer with a key
+     * in the same order as {@link Arrays#compareUnsigned(byte[], byte[])}
+     */
+    private static int compare(final ByteBuffer buffer, final int offset, final int length, final byte[] key) {
+        final int common = Math.min(length, key.length);
+        for(int i = 0; i < common; i++) {
+            final int cmp = Byte.compareUnsigned(buffer.get(offset + i), key[i]);
+            if(cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+
+    /**
+     * Reads the dependent of a record and determines if it matches the dependent
+     *
+     * @return true if the record has no dependent, or there is no dependent, or they are equal
+     */
+    private static boolean dependentMatches(final ByteBuffer records, @Nullable final byte[] dependentKey) {
+        final int length = readVarInt(records) - 1;
+        if(length == -1) {
+            return true;
+        }
+
+        final int offset = records.position();
+        records.position(offset + length);
+        return dependentKey == null || (length == dependentKey.length && compare(records, offset, length, dependentKey) == 0);
+    }
+
+    /**
+     * Determine if the index file was built from the bulk export in its current state
+     * and with the current settings
+     */
+    private static boolean isCurrent(final Path indexFile, final BasicFileAttributes sourceAttributes, final int flags) throws IOException {
+        if(!Files.exists(indexFile)) {
+            return false;
+        }
+
+        try(final FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if(size < HEADER_SIZE) {
+                return false;
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while(header.hasRemaining()) {
+                if(channel.read(header) == -1) {
+                    return false;
+                }
+            }
+            header.flip();
+
+            if(header.getInt() != MAGIC
+                    || header.getInt() != FORMAT_VERSION
+                    || header.getLong() != sourceAttributes.size()
+                    || header.getLong() != sourceAttributes.lastModifiedTime().toMillis()
+                    || header.getInt() != flags) {
+                return false;
+            }
+            header.getInt();  // entry count
+            final int blockCount = header.getInt();
+            header.getInt();  // keys offset
+            final int blockTableOffset = header.getInt();
+            return blockTableOffset + ((long) blockCount * Integer.BYTES) == size;
+        }
+    }
+
+    private static int flags(final IndexInfo indexInfo) {
+        int flags = indexInfo.getFormat().ordinal() << FLAG_FORMAT_SHIFT;
+        if(indexInfo.isIgnoreCase()) {
+            flags |= FLAG_IGNORE_CASE;
+        }
+        if(indexInfo.isIgnoreDiacritics()) {
+            flags |= FLAG_IGNORE_DIACRITICS;
+        }
+        return flags;
+    }
+
+    /**
+     * Builds the index file from the bulk export
+     *
+     * The index file is written to a temporary file which is then moved
+     * to the index file, so that any other process which is building the
+     * same index is unaffected.
+     */
+    private static void build(final IndexInfo indexInfo, final KeyNormalizer normalizer, final Path indexFile, final BasicFileAttributes sourceAttributes, final int flags) throws IOException {
+        final List<Row> rows = new ArrayList<>();
+        SuggestionDumpReader.read(indexInfo.getFile(), indexInfo.getFormat(), entry -> rows.add(new Row(
+                normalizer.normalize(entry.getSelectionOrValue()).getBytes(UTF_8),
+                entry.dependent == null ? null : normalizer.normalize(entry.dependent).getBytes(UTF_8),
+                entry.value,
+                entry.description
+        )));
+        rows.sort((row1, row2) -> {
+            final int cmp = Arrays.compareUnsigned(row1.selection, row2.selection);
+            return cmp != 0 ? cmp : row1.value.compareTo(row2.value);
+        });
+
+        final Path tempFile = Files.createTempFile(indexFile.toAbsolutePath().getParent(), indexFile.getFileName().toString(), ".tmp");
+        try {
+            final int keysOffset;
+            final int blockTableOffset;
+            final int blockCount = (rows.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            try(final DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                os.write(new byte[HEADER_SIZE]);
+
+                final int[] recordOffsets = new int[rows.size()];
+                for(int i = 0; i < rows.size(); i++) {
+                    final Row row = rows.get(i);
+                    recordOffsets[i] = offset(os, indexFile);
+                    writeBytes(os, row.dependent);
+                    writeBytes(os, row.value.getBytes(UTF_8));
+                    writeBytes(os, row.description == null ? null : row.description.getBytes(UTF_8));
+                }
+
+                keysOffset = offset(os, indexFile);
+                final int[] blockOffsets = new int[blockCount];
+                byte[] previous = null;
+                for(int i = 0; i < rows.size(); i++) {
+                    if(i % BLOCK_SIZE == 0) {
+                        blockOffsets[i / BLOCK_SIZE] = offset(os, indexFile);
+                        previous = null;
+                    }
+                    final byte[] selection = rows.get(i).selection;
+                    final int shared = previous == null ? 0 : sharedPrefix(previous, selection);
+                    writeVarInt(os, shared);
+                    writeVarInt(os, selection.length - shared);
+                    os.write(selection, shared, selection.length - shared);
+                    writeVarInt(os, recordOffsets[i]);
+                    previous = selection;
+                }
+
+                blockTableOffset = offset(os, indexFile);
+                for(final int blockOffset : blockOffsets) {
+                    os.writeInt(blockOffset);
+                }
+                offset(os, indexFile);
+            }
+
+            try(final FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC);
+                header.putInt(FORMAT_VERSION);
+                header.putLong(sourceAttributes.size());
+                header.putLong(sourceAttributes.lastModifiedTime().toMillis());
+                header.putInt(flags);
+                header.putInt(rows.size());
+                header.putInt(blockCount);
+                header.putInt(keysOffset);
+                header.putInt(blockTableOffset);
+                header.flip();
+                while(header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            }
+
+            try {
+                try {
+                    Files.move(tempFile, indexFile, StandardCopyOption.ATOMIC_MOVE);
+                } catch(final AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch(final IOException e) {
+                // another process may have already built the same index file, which e.g. on Windows cannot be replaced whilst it is mapped
+                if(!isCurrent(indexFile, sourceAttributes, flags)) {
+                    throw e;
+                }
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Get the offset in the index file which will next be written
+     *
+     * @throws IOException if the index file has become too large to be mapped
+     */
+    private static int offset(final DataOutputStream os, final Path indexFile) throws IOException {
+        final int offset = os.size();
+        if(offset == Integer.MAX_VALUE) {
+            throw new IOException("Index file is too large to be mapped: " + indexFile.toAbsolutePath());
+        }
+        return offset;
+    }
+
+    private static int sharedPrefix(final byte[] previous, final byte[] selection) {
+        final int mismatch = Arrays.mismatch(previous, selection);
+        return mismatch == -1 ? selection.length : mismatch;
+    }
+
+    private static void writeBytes(final DataOutputStream os, @Nullable final byte[] bytes) throws IOException {
+        if(bytes == null) {
+            writeVarInt(os, 0);
+        } else {
+            writeVarInt(os, bytes.length + 1);
+            os.write(bytes);
+        }
+    }
+
+    @Nullable
+    private static String readString(final ByteBuffer buffer) {
+        final int length = readVarInt(buffer) - 1;
+        if(length == -1) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    static void writeVarInt(final DataOutputStream os, final int value) throws IOException {
+        int remaining = value;
+        while((remaining & ~0x7F) != 0) {
+            os.write((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        os.write(remaining);
+    }
+
+    static int readVarInt(final ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while((b & 0x80) != 0);
+        return value;
+    }
+
+    private static class Row {
+        final byte[] selection;
+        @Nullable final byte[] dependent;
+        final String value;
+        @Nullable final String description;
+
+        Row(final byte[] selection, @Nullable final byte[] dependent, final String value, @Nullable final String description) {
+            this.selection = selection;
+            this.dependent = dependent;
+            this.value = value;
+            this.description = description;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.index.impl;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.oxygen.tei.completer.configuration.beans.IndexInfo;
+import org.humanistika.oxygen.tei.completer.index.SuggestionIndex;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * An index of suggestions which is held in memory
+ *
+ * The suggestions are sorted by their normalized selection, so that
+ * those whose selection starts with, or is equal to, a selection are
+ * adjacent and are found by a binary search. The suggestions are held
+ * in parallel arrays rather than as an object per suggestion.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class MemorySuggestionIndex implements SuggestionIndex {
+    private final KeyNormalizer normalizer;
+    private final IndexInfo.Match match;
+    private final long resultLimit;
+
+    private final String[] selections;
+    private final String[] dependents;
+    private final String[] values;
+    private final String[] descriptions;
+
+    MemorySuggestionIndex(final IndexInfo indexInfo, final List<IndexEntry> entries) {
+        this.normalizer = new KeyNormalizer(indexInfo.isIgnoreCase(), indexInfo.isIgnoreDiacritics());
+        this.match = indexInfo.getMatch();
+        this.resultLimit = indexInfo.getResultLimit();
+
+        final List<Row> rows = new ArrayList<>(entries.size());
+        for(final IndexEntry entry : entries) {
+            rows.add(new Row(
+                    normalizer.normalize(entry.getSelectionOrValue()),
+                    entry.dependent == null ? null : normalizer.normalize(entry.dependent),
+                    entry
+            ));
+        }
+        rows.sort(Comparator.comparing((Row row) -> row.selection).thenComparing(row -> row.entry.value));
+
+        final int size = rows.size();
+        this.selections = new String[size];
+        this.dependents = new String[size];
+        this.values = new String[size];
+        this.descriptions = new String[size];
+        for(int i = 0; i < size; i++) {
+            final Row row = rows.get(i);
+            selections[i] = row.selection;
+            dependents[i] = row.dependent;
+            values[i] = row.entry.value;
+            descriptions[i] = row.entry.description;
+        }
+    }
+
+    /**
+     * Load an index from a bulk export of suggestions
+     *
+     * @param indexInfo The configuration of the index
+     *
+     * @return The index
+     *
+     * @throws IOException If the bulk export cannot be read
+     */
+    public static MemorySuggestionIndex load(final IndexInfo indexInfo) throws IOException {
+        final List<IndexEntry> entries = new ArrayList<>();
+        SuggestionDumpReader.read(indexInfo.getFile(), indexInfo.getFormat(), entries::add);
+        return new MemorySuggestionIndex(indexInfo, entries);
+    }
+
+    @Override
+    public void find(final String selection, @Nullable final String dependent, final Consumer<Suggestion> suggestions) {
+        final String key = normalizer.normalize(selection);
+        final String dependentKey = dependent == null || dependent.isEmpty() ? null : normalizer.normalize(dependent);
+
+        final Set<String> found = new HashSet<>();
+        for(int i = lowerBound(key); i < selections.length && found.size() < resultLimit && matches(selections[i], key); i++) {
+            if(dependentKey != null && dependents[i] != null && !dependents[i].equals(dependentKey)) {
+                continue;
+            }
+            if(found.add(values[i])) {
+                final Suggestion suggestion = new Suggestion();
+                suggestion.setValue(values[i]);
+                suggestion.setDescription(descriptions[i]);
+                suggestions.accept(suggestion);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    private boolean matches(final String selection, final String key) {
+        return match == IndexInfo.Match.EXACT ? selection.equals(key) : selection.startsWith(key);
+    }
+
+    /**
+     * Find the first selection which is not less than the key
+     */
+    private int lowerBound(final String key) {
+        int low = 0;
+        int high = selections.length;
+        while(low < high) {
+            final int mid = (low + high) >>> 1;
+            if(selections[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static class Row {
+        final String selection;
+        @Nullable final String dependent;
+        final IndexEntry entry;
+
+        Row(final String selection, @Nullable final String dependent, final IndexEntry entry) {
+            this.selection = selection;
+            this.dependent = dependent;
+            this.entry = entry;
+        }
+    }
+}
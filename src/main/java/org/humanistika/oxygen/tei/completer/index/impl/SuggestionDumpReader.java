@@ -0,0 +1,351 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.index.impl;
+
+import org.humanistika.oxygen.tei.completer.configuration.beans.IndexInfo;
+import javax.annotation.Nullable;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Reads the suggestions from a bulk export of suggestions
+ *
+ * An XML export is in the format of the suggestions schema,
+ * each {@code suggestion} element may have {@code selection} and
+ * {@code dependent} attributes. A JSON export is either an array of
+ * suggestion objects, or the suggestions format, i.e. an object with a
+ * {@code suggestion} array, each suggestion object has a {@code value},
+ * and may have a {@code description}, {@code selection} and {@code dependent}.
+ * A CSV export has a header row which names the same columns in any order.
+ *
+ * Each format is read in a single streaming pass.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+class SuggestionDumpReader {
+
+    private final static String VALUE = "value";
+    private final static String DESCRIPTION = "description";
+    private final static String SELECTION = "selection";
+    private final static String DEPENDENT = "dependent";
+
+    private final static XMLInputFactory INPUT_FACTORY = XMLInputFactory.newFactory();
+    static {
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    private final static JsonParserFactory PARSER_FACTORY = Json.createParserFactory(null);
+
+    private SuggestionDumpReader() {
+    }
+
+    /**
+     * Read the suggestions from a bulk export
+     *
+     * @param file The file containing the bulk export
+     * @param format The format of the file
+     * @param entries A consumer of the suggestions, suggestions without a value are skipped
+     *
+     * @throws IOException If the file cannot be read or is not in the expected format
+     */
+    static void read(final Path file, final IndexInfo.Format format, final Consumer<IndexEntry> entries) throws IOException {
+        try(final InputStream is = Files.newInputStream(file)) {
+            switch(format) {
+                case XML:
+                    readXml(is, entries);
+                    break;
+
+                case JSON:
+                    readJson(is, entries);
+                    break;
+
+                case CSV:
+                    readCsv(is, entries);
+                    break;
+
+                default:
+                    throw new IllegalStateException("Unknown index format: " + format);
+            }
+        }
+    }
+
+    static void readXml(final InputStream is, final Consumer<IndexEntry> entries) throws IOException {
+        try {
+            final XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(is);
+            try {
+                String value = null;
+                String description = null;
+                String selection = null;
+                String dependent = null;
+                boolean inSuggestion = false;
+
+                while(reader.hasNext()) {
+                    final int event = reader.next();
+                    if(event == XMLStreamConstants.START_ELEMENT) {
+                        final String localName = reader.getLocalName();
+                        if(localName.equals("suggestion")) {
+                            inSuggestion = true;
+                            value = null;
+                            description = null;
+                            selection = emptyToNull(reader.getAttributeValue(null, SELECTION));
+                            dependent = emptyToNull(reader.getAttributeValue(null, DEPENDENT));
+                        } else if(inSuggestion && localName.equals(VALUE)) {
+                            value = emptyToNull(reader.getElementText().trim());
+                        } else if(inSuggestion && localName.equals(DESCRIPTION)) {
+                            description = emptyToNull(reader.getElementText().trim());
+                        }
+                    } else if(event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("suggestion")) {
+                        inSuggestion = false;
+                        if(value != null) {
+                            entries.accept(new IndexEntry(value, description, selection, dependent));
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch(final XMLStreamException e) {
+            if(e.getNestedException() instanceof IOException) {
+                throw (IOException)e.getNestedException();
+            }
+            throw new IOException("Unable to read XML suggestions: " + e.getMessage(), e);
+        }
+    }
+
+    static void readJson(final InputStream is, final Consumer<IndexEntry> entries) throws IOException {
+        try(final JsonParser parser = PARSER_FACTORY.createParser(is)) {
+            //the fields of each open object
+            final Deque<String[]> objects = new ArrayDeque<>();
+            String key = null;
+
+            while(parser.hasNext()) {
+                final JsonParser.Event event = parser.next();
+                switch(event) {
+                    case KEY_NAME:
+                        key = localName(parser.getString());
+                        break;
+
+                    case START_OBJECT:
+                        objects.push(new String[4]);
+                        key = null;
+                        break;
+
+                    case END_OBJECT:
+                        final String[] fields = objects.pop();
+                        if(fields[0] != null) {
+                            entries.accept(new IndexEntry(fields[0], fields[1], fields[2], fields[3]));
+                        }
+                        key = null;
+                        break;
+
+                    case VALUE_STRING:
+                    case VALUE_NUMBER:
+                        if(key != null && !objects.isEmpty()) {
+                            final int field = field(key);
+                            if(field != -1) {
+                                objects.peek()[field] = emptyToNull(parser.getString().trim());
+                            }
+                        }
+                        key = null;
+                        break;
+
+                    default:
+                        key = null;
+                        break;
+                }
+            }
+        } catch(final JsonException e) {
+            if(e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            throw new IOException("Unable to read JSON suggestions: " + e.getMessage(), e);
+        }
+    }
+
+    static void readCsv(final InputStream is, final Consumer<IndexEntry> entries) throws IOException {
+        final CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8)));
+
+        final List<String> header = reader.readRecord();
+        if(header == null) {
+            return;
+        }
+        final int[] columns = { -1, -1, -1, -1 };
+        for(int i = 0; i < header.size(); i++) {
+            final int field = field(header.get(i).trim().toLowerCase(Locale.ROOT));
+            if(field != -1) {
+                columns[field] = i;
+            }
+        }
+        if(columns[0] == -1) {
+            throw new IOException("CSV suggestions have no '" + VALUE + "' column");
+        }
+
+        List<String> record;
+        while((record = reader.readRecord()) != null) {
+            final String value = column(record, columns[0]);
+            if(value != null) {
+                entries.accept(new IndexEntry(value, column(record, columns[1]), column(record, columns[2]), column(record, columns[3])));
+            }
+        }
+    }
+
+    /**
+     * Get the index of a field of an entry
+     *
+     * @return the index, or -1 if the name is not that of a field
+     */
+    private static int field(final String name) {
+        switch(name) {
+            case VALUE:
+                return 0;
+
+            case DESCRIPTION:
+                return 1;
+
+            case SELECTION:
+                return 2;
+
+            case DEPENDENT:
+                return 3;
+
+            default:
+                return -1;
+        }
+    }
+
+    @Nullable
+    private static String column(final List<String> record, final int column) {
+        if(column == -1 || column >= record.size()) {
+            return null;
+        }
+        return emptyToNull(record.get(column).trim());
+    }
+
+    /**
+     * Removes any prefix from a name, e.g. the {@code tc:}
+     * of {@code tc:value} in suggestions from a server
+     */
+    private static String localName(final String name) {
+        final int idxColon = name.indexOf(':');
+        return idxColon == -1 ? name : name.substring(idxColon + 1);
+    }
+
+    @Nullable
+    private static String emptyToNull(@Nullable final String str) {
+        return str == null || str.isEmpty() ? null : str;
+    }
+
+    /**
+     * Reads the records of CSV (RFC 4180), fields may be
+     * quoted, and quoted fields may contain commas, escaped
+     * quotes ({@code ""}) and line breaks
+     */
+    static class CsvReader {
+        private final Reader reader;
+        private int next;
+
+        CsvReader(final Reader reader) throws IOException {
+            this.reader = reader;
+            this.next = reader.read();
+            if(next == '\uFEFF') {
+                //skip the byte order mark
+                this.next = reader.read();
+            }
+        }
+
+        /**
+         * Read the next record
+         *
+         * @return the fields of the record, or null if there are no more records
+         */
+        @Nullable
+        List<String> readRecord() throws IOException {
+            if(next == -1) {
+                return null;
+            }
+
+            final List<String> fields = new ArrayList<>();
+            final StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while(true) {
+                final int c = next;
+                if(c == -1) {
+                    if(quoted) {
+                        throw new IOException("Unterminated quoted field in CSV suggestions");
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                }
+                next = reader.read();
+
+                if(quoted) {
+                    if(c == '"') {
+                        if(next == '"') {
+                            field.append('"');
+                            next = reader.read();
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char)c);
+                    }
+                } else if(c == '"') {
+                    quoted = true;
+                } else if(c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if(c == '\r' || c == '\n') {
+                    if(c == '\r' && next == '\n') {
+                        next = reader.read();
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                } else {
+                    field.append((char)c);
+                }
+            }
+        }
+    }
+}
@@ -19,11 +19,18 @@
  */
 package org.humanistika.oxygen.tei.completer.remote;
 
+import org.humanistika.ns.tei_completer.Suggestion;
 import org.humanistika.ns.tei_completer.Suggestions;
 import org.humanistika.oxygen.tei.completer.configuration.beans.RequestInfo;
 import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseAction;
+import org.humanistika.oxygen.tei.completer.response.TransformationException;
 import javax.annotation.Nullable;
 
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
 /**
  * TEI Completer Client interface for getting auto-complete suggestions from a remote server
  *
@@ -44,4 +51,84 @@ public interface Client {
      * @return A list of auto-complete suggestions from the server
      */
     Suggestions getSuggestions(final RequestInfo requestInfo, final String selection, final String dependent, @Nullable final ResponseAction responseAction);
+
+    /**
+     * Asynchronously retrieve the suggestions for auto-complete from the server
+     *
+     * The calling thread is not blocked whilst the server is contacted.
+     * By default the suggestions are retrieved by {@link #getSuggestions(RequestInfo, String, String, ResponseAction)}
+     * on the common pool, clients should override this to use their own threads.
+     *
+     * @param requestInfo The base details for the request
+     * @param selection The selection
+     * @param dependent The dependent or null
+     * @param responseAction An optional action to take upon the response, or otherwise null
+     *
+     * @return A stage which completes with the list of auto-complete suggestions from the server
+     */
+    default CompletionStage<Suggestions> getSuggestionsAsync(final RequestInfo requestInfo, final String selection, final String dependent, @Nullable final ResponseAction responseAction) {
+        return CompletableFuture.supplyAsync(() -> getSuggestions(requestInfo, selection, dependent, responseAction));
+    }
+
+    /**
+     * Retrieve the suggestions for auto-complete from the server,
+     * publishing each suggestion as soon as it has been read
+     *
+     * A request is made to the server when a subscriber subscribes,
+     * the subscriber may therefore receive the first suggestions
+     * before the server has finished responding.
+     *
+     * By default the suggestions are published once they have all
+     * been retrieved by {@link #getSuggestionsAsync(RequestInfo, String, String, ResponseAction)},
+     * clients which can read suggestions incrementally should override this.
+     *
+     * @param requestInfo The base details for the request
+     * @param selection The selection
+     * @param dependent The dependent or null
+     * @param responseAction An optional action to take upon the response, or otherwise null
+     *
+     * @return A publisher of the auto-complete suggestions from the server
+     */
+    default Flow.Publisher<Suggestion> getSuggestionsPublisher(final RequestInfo requestInfo, final String selection, final String dependent, @Nullable final ResponseAction responseAction) {
+        return subscriber -> SuggestionPublisher.fromSuggestions(getSuggestionsAsync(requestInfo, selection, dependent, responseAction)).subscribe(subscriber);
+    }
+
+    /**
+     * Opens a connection to the server of a request
+     * ahead of the first request, so that the first request
+     * need not wait for the connection to be established
+     *
+     * By default nothing is done. A client which does not use
+     * a server may instead prepare whatever it finds suggestions in.
+     *
+     * @param requestInfo The base details for a request to the server,
+     *     or null for a client which does not use a server
+     *
+     * @throws IOException if the server cannot be contacted
+     */
+    default void warmUpConnection(@Nullable final RequestInfo requestInfo) throws IOException {
+    }
+
+    /**
+     * Prepares an action to take upon the response, e.g. compiling
+     * its transformation, ahead of the first response
+     *
+     * By default nothing is done.
+     *
+     * @param responseAction The action to take upon the response
+     *
+     * @throws IOException if the transformation cannot be read
+     * @throws TransformationException if the transformation cannot be compiled
+     */
+    default void warmUpResponseAction(final ResponseAction responseAction) throws IOException, TransformationException {
+    }
+
+    /**
+     * Releases the resources held by the client, e.g.
+     * its connections to the server, once it is no longer needed
+     *
+     * By default nothing is done.
+     */
+    default void close() {
+    }
 }
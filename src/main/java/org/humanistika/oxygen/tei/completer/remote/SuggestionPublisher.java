@@ -0,0 +1,180 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.remote;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.ns.tei_completer.Suggestions;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Publishers of suggestions for clients
+ *
+ * Suggestions are delivered to each subscriber by a
+ * {@link SubmissionPublisher}, so production blocks
+ * whilst the subscriber's buffer is full.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class SuggestionPublisher {
+
+    /**
+     * Produces suggestions
+     */
+    @FunctionalInterface
+    public interface Producer {
+        /**
+         * @param suggestions A consumer which receives each suggestion as soon as it has been produced
+         *
+         * @throws Exception if the suggestions cannot be produced, the exception is signalled to the subscriber
+         */
+        void produce(final Consumer<Suggestion> suggestions) throws Exception;
+    }
+
+    private SuggestionPublisher() {
+    }
+
+    /**
+     * Creates a publisher whose suggestions are produced
+     * incrementally by the producer
+     *
+     * The producer is run once for each subscriber, when it subscribes.
+     * If the subscriber cancels its subscription then the producer is
+     * interrupted, and any further suggestion that it produces causes
+     * a {@link CancellationException} to be thrown to it.
+     *
+     * @param executor The executor on which to run the producer
+     * @param producer The producer of the suggestions
+     *
+     * @return the publisher
+     */
+    public static Flow.Publisher<Suggestion> fromProducer(final ExecutorService executor, final Producer producer) {
+        return subscriber -> {
+            final SubmissionPublisher<Suggestion> publisher = new SubmissionPublisher<>();
+            final AtomicBoolean cancelled = new AtomicBoolean();
+            final AtomicReference<Future<?>> production = new AtomicReference<>();
+
+            publisher.subscribe(new CancellableSubscriber(subscriber, () -> {
+                cancelled.set(true);
+                final Future<?> producing = production.get();
+                if(producing != null) {
+                    producing.cancel(true);
+                }
+            }));
+
+            production.set(executor.submit(() -> {
+                try {
+                    producer.produce(suggestion -> {
+                        if(cancelled.get()) {
+                            throw new CancellationException();
+                        }
+                        publisher.submit(suggestion);
+                    });
+                    publisher.close();
+                } catch(final Throwable t) {
+                    publisher.closeExceptionally(t);
+                }
+            }));
+
+            //the subscription may have been cancelled before production started
+            if(cancelled.get()) {
+                production.get().cancel(true);
+            }
+        };
+    }
+
+    /**
+     * Creates a publisher of suggestions which
+     * are all available at once
+     *
+     * @param futureSuggestions The suggestions
+     *
+     * @return the publisher
+     */
+    public static Flow.Publisher<Suggestion> fromSuggestions(final CompletionStage<Suggestions> futureSuggestions) {
+        return subscriber -> {
+            final SubmissionPublisher<Suggestion> publisher = new SubmissionPublisher<>();
+            publisher.subscribe(subscriber);
+            futureSuggestions.whenComplete((suggestions, throwable) -> {
+                if(throwable != null) {
+                    publisher.closeExceptionally(throwable);
+                } else {
+                    suggestions.getSuggestion().forEach(publisher::submit);
+                    publisher.close();
+                }
+            });
+        };
+    }
+
+    /**
+     * Passes everything through to a subscriber, and
+     * calls a hook if the subscriber cancels its subscription
+     */
+    private static class CancellableSubscriber implements Flow.Subscriber<Suggestion> {
+        private final Flow.Subscriber<? super Suggestion> subscriber;
+        private final Runnable onCancel;
+
+        CancellableSubscriber(final Flow.Subscriber<? super Suggestion> subscriber, final Runnable onCancel) {
+            this.subscriber = subscriber;
+            this.onCancel = onCancel;
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(final long n) {
+                    subscription.request(n);
+                }
+
+                @Override
+                public void cancel() {
+                    subscription.cancel();
+                    onCancel.run();
+                }
+            });
+        }
+
+        @Override
+        public void onNext(final Suggestion suggestion) {
+            subscriber.onNext(suggestion);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            subscriber.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            subscriber.onComplete();
+        }
+    }
+}
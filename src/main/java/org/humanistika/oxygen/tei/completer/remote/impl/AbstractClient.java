@@ -19,14 +19,19 @@
  */
 package org.humanistika.oxygen.tei.completer.remote.impl;
 
+import org.humanistika.ns.tei_completer.Suggestions;
 import org.humanistika.oxygen.tei.completer.configuration.beans.RequestInfo;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseAction;
 import org.humanistika.oxygen.tei.completer.remote.Client;
 import javax.annotation.Nullable;
 
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.util.HashMap;
-import java.util.Map;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Base class for server clients
@@ -36,9 +41,26 @@ import java.util.Map;
  * @serial 20160126
  */
 public abstract class AbstractClient implements Client {
+    private final static int ASYNC_THREADS = 4;
+    private final static AtomicInteger asyncThreadCount = new AtomicInteger();
 
     /**
-     * Get the URL for connecting to the server
+     * Bounded pool of daemon threads used for asynchronous requests,
+     * shared by all clients
+     */
+    protected final static ExecutorService asyncExecutor = Executors.newFixedThreadPool(ASYNC_THREADS, runnable -> {
+        final Thread thread = new Thread(runnable, "tei-completer-client-" + asyncThreadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Override
+    public CompletionStage<Suggestions> getSuggestionsAsync(final RequestInfo requestInfo, final String selection, final String dependent, @Nullable final ResponseAction responseAction) {
+        return CompletableFuture.supplyAsync(() -> getSuggestions(requestInfo, selection, dependent, responseAction), asyncExecutor);
+    }
+
+    /**
+     * Get the URI for connecting to the server
      *
      * Completes the URL from autoComplete with the selection and dependent
      *
@@ -46,17 +68,11 @@ public abstract class AbstractClient implements Client {
      * @param selection The selection
      * @param dependent The dependent or null
      *
-     * @return The URL for connecting to the server
+     * @return The URI for connecting to the server
      *
-     * @throws MalformedURLException If the URL is not malformed
+     * @throws URISyntaxException If the URI is malformed
      */
-    protected URL getUrl(final RequestInfo requestInfo, final String selection, final @Nullable String dependent) throws MalformedURLException {
-        final Map<RequestInfo.UrlVar, String> substitutions = new HashMap<>();
-        substitutions.put(RequestInfo.UrlVar.SELECTION, selection);
-        if(dependent != null) {
-            substitutions.put(RequestInfo.UrlVar.DEPENDENT, dependent);
-        }
-
-        return requestInfo.getUrl(substitutions);
+    protected static URI getUri(final RequestInfo requestInfo, final String selection, final @Nullable String dependent) throws URISyntaxException {
+        return requestInfo.getUri(selection, dependent);
     }
 }
@@ -0,0 +1,395 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.remote.impl;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.ns.tei_completer.Suggestions;
+import org.humanistika.oxygen.tei.completer.configuration.beans.CacheInfo;
+import org.humanistika.oxygen.tei.completer.configuration.beans.RequestInfo;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseAction;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseMapping;
+import org.humanistika.oxygen.tei.completer.remote.Client;
+import org.humanistika.oxygen.tei.completer.remote.SuggestionPublisher;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client which caches the suggestions retrieved by
+ * another client
+ *
+ * Only requests whose {@link RequestInfo} has {@link CacheInfo}
+ * are cached, all other requests are passed directly to the
+ * underlying client.
+ *
+ * The cache is bounded in size, when it is full the least recently
+ * used suggestions are evicted.
+ *
+ * When the {@link CacheInfo} is prefix monotonic, a request which
+ * is not cached may be answered by filtering the cached suggestions
+ * of a shorter prefix of its selection. This relies upon the server
+ * only returning suggestions whose value starts with the selection,
+ * ignoring case.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class CachingClient extends DelegatingClient {
+    private final static Logger LOGGER = LoggerFactory.getLogger(CachingClient.class);
+    public final static int DEFAULT_MAX_ENTRIES = 1000;
+
+    private final Map<CacheKey, CachedSuggestions> cache;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong prefixHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * @param client The client to retrieve suggestions from when they are not cached
+     */
+    public CachingClient(final Client client) {
+        this(client, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param client The client to retrieve suggestions from when they are not cached
+     * @param maxEntries The maximum number of entries to hold in the cache
+     */
+    public CachingClient(final Client client, final int maxEntries) {
+        super(client);
+        this.cache = new LinkedHashMap<CacheKey, CachedSuggestions>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<CacheKey, CachedSuggestions> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public Suggestions getSuggestions(final RequestInfo requestInfo, final String selection, final String dependent, @Nullable final ResponseAction responseAction) {
+        final CacheInfo cacheInfo = requestInfo.getCacheInfo();
+        if(cacheInfo == null) {
+            return client.getSuggestions(requestInfo, selection, dependent, responseAction);
+        }
+
+        final CacheKey key = new CacheKey(requestInfo, selection, dependent, responseAction);
+        final long now = System.nanoTime();
+
+        final Suggestions cached = lookup(requestInfo, cacheInfo, selection, dependent, responseAction, key, now);
+        if(cached != null) {
+            return cached;
+        }
+
+        final Suggestions suggestions = client.getSuggestions(requestInfo, selection, dependent, responseAction);
+        store(cacheInfo, key, now, suggestions);
+        return suggestions;
+    }
+
+    @Override
+    public CompletionStage<Suggestions> getSuggestionsAsync(final RequestInfo requestInfo, final String selection, final String dependent, @Nullable final ResponseAction responseAction) {
+        final CacheInfo cacheInfo = requestInfo.getCacheInfo();
+        if(cacheInfo == null) {
+            return client.getSuggestionsAsync(requestInfo, selection, dependent, responseAction);
+        }
+
+        final CacheKey key = new CacheKey(requestInfo, selection, dependent, responseAction);
+        final long now = System.nanoTime();
+
+        final Suggestions cached = lookup(requestInfo, cacheInfo, selection, dependent, responseAction, key, now);
+        if(cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        final CompletableFuture<Suggestions> request = client.getSuggestionsAsync(requestInfo, selection, dependent, responseAction).toCompletableFuture();
+        request.thenAccept(suggestions -> store(cacheInfo, key, now, suggestions));
+        //callers may cancel whilst still having the suggestions cached when they arrive
+        return request.copy();
+    }
+
+    /**
+     * Suggestions which are not cached are published as they are
+     * received from the underlying client, and are cached once
+     * they have all been received
+     */
+    @Override
+    public Flow.Publisher<Suggestion> getSuggestionsPublisher(final RequestInfo requestInfo, final String selection, final String dependent, @Nullable final ResponseAction responseAction) {
+        final CacheInfo cacheInfo = requestInfo.getCacheInfo();
+        if(cacheInfo == null) {
+            return client.getSuggestionsPublisher(requestInfo, selection, dependent, responseAction);
+        }
+
+        return subscriber -> {
+            final CacheKey key = new CacheKey(requestInfo, selection, dependent, responseAction);
+            final long now = System.nanoTime();
+
+            final Suggestions cached = lookup(requestInfo, cacheInfo, selection, dependent, responseAction, key, now);
+            if(cached != null) {
+                SuggestionPublisher.fromSuggestions(CompletableFuture.completedFuture(cached)).subscribe(subscriber);
+            } else {
+                client.getSuggestionsPublisher(requestInfo, selection, dependent, responseAction)
+                        .subscribe(new CollectingSubscriber(subscriber, (suggestions, throwable) -> {
+                            if(throwable == null) {
+                                store(cacheInfo, key, now, suggestions);
+                            }
+                        }));
+            }
+        };
+    }
+
+    /**
+     * Get whatever suggestions are cached for a request,
+     * even if they have expired
+     *
+     * Intended as a fallback for when the server cannot
+     * provide suggestions in a timely manner.
+     *
+     * @param requestInfo The base details for the request
+     * @param selection The selection
+     * @param dependent The dependent or null
+     * @param responseAction An optional action to take upon the response, or otherwise null
+     *
+     * @return The cached suggestions, or null if there are none
+     */
+    @Nullable
+    public Suggestions getCachedSuggestions(final RequestInfo requestInfo, final String selection, @Nullable final String dependent, @Nullable final ResponseAction responseAction) {
+        final CacheKey key = new CacheKey(requestInfo, selection, dependent, responseAction);
+        final CachedSuggestions cached;
+        synchronized(cache) {
+            cached = cache.get(key);
+        }
+        return cached == null ? null : cached.suggestions;
+    }
+
+    /**
+     * Lookup the suggestions for a request in the cache
+     *
+     * @return The cached suggestions, or null if the request could not be answered from the cache
+     */
+    @Nullable
+    private Suggestions lookup(final RequestInfo requestInfo, final CacheInfo cacheInfo, final String selection, @Nullable final String dependent, @Nullable final ResponseAction responseAction, final CacheKey key, final long now) {
+        final CachedSuggestions cached;
+        synchronized(cache) {
+            cached = cache.get(key);
+        }
+
+        if(cached != null && !cached.isExpired(now)) {
+            final long hits = hitCount.incrementAndGet();
+            LOGGER.debug("Cache hit for selection '{}' and dependent '{}' (hits={}, misses={})", selection, dependent, hits, missCount.get());
+            return cached.suggestions;
+        }
+
+        if(cacheInfo.isPrefixMonotonic()) {
+            final Suggestions prefixSuggestions = getPrefixSuggestions(requestInfo, cacheInfo, selection, dependent, responseAction, key, now);
+            if(prefixSuggestions != null) {
+                final long hits = hitCount.incrementAndGet();
+                final long prefixHits = prefixHitCount.incrementAndGet();
+                LOGGER.debug("Cache prefix hit for selection '{}' and dependent '{}' (hits={}, prefixHits={}, misses={})", selection, dependent, hits, prefixHits, missCount.get());
+                return prefixSuggestions;
+            }
+        }
+
+        final long misses = missCount.incrementAndGet();
+        LOGGER.debug("Cache miss for selection '{}' and dependent '{}' (hits={}, misses={})", selection, dependent, hitCount.get(), misses);
+        return null;
+    }
+
+    private void store(final CacheInfo cacheInfo, final CacheKey key, final long now, final Suggestions suggestions) {
+        // NOTE: the underlying client reports errors as empty suggestions, so we don't cache those
+        if(!suggestions.getSuggestion().isEmpty()) {
+            final long expires = now + TimeUnit.SECONDS.toNanos(cacheInfo.getTimeToLive());
+            synchronized(cache) {
+                cache.put(key, new CachedSuggestions(suggestions, expires));
+            }
+        }
+    }
+
+    /**
+     * Attempts to answer a request by filtering the cached suggestions
+     * of the longest shorter prefix of the selection
+     *
+     * Only the suggestions whose value starts with the selection, ignoring
+     * case, are kept. Cached suggestions which have reached the
+     * {@link CacheInfo#getResultLimit()} may have been truncated by the
+     * server, and so are never used.
+     *
+     * @param requestInfo The base details for the request
+     * @param cacheInfo The cache details for the request
+     * @param selection The selection
+     * @param dependent The dependent or null
+     * @param responseAction An optional action to take upon the response, or otherwise null
+     * @param key The cache key for the selection
+     * @param now The current time in nanoseconds
+     *
+     * @return The filtered suggestions, or null if there are no suitable cached suggestions
+     */
+    @Nullable
+    private Suggestions getPrefixSuggestions(final RequestInfo requestInfo, final CacheInfo cacheInfo, final String selection, @Nullable final String dependent, @Nullable final ResponseAction responseAction, final CacheKey key, final long now) {
+        for(int prefixLen = selection.length() - 1; prefixLen > 0; prefixLen--) {
+            final CacheKey prefixKey = new CacheKey(requestInfo, selection.substring(0, prefixLen), dependent, responseAction);
+
+            final CachedSuggestions cached;
+            synchronized(cache) {
+                cached = cache.get(prefixKey);
+            }
+
+            if(cached == null || cached.isExpired(now)) {
+                continue;
+            }
+
+            if(cacheInfo.getResultLimit() != null && cached.suggestions.getSuggestion().size() >= cacheInfo.getResultLimit()) {
+                // the cached suggestions may have been truncated by the server, a longer selection may have further suggestions
+                return null;
+            }
+
+            final Suggestions filtered = new Suggestions();
+            for(final Suggestion suggestion : cached.suggestions.getSuggestion()) {
+                final String value = suggestion.getValue();
+                if(value != null && value.regionMatches(true, 0, selection, 0, selection.length())) {
+                    filtered.getSuggestion().add(suggestion);
+                }
+            }
+
+            //as with the server's suggestions, empty suggestions are not cached
+            if(!filtered.getSuggestion().isEmpty()) {
+                synchronized(cache) {
+                    cache.put(key, new CachedSuggestions(filtered, cached.expires));
+                }
+            }
+
+            return filtered;
+        }
+
+        return null;
+    }
+
+    /**
+     * Get the number of requests which were answered from the cache
+     *
+     * @return the number of cache hits
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Get the number of requests which were answered from the cache
+     * by filtering the suggestions of a shorter prefix of the selection
+     *
+     * These are a subset of the {@link #getHitCount()}.
+     *
+     * @return the number of cache prefix hits
+     */
+    public long getPrefixHitCount() {
+        return prefixHitCount.get();
+    }
+
+    /**
+     * Get the number of requests which could not be answered from the cache
+     *
+     * @return the number of cache misses
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Get the number of entries currently in the cache
+     *
+     * @return the number of cached entries
+     */
+    public int size() {
+        synchronized(cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Removes all entries from the cache
+     */
+    public void clear() {
+        synchronized(cache) {
+            cache.clear();
+        }
+    }
+
+    private static class CachedSuggestions {
+        final Suggestions suggestions;
+        final long expires;
+
+        CachedSuggestions(final Suggestions suggestions, final long expires) {
+            this.suggestions = suggestions;
+            this.expires = expires;
+        }
+
+        boolean isExpired(final long now) {
+            return now - expires >= 0;
+        }
+    }
+
+    private static class CacheKey {
+        final String urlTemplate;
+        @Nullable final String username;
+        final String selection;
+        @Nullable final String dependent;
+        @Nullable final Path transformation;
+        @Nullable final ResponseMapping mapping;
+
+        CacheKey(final RequestInfo requestInfo, final String selection, @Nullable final String dependent, @Nullable final ResponseAction responseAction) {
+            this.urlTemplate = requestInfo.getUrlTemplate();
+            this.username = requestInfo.getAuthentication() == null ? null : requestInfo.getAuthentication().getUsername();
+            this.selection = selection;
+            this.dependent = dependent;
+            this.transformation = responseAction == null ? null : responseAction.getTransformation();
+            this.mapping = responseAction == null ? null : responseAction.getMapping();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(!(obj instanceof CacheKey)) {
+                return false;
+            }
+            final CacheKey other = (CacheKey)obj;
+            return urlTemplate.equals(other.urlTemplate)
+                    && Objects.equals(username, other.username)
+                    && selection.equals(other.selection)
+                    && Objects.equals(dependent, other.dependent)
+                    && Objects.equals(transformation, other.transformation)
+                    && Objects.equals(mapping, other.mapping);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(urlTemplate, username, selection, dependent, transformation, mapping);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.remote.impl;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.ns.tei_completer.Suggestions;
+import org.humanistika.oxygen.tei.completer.configuration.beans.RequestInfo;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseAction;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseMapping;
+import org.humanistika.oxygen.tei.completer.remote.Client;
+import org.humanistika.oxygen.tei.completer.remote.SuggestionPublisher;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Client which coalesces identical concurrent requests,
+ * so that they share a single request to the server
+ * made by another client
+ *
+ * Requests are identical if they have the same expanded URL,
+ * username, and response action. A request which arrives whilst
+ * an identical request is in-flight receives the same suggestions
+ * as that request, once they are available.
+ *
+ * If the subscriber which made a published request cancels its
+ * subscription, then only that subscriber is detached, the request
+ * is no longer shared, and any request which was waiting for it
+ * is made again, so that the next to arrive becomes the request
+ * which is shared.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class CoalescingClient extends DelegatingClient {
+    private final static Logger LOGGER = LoggerFactory.getLogger(CoalescingClient.class);
+
+    private final ConcurrentHashMap<RequestKey, CompletableFuture<Suggestions>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * @param client The client to make the requests to the server
+     */
+    public CoalescingClient(final Client client) {
+        super(client);
+    }
+
+    @Override
+    public Suggestions getSuggestions(final RequestInfo requestInfo, final String selection, final String dependent, @Nullable final ResponseAction responseAction) {
+        final RequestKey key = RequestKey.of(requestInfo, selection, dependent, responseAction);
+        if(key == null) {
+            return client.getSuggestions(requestInfo, selection, dependent, responseAction);
+        }
+
+        final CompletableFuture<Suggestions> leader = new CompletableFuture<>();
+        final CompletableFuture<Suggestions> existing = inFlight.putIfAbsent(key, leader);
+        if(existing != null) {
+            coalesced(key);
+            try {
+                return existing.get();
+            } catch(final CancellationException e) {
+                //the shared request was cancelled by its subscriber, so make the request again
+                return getSuggestions(requestInfo, selection, dependent, responseAction);
+            } catch(final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new Suggestions();
+            } catch(final ExecutionException e) {
+                LOGGER.error(e.getMessage(), e);
+                return new Suggestions();
+            }
+        }
+
+        try {
+            final Suggestions suggestions = client.getSuggestions(requestInfo, selection, dependent, responseAction);
+            leader.complete(suggestions);
+            return suggestions;
+        } catch(final RuntimeException | Error e) {
+            leader.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, leader);
+        }
+    }
+
+    @Override
+    public CompletionStage<Suggestions> getSuggestionsAsync(final RequestInfo requestInfo, final String selection, final String dependent, @Nullable final ResponseAction responseAction) {
+        final RequestKey key = RequestKey.of(requestInfo, selection, dependent, responseAction);
+        if(key == null) {
+            return client.getSuggestionsAsync(requestInfo, selection, dependent, responseAction);
+        }
+
+        final CompletableFuture<Suggestions> leader = new CompletableFuture<>();
+        final CompletableFuture<Suggestions> existing = inFlight.putIfAbsent(key, leader);
+        if(existing != null) {
+            final CompletableFuture<Suggestions> follower = follow(existing, () -> getSuggestionsAsync(requestInfo, selection, dependent, responseAction));
+            coalesced(key);
+            return follower;
+        }
+
+        client.getSuggestionsAsync(requestInfo, selection, dependent, responseAction)
+                .whenComplete((suggestions, throwable) -> {
+                    inFlight.remove(key, leader);
+                    if(throwable != null) {
+                        leader.completeExceptionally(throwable);
+                    } else {
+                        leader.complete(suggestions);
+                    }
+                });
+        //callers may not complete the shared future
+        return leader.copy();
+    }
+
+    /**
+     * A subscriber which subscribes whilst an identical request
+     * is in-flight receives the suggestions of that request once
+     * they are all available, otherwise the suggestions are
+     * published as they are received from the underlying client
+     */
+    @Override
+    public Flow.Publisher<Suggestion> getSuggestionsPublisher(final RequestInfo requestInfo, final String selection, final String dependent, @Nullable final ResponseAction responseAction) {
+        final RequestKey key = RequestKey.of(requestInfo, selection, dependent, responseAction);
+        if(key == null) {
+            return client.getSuggestionsPublisher(requestInfo, selection, dependent, responseAction);
+        }
+
+        return subscriber -> {
+            final CompletableFuture<Suggestions> leader = new CompletableFuture<>();
+            final CompletableFuture<Suggestions> existing = inFlight.putIfAbsent(key, leader);
+            if(existing != null) {
+                final CompletableFuture<Suggestions> follower = follow(existing, () -> getSuggestionsAsync(requestInfo, selection, dependent, responseAction));
+                coalesced(key);
+                SuggestionPublisher.fromSuggestions(follower).subscribe(subscriber);
+                return;
+            }
+
+            client.getSuggestionsPublisher(requestInfo, selection, dependent, responseAction)
+                    .subscribe(new CollectingSubscriber(subscriber, (suggestions, throwable) -> {
+                        inFlight.remove(key, leader);
+                        if(throwable != null) {
+                            leader.completeExceptionally(throwable);
+                        } else {
+                            leader.complete(suggestions);
+                        }
+                    }));
+        };
+    }
+
+    /**
+     * Follows a shared request, if the shared request is
+     * cancelled by its subscriber then the request is retried
+     *
+     * @param shared The shared request
+     * @param retry Makes the request again
+     *
+     * @return the suggestions of the shared request, or of the retried request
+     */
+    private static CompletableFuture<Suggestions> follow(final CompletableFuture<Suggestions> shared, final Supplier<CompletionStage<Suggestions>> retry) {
+        final CompletableFuture<Suggestions> follower = new CompletableFuture<>();
+        shared.whenComplete((suggestions, throwable) -> {
+            if(throwable instanceof CancellationException) {
+                retry.get().whenComplete((retriedSuggestions, retriedThrowable) -> complete(follower, retriedSuggestions, retriedThrowable));
+            } else {
+                complete(follower, suggestions, throwable);
+            }
+        });
+        return follower;
+    }
+
+    private static void complete(final CompletableFuture<Suggestions> future, @Nullable final Suggestions suggestions, @Nullable final Throwable throwable) {
+        if(throwable != null) {
+            future.completeExceptionally(throwable);
+        } else {
+            future.complete(suggestions);
+        }
+    }
+
+    private void coalesced(final RequestKey key) {
+        final long coalesced = coalescedCount.incrementAndGet();
+        LOGGER.debug("Coalesced request for: {} with an in-flight request (coalesced={})", key.url, coalesced);
+    }
+
+    /**
+     * Get the number of requests which shared the
+     * response of an identical in-flight request
+     *
+     * @return the number of coalesced requests
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Get the number of distinct requests currently in-flight
+     *
+     * @return the number of in-flight requests
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private static class RequestKey {
+        final String url;
+        @Nullable final String username;
+        @Nullable final Path transformation;
+        @Nullable final ResponseMapping mapping;
+
+        private RequestKey(final String url, @Nullable final String username, @Nullable final ResponseAction responseAction) {
+            this.url = url;
+            this.username = username;
+            this.transformation = responseAction == null ? null : responseAction.getTransformation();
+            this.mapping = responseAction == null ? null : responseAction.getMapping();
+        }
+
+        /**
+         * @return the key, or null if the URL for the request cannot be expanded
+         */
+        @Nullable
+        static RequestKey of(final RequestInfo requestInfo, final String selection, @Nullable final String dependent, @Nullable final ResponseAction responseAction) {
+            final String url;
+            try {
+                url = AbstractClient.getUri(requestInfo, selection, dependent).toString();
+            } catch(final URISyntaxException e) {
+                return null;
+            }
+            final String username = requestInfo.getAuthentication() == null ? null : requestInfo.getAuthentication().getUsername();
+            return new RequestKey(url, username, responseAction);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(!(obj instanceof RequestKey)) {
+                return false;
+            }
+            final RequestKey other = (RequestKey)obj;
+            return url.equals(other.url)
+                    && Objects.equals(username, other.username)
+                    && Objects.equals(transformation, other.transformation)
+                    && Objects.equals(mapping, other.mapping);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(url, username, transformation, mapping);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.remote.impl;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.ns.tei_completer.Suggestions;
+import javax.annotation.Nullable;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * Passes suggestions through to a subscriber whilst
+ * collecting them, and reports the collected suggestions
+ * once they have all been received
+ *
+ * If the subscriber cancels its subscription, or the publisher
+ * signals an error, then the completion receives the exception
+ * instead of the suggestions.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+class CollectingSubscriber implements Flow.Subscriber<Suggestion> {
+    private final Flow.Subscriber<? super Suggestion> subscriber;
+    private final BiConsumer<Suggestions, Throwable> completion;
+    private final Suggestions suggestions = new Suggestions();
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    /**
+     * @param subscriber The subscriber to pass the suggestions through to
+     * @param completion Receives either the collected suggestions, or the reason that they could not be collected
+     */
+    CollectingSubscriber(final Flow.Subscriber<? super Suggestion> subscriber, final BiConsumer<Suggestions, Throwable> completion) {
+        this.subscriber = subscriber;
+        this.completion = completion;
+    }
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(final long n) {
+                subscription.request(n);
+            }
+
+            @Override
+            public void cancel() {
+                subscription.cancel();
+                complete(null, new CancellationException());
+            }
+        });
+    }
+
+    @Override
+    public void onNext(final Suggestion suggestion) {
+        suggestions.getSuggestion().add(suggestion);
+        subscriber.onNext(suggestion);
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+        complete(null, throwable);
+        subscriber.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        complete(suggestions, null);
+        subscriber.onComplete();
+    }
+
+    private void complete(@Nullable final Suggestions suggestions, @Nullable final Throwable throwable) {
+        if(completed.compareAndSet(false, true)) {
+            completion.accept(suggestions, throwable);
+        }
+    }
+}
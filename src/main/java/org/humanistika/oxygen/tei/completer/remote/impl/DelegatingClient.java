@@ -0,0 +1,90 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.remote.impl;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.ns.tei_completer.Suggestions;
+import org.humanistika.oxygen.tei.completer.configuration.beans.RequestInfo;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseAction;
+import org.humanistika.oxygen.tei.completer.remote.Client;
+import org.humanistika.oxygen.tei.completer.response.TransformationException;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Base class for clients which decorate another client,
+ * by default all requests are passed to the underlying client
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public abstract class DelegatingClient implements Client {
+    protected final Client client;
+
+    /**
+     * @param client The underlying client
+     */
+    protected DelegatingClient(final Client client) {
+        this.client = client;
+    }
+
+    /**
+     * Get the underlying client
+     *
+     * @return the underlying client
+     */
+    public Client getClient() {
+        return client;
+    }
+
+    @Override
+    public Suggestions getSuggestions(final RequestInfo requestInfo, final String selection, final String dependent, @Nullable final ResponseAction responseAction) {
+        return client.getSuggestions(requestInfo, selection, dependent, responseAction);
+    }
+
+    @Override
+    public CompletionStage<Suggestions> getSuggestionsAsync(final RequestInfo requestInfo, final String selection, final String dependent, @Nullable final ResponseAction responseAction) {
+        return client.getSuggestionsAsync(requestInfo, selection, dependent, responseAction);
+    }
+
+    @Override
+    public Flow.Publisher<Suggestion> getSuggestionsPublisher(final RequestInfo requestInfo, final String selection, final String dependent, @Nullable final ResponseAction responseAction) {
+        return client.getSuggestionsPublisher(requestInfo, selection, dependent, responseAction);
+    }
+
+    @Override
+    public void warmUpConnection(final RequestInfo requestInfo) throws IOException {
+        client.warmUpConnection(requestInfo);
+    }
+
+    @Override
+    public void warmUpResponseAction(final ResponseAction responseAction) throws IOException, TransformationException {
+        client.warmUpResponseAction(responseAction);
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+}
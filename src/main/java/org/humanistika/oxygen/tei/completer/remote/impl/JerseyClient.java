@@ -19,26 +19,46 @@
  */
 package org.humanistika.oxygen.tei.completer.remote.impl;
 
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultRoutePlanner;
 import org.eclipse.persistence.jaxb.UnmarshallerProperties;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.apache.connector.ApacheHttpClientBuilderConfigurator;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
 import org.glassfish.jersey.client.authentication.HttpAuthenticationFeature;
 import org.glassfish.jersey.client.filter.EncodingFilter;
 import org.glassfish.jersey.message.GZipEncoder;
 import org.glassfish.jersey.moxy.json.MoxyJsonConfig;
+import org.humanistika.ns.tei_completer.Suggestion;
 import org.humanistika.ns.tei_completer.Suggestions;
 import org.humanistika.oxygen.tei.completer.configuration.beans.RequestInfo;
 import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseAction;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseMapping;
 import org.humanistika.oxygen.tei.completer.remote.ClientFactory;
-import org.humanistika.oxygen.tei.completer.response.Transformer;
+import org.humanistika.oxygen.tei.completer.remote.SuggestionPublisher;
+import org.humanistika.oxygen.tei.completer.response.ResponseMapper;
 import org.humanistika.oxygen.tei.completer.response.TransformationException;
+import org.humanistika.oxygen.tei.completer.response.impl.JSONResponseMapper;
 import org.humanistika.oxygen.tei.completer.response.impl.JSONTransformer;
+import org.humanistika.oxygen.tei.completer.response.impl.XMLResponseMapper;
 import org.humanistika.oxygen.tei.completer.response.impl.XMLTransformer;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.ClientRequestFilter;
 import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ContextResolver;
@@ -46,13 +66,25 @@ import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.util.JAXBResult;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.stream.StreamSource;
 import java.io.*;
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 /**
  * Server client implemented using Jersey
@@ -68,8 +100,51 @@ public class JerseyClient extends AbstractClient {
         namespacePrefixMapper.put("http://www.w3.org/2001/XMLSchema-instance", "xsi");
         namespacePrefixMapper.put("http://humanistika.org/ns/tei-completer", "tc");
     }
-    protected final static Transformer jsonTransformer = new JSONTransformer();
-    protected final static Transformer xmlTransformer = new XMLTransformer();
+    protected final static JSONTransformer jsonTransformer = new JSONTransformer();
+    protected final static XMLTransformer xmlTransformer = new XMLTransformer();
+
+    private final static int MAX_IDLE_UNMARSHALLERS = 8;
+    private final static UnmarshallerPool xmlUnmarshallers = new UnmarshallerPool(
+            () -> JAXBContext.newInstance(Suggestions.class),
+            unmarshaller -> {},
+            MAX_IDLE_UNMARSHALLERS);
+    private final static UnmarshallerPool jsonUnmarshallers = new UnmarshallerPool(
+            () -> org.eclipse.persistence.jaxb.JAXBContextFactory.createContext(new Class[]{Suggestions.class}, null),
+            JerseyClient::configureJsonUnmarshaller,
+            MAX_IDLE_UNMARSHALLERS);
+
+    private final static QName SUGGESTION = new QName("http://humanistika.org/ns/tei-completer", "suggestion");
+    private final static XMLInputFactory xmlInputFactory = XMLInputFactory.newFactory();
+    static {
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+    /**
+     * Connections are pooled per host (route) and shared by all clients,
+     * so that the cost of establishing a connection, and in particular of
+     * the TLS handshake, is only paid by the first request to a server
+     */
+    private final static int MAX_CONNECTIONS = 32;
+    private final static int MAX_CONNECTIONS_PER_HOST = 8;
+    private final static long MAX_KEEP_ALIVE = 60_000;  // milliseconds
+    private final static int VALIDATE_AFTER_INACTIVITY = 2_000;  // milliseconds
+    private final static PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+    static {
+        connectionManager.setMaxTotal(MAX_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_HOST);
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY);
+    }
+
+    /**
+     * The request property which holds the {@link RequestAborter} of a request,
+     * it is handed to the Apache HttpClient through {@link #currentAborter}, as
+     * Jersey runs the request filters and the connector on the same thread
+     */
+    private final static String ABORTER_PROPERTY = JerseyClient.class.getName() + ".aborter";
+    final static ThreadLocal<RequestAborter> currentAborter = new ThreadLocal<>();
+
+    private final static JSONResponseMapper SUGGESTIONS_JSON_MAPPER = new JSONResponseMapper(
+            new ResponseMapping("/tc:suggestion", "/tc:value", "/tc:description"));
 
     protected final Client client;
 
@@ -77,7 +152,7 @@ public class JerseyClient extends AbstractClient {
      * @param authenticationType The type of authentication to use in the request
      */
     public JerseyClient(final ClientFactory.AuthenticationType authenticationType) {
-        this(authenticationType, ClientBuilder.newClient());
+        this(authenticationType, ClientBuilder.newClient(createPooledClientConfig()));
     }
 
     /**
@@ -91,7 +166,15 @@ public class JerseyClient extends AbstractClient {
         this.client = client
                 .register(GZipEncoder.class)
                 .register(EncodingFilter.class)
-                .register(createMoxyJsonResolver());
+                .register(createMoxyJsonResolver())
+                .register((ClientRequestFilter) requestContext -> {
+                    final Object aborter = requestContext.getProperty(ABORTER_PROPERTY);
+                    if(aborter instanceof RequestAborter) {
+                        currentAborter.set((RequestAborter)aborter);
+                    } else {
+                        currentAborter.remove();
+                    }
+                });
 
         switch(authenticationType) {
             case PREEMPTIVE_BASIC:
@@ -114,6 +197,60 @@ public class JerseyClient extends AbstractClient {
         }
     }
 
+    /**
+     * Creates a configuration for a client which uses
+     * the Apache HttpClient connector, with the shared pool
+     * of persistent connections
+     *
+     * Connections are kept alive for as long as the server allows,
+     * but no longer than {@link #MAX_KEEP_ALIVE}. Each request is
+     * captured before it is sent, so that it can be aborted.
+     *
+     * Requests are routed through the proxy, if any, which the JVM's
+     * default {@link java.net.ProxySelector} chooses for them, so that
+     * the proxy settings of Oxygen and the {@code http.proxyHost} etc.
+     * system properties are respected.
+     *
+     * @return the client configuration
+     */
+    static ClientConfig createPooledClientConfig() {
+        final DefaultConnectionKeepAliveStrategy serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE;
+        return new ClientConfig()
+                .connectorProvider(new ApacheConnectorProvider())
+                .property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager)
+                .property(ApacheClientProperties.CONNECTION_MANAGER_SHARED, true)
+                .register((ApacheHttpClientBuilderConfigurator) httpClientBuilder ->
+                        httpClientBuilder
+                                .setKeepAliveStrategy((response, context) -> {
+                                    final long keepAlive = serverKeepAlive.getKeepAliveDuration(response, context);
+                                    return keepAlive < 0 ? MAX_KEEP_ALIVE : Math.min(keepAlive, MAX_KEEP_ALIVE);
+                                })
+                                //NOTE: without a proxy selector, the default selector at the time of each request is used
+                                .setRoutePlanner(new SystemDefaultRoutePlanner(null))
+                                .addInterceptorFirst((HttpRequestInterceptor) (request, context) -> captureAbortableRequest(request))
+                );
+    }
+
+    /**
+     * Hands the request which the Apache HttpClient is about
+     * to send to the aborter of the current thread, if any
+     *
+     * @param request The request, or a wrapper of it
+     */
+    static void captureAbortableRequest(final HttpRequest request) {
+        final RequestAborter aborter = currentAborter.get();
+        if(aborter == null) {
+            return;
+        }
+        //only the first request, a redirect is aborted through the original request
+        currentAborter.remove();
+
+        final HttpRequest original = request instanceof HttpRequestWrapper ? ((HttpRequestWrapper)request).getOriginal() : request;
+        if(original instanceof HttpUriRequest) {
+            aborter.setRequest((HttpUriRequest)original);
+        }
+    }
+
     public static ContextResolver<MoxyJsonConfig> createMoxyJsonResolver() {
         final MoxyJsonConfig moxyJsonConfig = new MoxyJsonConfig();
         moxyJsonConfig.setNamespacePrefixMapper(namespacePrefixMapper).setNamespaceSeparator(':');
@@ -123,18 +260,8 @@ public class JerseyClient extends AbstractClient {
     @Override
     public Suggestions getSuggestions(final RequestInfo requestInfo, final String selection, final String dependent, @Nullable final ResponseAction responseAction) {
         try {
-            final URL url = getUrl(requestInfo, selection, dependent);
-
-            Invocation.Builder requestBuilder = client
-                    .target(url.toURI())
-                    .request()
-                    .accept(MediaType.APPLICATION_XML, MediaType.TEXT_XML, MediaType.APPLICATION_JSON);
-
-            if(requestInfo.getAuthentication() != null) {
-                requestBuilder = requestBuilder
-                        .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_USERNAME, requestInfo.getAuthentication().getUsername())
-                        .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_PASSWORD, requestInfo.getAuthentication().getPassword());
-            }
+            final URI uri = getUri(requestInfo, selection, dependent);
+            final Invocation.Builder requestBuilder = newRequest(requestInfo, uri);
 
             if(responseAction == null) {
                 //response does not require transformation
@@ -144,62 +271,313 @@ public class JerseyClient extends AbstractClient {
                 final Response response = requestBuilder.get();
                 try(final InputStream is = response.readEntity(InputStream.class)) {
                     final MediaType mediaType = response.getMediaType();
-                    final Path transformation = responseAction.getTransformation();
-                    if (mediaType != null && mediaType.isCompatible(MediaType.APPLICATION_XML_TYPE)
-                            || mediaType.isCompatible(MediaType.TEXT_XML_TYPE)) {
-                        //custom XML response
-                        LOGGER.debug("Transforming XML response from: {} using: {}", url, transformation);
-                        return transformXmlResponse(is, transformation);
-                    } else if (mediaType != null && mediaType.isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
-                        LOGGER.debug("Transforming JSON response from: {} using: {}", url, transformation);
-                        //custom JSON response
-                        return transformJsonResponse(is, transformation);
+                    final ResponseMapping mapping = responseAction.getMapping();
+                    if (mapping != null) {
+                        final Suggestions suggestions = new Suggestions();
+                        mapResponse(uri, is, mediaType, mapping, suggestions.getSuggestion()::add);
+                        return suggestions;
                     } else {
-                        LOGGER.error("Response from {} has unsupported Content-Type: {}", url, mediaType); //TODO(AR) maybe something more visible to the user
-                        return new Suggestions();
+                        return transformResponse(uri, is, mediaType, responseAction.getTransformation());
                     }
                 }
             }
-        } catch(final URISyntaxException | IOException | TransformationException e) {
+        } catch(final URISyntaxException | IOException | TransformationException | ProcessingException e) {
             LOGGER.error(e.getMessage(), e); //TODO(AR) maybe something more visible to the user
             return new Suggestions();
         }
     }
 
-    private Suggestions transformXmlResponse(final InputStream is, final Path transformation) throws IOException, TransformationException {
-        try(final ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-            xmlTransformer.transform(is, transformation, os);
+    /**
+     * Suggestions are published as they are read from the response,
+     * unless the response requires a transformation, in which case they
+     * are published once the transformation has completed
+     */
+    @Override
+    public Flow.Publisher<Suggestion> getSuggestionsPublisher(final RequestInfo requestInfo, final String selection, final String dependent, @Nullable final ResponseAction responseAction) {
+        return SuggestionPublisher.fromProducer(asyncExecutor, suggestions -> streamSuggestions(requestInfo, selection, dependent, responseAction, suggestions));
+    }
 
-            try(final InputStream resultIs = new ByteArrayInputStream(os.toByteArray())) {
-                final JAXBContext context = JAXBContext.newInstance(Suggestions.class);
-                final Unmarshaller unmarshaller = context.createUnmarshaller();
-                return (Suggestions)unmarshaller.unmarshal(resultIs);
-            } catch(final JAXBException e) {
-                throw new TransformationException(e);
+    /**
+     * Opens a pooled connection to the server by making a HEAD
+     * request to the root of the server, which also completes any
+     * authentication challenge. The unmarshallers for the suggestions
+     * are also prepared.
+     */
+    @Override
+    public void warmUpConnection(final RequestInfo requestInfo) throws IOException {
+        final URL url = requestInfo.getUrl(null);
+        final URL serverUrl = new URL(url.getProtocol(), url.getHost(), url.getPort(), "/");
+        try {
+            newRequest(requestInfo, serverUrl.toURI()).head().close();
+        } catch(final URISyntaxException | ProcessingException e) {
+            throw new IOException("Unable to connect to: " + serverUrl + ": " + e.getMessage(), e);
+        }
+
+        try {
+            xmlUnmarshallers.release(xmlUnmarshallers.borrow());
+            jsonUnmarshallers.release(jsonUnmarshallers.borrow());
+        } catch(final JAXBException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Compiles the transformation of the response action,
+     * JavaScript transformations are identified by a {@code .js}
+     * file extension, all others are assumed to be XSLT
+     */
+    @Override
+    public void warmUpResponseAction(final ResponseAction responseAction) throws IOException, TransformationException {
+        final Path transformation = responseAction.getTransformation();
+        if(transformation != null) {
+            if(transformation.getFileName().toString().toLowerCase().endsWith(".js")) {
+                jsonTransformer.compile(transformation);
+            } else {
+                xmlTransformer.compile(transformation);
             }
         }
     }
 
+    /**
+     * Closes the Jersey client, the pooled connections
+     * are shared by all clients and so are kept open
+     */
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    private void streamSuggestions(final RequestInfo requestInfo, final String selection, final String dependent, @Nullable final ResponseAction responseAction, final Consumer<Suggestion> suggestions) throws URISyntaxException, IOException, TransformationException {
+        final URI uri = getUri(requestInfo, selection, dependent);
+        final Response response = getInterruptibly(newRequest(requestInfo, uri));
+        try(final InputStream is = response.readEntity(InputStream.class)) {
+            if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                throw new IOException("Response from " + uri + " has status: " + response.getStatus());
+            }
+
+            final MediaType mediaType = response.getMediaType();
+            if (responseAction == null) {
+                if (isXml(mediaType)) {
+                    unmarshalXmlSuggestions(is, suggestions);
+                } else if (isJson(mediaType)) {
+                    SUGGESTIONS_JSON_MAPPER.map(is, suggestions);
+                } else {
+                    throw new TransformationException("Response from " + uri + " has unsupported Content-Type: " + mediaType);
+                }
+            } else if (responseAction.getMapping() != null) {
+                mapResponse(uri, is, mediaType, responseAction.getMapping(), suggestions);
+            } else {
+                transformResponse(uri, is, mediaType, responseAction.getTransformation()).getSuggestion().forEach(suggestions);
+            }
+        }
+    }
+
+    /**
+     * Makes the request asynchronously and waits for the response,
+     * if the waiting thread is interrupted then the request is aborted
+     *
+     * With the Apache HttpClient, aborting the request shuts down its
+     * connection, which unblocks the worker thread that is sending the
+     * request or reading the response. With any other connector, the
+     * worker thread runs to completion, and a response which arrives
+     * after the request was aborted is closed, so that its connection
+     * is returned to the pool.
+     */
+    private static Response getInterruptibly(final Invocation.Builder requestBuilder) throws IOException {
+        final RequestAborter aborter = new RequestAborter();
+        final CompletableFuture<Response> response = new CompletableFuture<>();
+        final Future<Response> futureResponse = requestBuilder.property(ABORTER_PROPERTY, aborter).async().get(new InvocationCallback<Response>() {
+            @Override
+            public void completed(final Response r) {
+                if(!response.complete(r)) {
+                    //the request was aborted
+                    r.close();
+                }
+            }
+
+            @Override
+            public void failed(final Throwable throwable) {
+                response.completeExceptionally(throwable);
+            }
+        });
+
+        try {
+            return response.get();
+        } catch(final InterruptedException e) {
+            response.cancel(false);
+            futureResponse.cancel(true);
+            aborter.abort();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request was aborted");
+        } catch(final ExecutionException e) {
+            if(e.getCause() instanceof ProcessingException) {
+                throw (ProcessingException)e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Aborts a request which is sent by the Apache HttpClient,
+     * the request may be aborted before it has been sent
+     */
+    static class RequestAborter {
+        @Nullable private HttpUriRequest request = null;
+        private boolean aborted = false;
+
+        synchronized void setRequest(final HttpUriRequest request) {
+            if(aborted) {
+                request.abort();
+            } else {
+                this.request = request;
+            }
+        }
+
+        synchronized void abort() {
+            aborted = true;
+            if(request != null) {
+                request.abort();
+            }
+        }
+    }
+
+    private Invocation.Builder newRequest(final RequestInfo requestInfo, final URI uri) {
+        Invocation.Builder requestBuilder = client
+                .target(uri)
+                .request()
+                .accept(MediaType.APPLICATION_XML, MediaType.TEXT_XML, MediaType.APPLICATION_JSON);
+
+        if(requestInfo.getAuthentication() != null) {
+            requestBuilder = requestBuilder
+                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_USERNAME, requestInfo.getAuthentication().getUsername())
+                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_PASSWORD, requestInfo.getAuthentication().getPassword());
+        }
+
+        final Long connectTimeout = requestInfo.getConnectTimeout() != null ? requestInfo.getConnectTimeout() : requestInfo.getTimeout();
+        if(connectTimeout != null) {
+            requestBuilder = requestBuilder.property(ClientProperties.CONNECT_TIMEOUT, (int)Math.min(connectTimeout, Integer.MAX_VALUE));
+        }
+        final Long readTimeout = requestInfo.getReadTimeout() != null ? requestInfo.getReadTimeout() : requestInfo.getTimeout();
+        if(readTimeout != null) {
+            requestBuilder = requestBuilder.property(ClientProperties.READ_TIMEOUT, (int)Math.min(readTimeout, Integer.MAX_VALUE));
+        }
+
+        return requestBuilder;
+    }
+
+    private static boolean isXml(@Nullable final MediaType mediaType) {
+        return mediaType != null && (mediaType.isCompatible(MediaType.APPLICATION_XML_TYPE)
+                || mediaType.isCompatible(MediaType.TEXT_XML_TYPE));
+    }
+
+    private static boolean isJson(@Nullable final MediaType mediaType) {
+        return mediaType != null && mediaType.isCompatible(MediaType.APPLICATION_JSON_TYPE);
+    }
+
+    private Suggestions transformResponse(final URI uri, final InputStream is, @Nullable final MediaType mediaType, final Path transformation) throws IOException, TransformationException {
+        if (isXml(mediaType)) {
+            //custom XML response
+            LOGGER.debug("Transforming XML response from: {} using: {}", uri, transformation);
+            return transformXmlResponse(is, transformation);
+        } else if (isJson(mediaType)) {
+            LOGGER.debug("Transforming JSON response from: {} using: {}", uri, transformation);
+            //custom JSON response
+            return transformJsonResponse(is, transformation);
+        } else {
+            LOGGER.error("Response from {} has unsupported Content-Type: {}", uri, mediaType); //TODO(AR) maybe something more visible to the user
+            return new Suggestions();
+        }
+    }
+
+    private void mapResponse(final URI uri, final InputStream is, @Nullable final MediaType mediaType, final ResponseMapping mapping, final Consumer<Suggestion> suggestions) throws IOException, TransformationException {
+        final ResponseMapper mapper;
+        try {
+            if (isXml(mediaType)) {
+                //custom XML response
+                LOGGER.debug("Mapping XML response from: {} using items: {}", uri, mapping.getItems());
+                mapper = new XMLResponseMapper(mapping);
+            } else if (isJson(mediaType)) {
+                //custom JSON response
+                LOGGER.debug("Mapping JSON response from: {} using items: {}", uri, mapping.getItems());
+                mapper = new JSONResponseMapper(mapping);
+            } else {
+                LOGGER.error("Response from {} has unsupported Content-Type: {}", uri, mediaType);
+                return;
+            }
+        } catch (final IllegalArgumentException e) {
+            throw new TransformationException("Invalid response mapping: " + e.getMessage(), e);
+        }
+
+        mapper.map(is, suggestions);
+    }
+
+    /**
+     * Unmarshals each suggestion from an XML response
+     * in the TEI Completer format as soon as it has been read
+     */
+    static void unmarshalXmlSuggestions(final InputStream is, final Consumer<Suggestion> suggestions) throws TransformationException {
+        try {
+            final Unmarshaller unmarshaller = xmlUnmarshallers.borrow();
+            final XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(is);
+            try {
+                while(reader.getEventType() != XMLStreamConstants.END_DOCUMENT) {
+                    if(reader.isStartElement() && SUGGESTION.equals(reader.getName())) {
+                        //leaves the reader at the event after the end of the suggestion
+                        suggestions.accept(unmarshaller.unmarshal(reader, Suggestion.class).getValue());
+                    } else {
+                        reader.next();
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            xmlUnmarshallers.release(unmarshaller);
+        } catch(final JAXBException | XMLStreamException e) {
+            throw new TransformationException(e);
+        }
+    }
+
+    private Suggestions transformXmlResponse(final InputStream is, final Path transformation) throws IOException, TransformationException {
+        try {
+            //the output of the transformation is unmarshalled as it is produced, without being serialized
+            final Unmarshaller unmarshaller = xmlUnmarshallers.borrow();
+            final JAXBResult result = new JAXBResult(unmarshaller);
+            xmlTransformer.transform(is, transformation, result);
+            final Suggestions suggestions = (Suggestions)result.getResult();
+            xmlUnmarshallers.release(unmarshaller);
+            return suggestions;
+        } catch(final JAXBException e) {
+            throw new TransformationException(e);
+        }
+    }
+
     private Suggestions transformJsonResponse(final InputStream is, final Path transformation) throws IOException, TransformationException {
-        try(final ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-            jsonTransformer.transform(is, transformation, os);
-
-            try(final InputStream resultIs = new ByteArrayInputStream(os.toByteArray())) {
-                final JAXBContext context = org.eclipse.persistence.jaxb.JAXBContextFactory.createContext(new Class[]{Suggestions.class}, null);
-
-                final Unmarshaller unmarshaller = context.createUnmarshaller();
-                unmarshaller.setProperty(UnmarshallerProperties.MEDIA_TYPE, org.eclipse.persistence.oxm.MediaType.APPLICATION_JSON);
-                unmarshaller.setProperty(UnmarshallerProperties.JSON_ATTRIBUTE_PREFIX, null);
-                unmarshaller.setProperty(UnmarshallerProperties.JSON_WRAPPER_AS_ARRAY_NAME, false);
-                unmarshaller.setProperty(UnmarshallerProperties.JSON_INCLUDE_ROOT, false);
-                unmarshaller.setProperty(UnmarshallerProperties.JSON_NAMESPACE_PREFIX_MAPPER, namespacePrefixMapper);
-                unmarshaller.setProperty(UnmarshallerProperties.JSON_NAMESPACE_SEPARATOR, ':');
-
-                final JAXBElement<Suggestions> jaxbElement = unmarshaller.unmarshal(new StreamSource(resultIs), Suggestions.class);
-                return jaxbElement.getValue();
+        return jsonTransformer.transform(is, transformation, json -> {
+            try {
+                return unmarshalJson(json);
             } catch(final JAXBException e) {
                 throw new TransformationException(e);
             }
-        }
+        });
+    }
+
+    static Suggestions unmarshalXml(final InputStream is) throws JAXBException {
+        return xmlUnmarshallers.unmarshal(unmarshaller -> (Suggestions)unmarshaller.unmarshal(is));
+    }
+
+    static Suggestions unmarshalJson(final Reader json) throws JAXBException {
+        return jsonUnmarshallers.unmarshal(unmarshaller -> {
+            final JAXBElement<Suggestions> jaxbElement = unmarshaller.unmarshal(new StreamSource(json), Suggestions.class);
+            return jaxbElement.getValue();
+        });
+    }
+
+    static void configureJsonUnmarshaller(final Unmarshaller unmarshaller) throws JAXBException {
+        unmarshaller.setProperty(UnmarshallerProperties.MEDIA_TYPE, org.eclipse.persistence.oxm.MediaType.APPLICATION_JSON);
+        unmarshaller.setProperty(UnmarshallerProperties.JSON_ATTRIBUTE_PREFIX, null);
+        unmarshaller.setProperty(UnmarshallerProperties.JSON_WRAPPER_AS_ARRAY_NAME, false);
+        unmarshaller.setProperty(UnmarshallerProperties.JSON_INCLUDE_ROOT, false);
+        unmarshaller.setProperty(UnmarshallerProperties.JSON_NAMESPACE_PREFIX_MAPPER, namespacePrefixMapper);
+        unmarshaller.setProperty(UnmarshallerProperties.JSON_NAMESPACE_SEPARATOR, ':');
     }
 }
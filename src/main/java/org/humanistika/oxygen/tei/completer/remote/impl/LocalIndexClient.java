@@ -0,0 +1,225 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.remote.impl;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.ns.tei_completer.Suggestions;
+import org.humanistika.oxygen.tei.completer.FileWatcher;
+import org.humanistika.oxygen.tei.completer.configuration.beans.IndexInfo;
+import org.humanistika.oxygen.tei.completer.configuration.beans.RequestInfo;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseAction;
+import org.humanistika.oxygen.tei.completer.index.SuggestionIndex;
+import org.humanistika.oxygen.tei.completer.index.impl.MappedSuggestionIndex;
+import org.humanistika.oxygen.tei.completer.index.impl.MemorySuggestionIndex;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Client which finds suggestions in a local index
+ * instead of making a request to a server
+ *
+ * The index is loaded from its bulk export of suggestions when
+ * it is first used, either into memory, or into an index file which
+ * is mapped into memory, as configured by its storage. The file is watched for changes, when it changes
+ * it is reloaded in the background and the reloaded index replaces
+ * the previous index at once. If the changed file cannot be loaded,
+ * then the previous index is kept. Reloads run on their own thread,
+ * so that loading a large index does not delay the detection of
+ * changes to other files.
+ *
+ * As there is no server, the request info and response action
+ * passed to the client are not used and may be null.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class LocalIndexClient extends AbstractClient {
+    private final static Logger LOGGER = LoggerFactory.getLogger(LocalIndexClient.class);
+
+    private final static SuggestionIndex EMPTY_INDEX = new SuggestionIndex() {
+        @Override
+        public void find(final String selection, @Nullable final String dependent, final Consumer<Suggestion> suggestions) {
+        }
+
+        @Override
+        public int size() {
+            return 0;
+        }
+    };
+
+    private final static ExecutorService reloadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "tei-completer-index-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final IndexInfo indexInfo;
+    private final AtomicBoolean reloadPending = new AtomicBoolean();
+    private final Runnable reloadListener = this::scheduleReload;
+    @Nullable private volatile SuggestionIndex index = null;
+    private volatile boolean watched = false;
+
+    /**
+     * @param indexInfo The configuration of the index
+     */
+    public LocalIndexClient(final IndexInfo indexInfo) {
+        this.indexInfo = indexInfo;
+    }
+
+    @Override
+    public Suggestions getSuggestions(@Nullable final RequestInfo requestInfo, final String selection, @Nullable final String dependent, @Nullable final ResponseAction responseAction) {
+        final Suggestions suggestions = new Suggestions();
+        getIndex().find(selection, dependent, suggestions.getSuggestion()::add);
+        return suggestions;
+    }
+
+    /**
+     * Once the index is loaded, suggestions are found
+     * without handing off to another thread
+     */
+    @Override
+    public CompletionStage<Suggestions> getSuggestionsAsync(@Nullable final RequestInfo requestInfo, final String selection, @Nullable final String dependent, @Nullable final ResponseAction responseAction) {
+        if(index != null) {
+            return CompletableFuture.completedFuture(getSuggestions(requestInfo, selection, dependent, responseAction));
+        }
+        return super.getSuggestionsAsync(requestInfo, selection, dependent, responseAction);
+    }
+
+    /**
+     * Loads the index
+     */
+    @Override
+    public void warmUpConnection(@Nullable final RequestInfo requestInfo) {
+        getIndex();
+    }
+
+    /**
+     * Get the index, loading it if it has not yet been loaded
+     *
+     * @return the index, which is empty if it could not be loaded
+     */
+    SuggestionIndex getIndex() {
+        final SuggestionIndex current = this.index;
+        if(current != null && watched) {
+            return current;
+        }
+
+        synchronized(this) {
+            if(!watched) {
+                //changes are only detected if the file can be watched
+                watched = true;
+                if(!FileWatcher.getInstance().watch(indexInfo.getFile(), reloadListener)) {
+                    LOGGER.warn("Changes to the index file: {} will not be detected", indexInfo.getFile().toAbsolutePath());
+                }
+            }
+
+            if(this.index == null) {
+                SuggestionIndex loaded = load();
+                if(loaded == null) {
+                    loaded = EMPTY_INDEX;
+                }
+                this.index = loaded;
+            }
+            return this.index;
+        }
+    }
+
+    /**
+     * Stops watching the file for changes and discards the index,
+     * if the client is used again then the index is loaded again
+     */
+    @Override
+    public void close() {
+        synchronized(this) {
+            FileWatcher.getInstance().unwatch(indexInfo.getFile(), reloadListener);
+            this.watched = false;
+            this.index = null;
+        }
+    }
+
+    @Nullable
+    private SuggestionIndex load() {
+        final long start = System.nanoTime();
+        try {
+            final SuggestionIndex loaded;
+            if(indexInfo.getStorage() == IndexInfo.Storage.MAPPED) {
+                loaded = MappedSuggestionIndex.load(indexInfo);
+            } else {
+                loaded = MemorySuggestionIndex.load(indexInfo);
+            }
+            LOGGER.info("Loaded {} suggestions from index file: {} in {}ms", loaded.size(), indexInfo.getFile().toAbsolutePath(), (System.nanoTime() - start) / 1_000_000);
+            return loaded;
+        } catch(final IOException e) {
+            LOGGER.error("Unable to load index file: " + indexInfo.getFile().toAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Schedules the index to be reloaded after the file has changed
+     *
+     * Changes which are detected before a scheduled reload has
+     * started are picked up by that reload, rather than scheduling another.
+     */
+    private void scheduleReload() {
+        //NOTE: if the file can no longer be watched, it is watched again when the index is next used
+        if(!FileWatcher.getInstance().isWatched(indexInfo.getFile(), reloadListener)) {
+            watched = false;
+        }
+
+        if(reloadPending.compareAndSet(false, true)) {
+            reloadExecutor.execute(this::reload);
+        }
+    }
+
+    /**
+     * Reloads the index after the file has changed
+     *
+     * The file is loaded without holding the lock, so that
+     * suggestions are found in the previous index whilst it loads.
+     * The reloaded index is discarded if the client was closed
+     * whilst it loaded.
+     */
+    private void reload() {
+        reloadPending.set(false);
+        final SuggestionIndex reloaded = load();
+        if(reloaded == null) {
+            LOGGER.error("Unable to reload changed index file: {}, the previous index is still in use", indexInfo.getFile().toAbsolutePath());
+            return;
+        }
+
+        synchronized(this) {
+            //NOTE: a closed client has no index, and loads the index afresh when it is used again
+            if(this.index != null) {
+                this.index = reloaded;
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.remote.impl;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A thread-safe pool of pre-configured Unmarshallers which
+ * share a single JAXBContext
+ *
+ * The JAXBContext is created once when it is first needed,
+ * Unmarshallers are created on demand, and up to a maximum
+ * number of idle Unmarshallers are retained for reuse.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class UnmarshallerPool {
+
+    @FunctionalInterface
+    public interface ContextFactory {
+        JAXBContext createContext() throws JAXBException;
+    }
+
+    @FunctionalInterface
+    public interface UnmarshallerConfigurer {
+        void configure(Unmarshaller unmarshaller) throws JAXBException;
+    }
+
+    @FunctionalInterface
+    public interface UnmarshalFunction<T> {
+        T unmarshal(Unmarshaller unmarshaller) throws JAXBException;
+    }
+
+    private final ContextFactory contextFactory;
+    private final UnmarshallerConfigurer configurer;
+    private final BlockingQueue<Unmarshaller> idle;
+    private volatile JAXBContext context;
+
+    /**
+     * @param contextFactory Creates the JAXBContext
+     * @param configurer Configures each new Unmarshaller
+     * @param maxIdle The maximum number of idle Unmarshallers to retain
+     */
+    public UnmarshallerPool(final ContextFactory contextFactory, final UnmarshallerConfigurer configurer, final int maxIdle) {
+        this.contextFactory = contextFactory;
+        this.configurer = configurer;
+        this.idle = new ArrayBlockingQueue<>(maxIdle);
+    }
+
+    /**
+     * Unmarshal using an Unmarshaller from the pool
+     *
+     * The Unmarshaller is only returned to the pool if
+     * the function completes without an exception.
+     *
+     * @param function The function which uses the Unmarshaller
+     *
+     * @return the result of the function
+     *
+     * @throws JAXBException if the Unmarshaller cannot be created, or the function fails
+     */
+    public <T> T unmarshal(final UnmarshalFunction<T> function) throws JAXBException {
+        final Unmarshaller unmarshaller = borrow();
+        final T result = function.unmarshal(unmarshaller);
+        release(unmarshaller);
+        return result;
+    }
+
+    Unmarshaller borrow() throws JAXBException {
+        final Unmarshaller unmarshaller = idle.poll();
+        if(unmarshaller != null) {
+            return unmarshaller;
+        }
+
+        final Unmarshaller newUnmarshaller = getContext().createUnmarshaller();
+        configurer.configure(newUnmarshaller);
+        return newUnmarshaller;
+    }
+
+    void release(final Unmarshaller unmarshaller) {
+        // if the pool is full, the unmarshaller is just discarded
+        idle.offer(unmarshaller);
+    }
+
+    int getIdleCount() {
+        return idle.size();
+    }
+
+    private JAXBContext getContext() throws JAXBException {
+        JAXBContext localContext = context;
+        if(localContext == null) {
+            synchronized(this) {
+                localContext = context;
+                if(localContext == null) {
+                    localContext = contextFactory.createContext();
+                    context = localContext;
+                }
+            }
+        }
+        return localContext;
+    }
+}
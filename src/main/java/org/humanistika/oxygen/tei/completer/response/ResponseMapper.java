@@ -0,0 +1,48 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.response;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Maps a Response from the Server directly
+ * to suggestions, without an intermediate document
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public interface ResponseMapper {
+
+    /**
+     * Map the content to suggestions
+     *
+     * @param content The content to map
+     * @param suggestions A consumer which receives each suggestion as soon as it has been read
+     *
+     * @throws IOException if the content is unreadable
+     * @throws TransformationException If the content cannot be parsed
+     */
+    void map(final InputStream content, final Consumer<Suggestion> suggestions) throws IOException, TransformationException;
+}
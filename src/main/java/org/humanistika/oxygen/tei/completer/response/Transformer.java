@@ -44,4 +44,15 @@ public interface Transformer {
      * @throws TransformationException If an exception occurs whilst executing the transformation
      */
     void transform(final InputStream content, final Path transformation, final OutputStream result) throws IOException, TransformationException;
+
+    /**
+     * Compiles the transformation ahead of its first use,
+     * the compiled transformation is cached
+     *
+     * @param transformation The transformation to compile
+     *
+     * @throws IOException if an IO exception occurs whilst loading the transformation
+     * @throws TransformationException If the transformation cannot be compiled
+     */
+    void compile(final Path transformation) throws IOException, TransformationException;
 }
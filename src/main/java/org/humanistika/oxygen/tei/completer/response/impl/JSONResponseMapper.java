@@ -0,0 +1,253 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.response.impl;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseMapping;
+import org.humanistika.oxygen.tei.completer.response.ResponseMapper;
+import org.humanistika.oxygen.tei.completer.response.TransformationException;
+import javax.annotation.Nullable;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParserFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Maps a JSON Response to suggestions using a
+ * {@link ResponseMapping} whose paths are JSON Pointers (RFC 6901)
+ *
+ * The response is read with a streaming parser, each suggestion
+ * is passed to the consumer as soon as its item has been read
+ * and no tree of the response is ever built.
+ *
+ * If the items pointer addresses an array then each member
+ * of the array is an item, otherwise the addressed value is
+ * a single item. The value and description pointers are
+ * relative to an item, only scalar values are used.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class JSONResponseMapper implements ResponseMapper {
+
+    private final static JsonParserFactory PARSER_FACTORY = Json.createParserFactory(null);
+
+    private final List<String> items;
+    private final List<String> value;
+    @Nullable private final List<String> description;
+
+    public JSONResponseMapper(final ResponseMapping mapping) {
+        this.items = parsePointer(mapping.getItems());
+        this.value = parsePointer(mapping.getValue());
+        this.description = mapping.getDescription() == null ? null : parsePointer(mapping.getDescription());
+    }
+
+    @Override
+    public void map(final InputStream content, final Consumer<Suggestion> suggestions) throws IOException, TransformationException {
+        try(final JsonParser parser = PARSER_FACTORY.createParser(content)) {
+            new Mapping(parser, suggestions).run();
+        } catch(final JsonException e) {
+            if(e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            throw new TransformationException("Unable to map JSON response: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parses a JSON Pointer into its reference tokens
+     *
+     * @param pointer The JSON Pointer, e.g. {@code /results/0/lemma}
+     *
+     * @return The unescaped reference tokens
+     */
+    static List<String> parsePointer(final String pointer) {
+        if(pointer.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if(pointer.charAt(0) != '/') {
+            throw new IllegalArgumentException("JSON Pointer must be empty or start with '/': " + pointer);
+        }
+
+        final List<String> tokens = new ArrayList<>();
+        for(final String token : pointer.substring(1).split("/", -1)) {
+            tokens.add(token.replace("~1", "/").replace("~0", "~"));
+        }
+        return tokens;
+    }
+
+    /**
+     * The state of mapping a single response
+     */
+    private class Mapping {
+        private final JsonParser parser;
+        private final Consumer<Suggestion> suggestions;
+
+        //the path of reference tokens to the current value
+        private final List<String> path = new ArrayList<>();
+        //for each open container, the index of the next array member, or -1 for an object
+        private final Deque<int[]> containers = new ArrayDeque<>();
+        @Nullable private String pendingKey;
+
+        //the depth of the current item, or -1 when outside of an item
+        private int itemDepth = -1;
+        //true if the items pointer addressed an array, whose members are the items
+        private boolean itemsIsArray;
+        @Nullable private String itemValue;
+        @Nullable private String itemDescription;
+
+        Mapping(final JsonParser parser, final Consumer<Suggestion> suggestions) {
+            this.parser = parser;
+            this.suggestions = suggestions;
+        }
+
+        void run() {
+            while(parser.hasNext()) {
+                final JsonParser.Event event = parser.next();
+                switch(event) {
+                    case KEY_NAME:
+                        pendingKey = parser.getString();
+                        break;
+
+                    case START_OBJECT:
+                    case START_ARRAY:
+                        enterValue();
+                        if(itemDepth == -1 && path.equals(items) && event == JsonParser.Event.START_ARRAY) {
+                            itemsIsArray = true;
+                        } else {
+                            startItemIfAddressed();
+                        }
+                        containers.push(new int[] { event == JsonParser.Event.START_ARRAY ? 0 : -1 });
+                        break;
+
+                    case END_OBJECT:
+                    case END_ARRAY:
+                        containers.pop();
+                        endItemIfAddressed();
+                        if(itemsIsArray && path.equals(items)) {
+                            itemsIsArray = false;
+                        }
+                        exitValue();
+                        break;
+
+                    case VALUE_STRING:
+                    case VALUE_NUMBER:
+                    case VALUE_TRUE:
+                    case VALUE_FALSE:
+                        enterValue();
+                        startItemIfAddressed();
+                        capture(scalar(event));
+                        endItemIfAddressed();
+                        exitValue();
+                        break;
+
+                    case VALUE_NULL:
+                        enterValue();
+                        exitValue();
+                        break;
+
+                    default:
+                        break;
+                }
+            }
+        }
+
+        private void enterValue() {
+            final int[] container = containers.peek();
+            if(container == null) {
+                return;
+            }
+            if(container[0] == -1) {
+                path.add(pendingKey);
+                pendingKey = null;
+            } else {
+                path.add(String.valueOf(container[0]++));
+            }
+        }
+
+        private void exitValue() {
+            if(!containers.isEmpty()) {
+                path.remove(path.size() - 1);
+            }
+        }
+
+        private boolean isItem() {
+            if(itemsIsArray) {
+                return path.size() == items.size() + 1 && path.subList(0, items.size()).equals(items);
+            } else {
+                return path.equals(items);
+            }
+        }
+
+        private void startItemIfAddressed() {
+            if(itemDepth == -1 && isItem()) {
+                itemDepth = path.size();
+                itemValue = null;
+                itemDescription = null;
+            }
+        }
+
+        private void endItemIfAddressed() {
+            if(itemDepth != -1 && path.size() == itemDepth) {
+                itemDepth = -1;
+                if(itemValue != null) {
+                    final Suggestion suggestion = new Suggestion();
+                    suggestion.setValue(itemValue);
+                    suggestion.setDescription(itemDescription);
+                    suggestions.accept(suggestion);
+                }
+            }
+        }
+
+        private void capture(final String scalar) {
+            if(itemDepth == -1) {
+                return;
+            }
+            final List<String> relative = path.subList(itemDepth, path.size());
+            if(itemValue == null && relative.equals(value)) {
+                itemValue = scalar;
+            }
+            if(description != null && itemDescription == null && relative.equals(description)) {
+                itemDescription = scalar;
+            }
+        }
+
+        private String scalar(final JsonParser.Event event) {
+            switch(event) {
+                case VALUE_TRUE:
+                    return "true";
+                case VALUE_FALSE:
+                    return "false";
+                default:
+                    return parser.getString();
+            }
+        }
+    }
+}
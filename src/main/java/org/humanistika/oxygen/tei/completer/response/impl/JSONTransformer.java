@@ -19,6 +19,7 @@
  */
 package org.humanistika.oxygen.tei.completer.response.impl;
 
+import org.humanistika.oxygen.tei.completer.FileWatcher;
 import org.humanistika.oxygen.tei.completer.response.Transformer;
 
 import java.io.*;
@@ -28,12 +29,20 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.ns.tei_completer.Suggestions;
 import org.humanistika.oxygen.tei.completer.response.TransformationException;
+import javax.annotation.Nullable;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.Function;
+import org.mozilla.javascript.NativeArray;
 import org.mozilla.javascript.NativeJSON;
+import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
 import org.mozilla.javascript.json.JsonParser;
 
 /**
@@ -45,6 +54,10 @@ public class JSONTransformer implements Transformer {
     final static int OPTIMIZATION_LEVEL = 3;
     final static int LANGUAGE_VERSION = Context.VERSION_1_8;
 
+    private final static String SUGGESTION = "tc:suggestion";
+    private final static String VALUE = "tc:value";
+    private final static String DESCRIPTION = "tc:description";
+
     public static void main(final String args[]) throws IOException, TransformationException {
         final Transformer transformer = new JSONTransformer();
         try (final InputStream content = Files.newInputStream(Paths.get("/tmp/forms"))) {
@@ -58,22 +71,90 @@ public class JSONTransformer implements Transformer {
     }
 
 
+    final ConcurrentHashMap<Path, TimestampedScript> cache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Path, Runnable> watched = new ConcurrentHashMap<>();
+
+    /**
+     * Standard objects shared by all transformations,
+     * sealed so that no transformation may modify them
+     */
+    private volatile ScriptableObject sharedScope = null;
+
     @Override
     public void transform(final InputStream content, final Path transformation, final OutputStream result) throws TransformationException, IOException {
+        transform(content, transformation, (context, scope, resultObj) -> {
+            final String jsonResult = (String)NativeJSON.stringify(context, scope, resultObj, null, null);
+
+            final char buf[] = new char[4096];
+            int read = -1;
+            try(final Reader jsonReader = new StringReader(jsonResult);
+                final Writer writer = new OutputStreamWriter(result, UTF_8)) {
+                while((read = jsonReader.read(buf)) > -1) {
+                    writer.write(buf, 0, read);
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Transform the content directly into Suggestions
+     *
+     * If the result of the `transform` function is in the documented
+     * JSON format of suggestions, then the Suggestions are constructed by
+     * walking the resultant JavaScript objects, without serializing
+     * them to JSON. Otherwise the result is serialized and given to
+     * the {@code fallback} to be unmarshalled.
+     *
+     * @param content The content to transform
+     * @param transformation The transformation to apply to the content
+     * @param fallback Unmarshals results which are not in the documented format
+     *
+     * @return The suggestions
+     *
+     * @throws IOException if an IO exception occurs whilst loading the transformation, or the content is unreadable
+     * @throws TransformationException If an exception occurs whilst executing the transformation
+     */
+    public Suggestions transform(final InputStream content, final Path transformation, final SuggestionsUnmarshaller fallback) throws TransformationException, IOException {
+        return transform(content, transformation, (context, scope, resultObj) -> {
+            final Suggestions suggestions = asSuggestions(resultObj);
+            if(suggestions != null) {
+                return suggestions;
+            }
+
+            final String jsonResult = (String)NativeJSON.stringify(context, scope, resultObj, null, null);
+            try(final Reader jsonReader = new StringReader(jsonResult)) {
+                return fallback.unmarshal(jsonReader);
+            }
+        });
+    }
+
+    /**
+     * Unmarshals Suggestions from JSON
+     */
+    @FunctionalInterface
+    public interface SuggestionsUnmarshaller {
+        Suggestions unmarshal(Reader json) throws IOException, TransformationException;
+    }
+
+    @FunctionalInterface
+    private interface ResultHandler<T> {
+        T handle(Context context, Scriptable scope, Object resultObj) throws IOException, TransformationException;
+    }
+
+    private <T> T transform(final InputStream content, final Path transformation, final ResultHandler<T> resultHandler) throws TransformationException, IOException {
         try {
             final Context context = Context.enter();
             context.setOptimizationLevel(OPTIMIZATION_LEVEL);
             context.setLanguageVersion(LANGUAGE_VERSION);
 
-            final Scriptable scope = context.initStandardObjects();
+            final Scriptable scope = newScope(context);
 
             //read in the content
             final Object jsonObj = parseJson(context, scope, content);
 
-            //load the javascript with the transform function
-            try(final Reader reader = Files.newBufferedReader(transformation, UTF_8)) {
-                context.evaluateReader(scope, reader, transformation.getFileName().toString(), 1, null);
-            }
+            //define the transform function in this call's scope
+            getScript(context, transformation).exec(context, scope);
 
             final Object fnTransformObj = scope.get("transform", scope);
             if(!(fnTransformObj instanceof Function)) {
@@ -82,22 +163,189 @@ public class JSONTransformer implements Transformer {
                 final Object functionArgs[] = { jsonObj };
                 final Function fnTransform = (Function)fnTransformObj;
                 final Object resultObj = fnTransform.call(context, scope, scope, functionArgs);
-                final String jsonResult = (String)NativeJSON.stringify(context, scope, resultObj, null, null);
-
-                final char buf[] = new char[4096];
-                int read = -1;
-                try(final Reader jsonReader = new StringReader(jsonResult);
-                    final Writer writer = new OutputStreamWriter(result, UTF_8)) {
-                    while((read = jsonReader.read(buf)) > -1) {
-                        writer.write(buf, 0, read);
-                    }
+                return resultHandler.handle(context, scope, resultObj);
+            }
+        } finally {
+            Context.exit();
+        }
+    }
+
+    /**
+     * Converts the result of a transformation into Suggestions
+     * if it is in the documented format, i.e. an object with a
+     * `tc:suggestion` array (or object) of objects with `tc:value` and
+     * an optional `tc:description`, whose values are not objects
+     *
+     * @return The suggestions, or null if the result is not in the documented format
+     */
+    @Nullable
+    static Suggestions asSuggestions(final Object resultObj) {
+        if(!(resultObj instanceof Scriptable) || resultObj instanceof NativeArray) {
+            return null;
+        }
+
+        final Object suggestionObj = ScriptableObject.getProperty((Scriptable)resultObj, SUGGESTION);
+        final Suggestions suggestions = new Suggestions();
+        if(suggestionObj instanceof NativeArray) {
+            final NativeArray array = (NativeArray)suggestionObj;
+            final long length = array.getLength();
+            for(int i = 0; i < length; i++) {
+                final Suggestion suggestion = asSuggestion(array.get(i, array));
+                if(suggestion == null) {
+                    return null;
                 }
+                suggestions.getSuggestion().add(suggestion);
+            }
+        } else {
+            final Suggestion suggestion = asSuggestion(suggestionObj);
+            if(suggestion == null) {
+                return null;
             }
+            suggestions.getSuggestion().add(suggestion);
+        }
+        return suggestions;
+    }
+
+    @Nullable
+    private static Suggestion asSuggestion(final Object suggestionObj) {
+        if(!(suggestionObj instanceof Scriptable) || suggestionObj instanceof NativeArray) {
+            return null;
+        }
+
+        final Scriptable scriptable = (Scriptable)suggestionObj;
+        final Object valueObj = ScriptableObject.getProperty(scriptable, VALUE);
+        if(!isScalar(valueObj)) {
+            return null;
+        }
+        final Object descriptionObj = ScriptableObject.getProperty(scriptable, DESCRIPTION);
+        if(descriptionObj != Scriptable.NOT_FOUND && !isScalar(descriptionObj)) {
+            return null;
+        }
+
+        final Suggestion suggestion = new Suggestion();
+        suggestion.setValue(Context.toString(valueObj));
+        if(descriptionObj != Scriptable.NOT_FOUND) {
+            suggestion.setDescription(Context.toString(descriptionObj));
+        }
+        return suggestion;
+    }
+
+    private static boolean isScalar(final Object obj) {
+        return obj instanceof CharSequence || obj instanceof Number || obj instanceof Boolean;
+    }
+
+    /**
+     * Creates a new scope for a single call, whose prototype is
+     * the shared scope of standard objects
+     */
+    private Scriptable newScope(final Context context) {
+        final ScriptableObject shared = getSharedScope(context);
+        final Scriptable scope = context.newObject(shared);
+        scope.setPrototype(shared);
+        scope.setParentScope(null);
+        return scope;
+    }
+
+    private ScriptableObject getSharedScope(final Context context) {
+        ScriptableObject shared = sharedScope;
+        if(shared == null) {
+            synchronized(this) {
+                shared = sharedScope;
+                if(shared == null) {
+                    shared = context.initStandardObjects(null, true);
+                    shared.sealObject();
+                    sharedScope = shared;
+                }
+            }
+        }
+        return shared;
+    }
+
+    @Override
+    public void compile(final Path transformation) throws IOException, TransformationException {
+        try {
+            final Context context = Context.enter();
+            context.setOptimizationLevel(OPTIMIZATION_LEVEL);
+            context.setLanguageVersion(LANGUAGE_VERSION);
+
+            getSharedScope(context);
+            getScript(context, transformation);
+        } catch (final RhinoException e) {
+            throw new TransformationException(e);
         } finally {
             Context.exit();
         }
     }
 
+    private Script getScript(final Context context, final Path transformation) throws IOException {
+        final TimestampedScript cached = cache.get(transformation);
+        if (cached != null && (watched.containsKey(transformation) || cached.timestamp >= Files.getLastModifiedTime(transformation).toMillis())) {
+            return cached.script;
+        } else {
+            watch(transformation);
+            return cacheScript(compileScript(context, transformation), transformation);
+        }
+    }
+
+    /**
+     * Compiled scripts are invalidated when the script file changes, if
+     * the file cannot be watched then its modification time is checked
+     * each time it is used instead
+     */
+    private void watch(final Path transformation) {
+        if(watched.containsKey(transformation)) {
+            return;
+        }
+
+        final Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                cache.remove(transformation);
+                //NOTE: if the file can no longer be watched, it is watched again when it is next used
+                if(!FileWatcher.getInstance().isWatched(transformation, this)) {
+                    watched.remove(transformation, this);
+                }
+            }
+        };
+        if(watched.putIfAbsent(transformation, listener) == null && !FileWatcher.getInstance().watch(transformation, listener)) {
+            watched.remove(transformation, listener);
+        }
+    }
+
+    private TimestampedScript compileScript(final Context context, final Path transformation) throws IOException {
+        final long timestamp = Files.getLastModifiedTime(transformation).toMillis();
+        try(final Reader reader = Files.newBufferedReader(transformation, UTF_8)) {
+            final Script script = context.compileReader(reader, transformation.getFileName().toString(), 1, null);
+            return new TimestampedScript(timestamp, script);
+        }
+    }
+
+    /**
+     * Caches a compiled script, unless the file has changed since it was compiled
+     *
+     * The file may change whilst the script is compiled, and the change be
+     * notified before the script is cached. As a watched file's modification
+     * time is not otherwise checked, it is checked again once the script has
+     * been cached, and the script is removed if it is stale.
+     */
+    private Script cacheScript(final TimestampedScript timestampedScript, final Path transformation) throws IOException {
+        cache.put(transformation, timestampedScript);
+        if(timestampedScript.timestamp != Files.getLastModifiedTime(transformation).toMillis()) {
+            cache.remove(transformation, timestampedScript);
+        }
+        return timestampedScript.script;
+    }
+
+    public class TimestampedScript {
+        public final long timestamp;
+        public final Script script;
+
+        public TimestampedScript(final long timestamp, final Script script) {
+            this.timestamp = timestamp;
+            this.script = script;
+        }
+    }
+
     private Object parseJson(final Context context, final Scriptable scope, final InputStream json) throws IOException, TransformationException {
         try {
             final char buf[] = new char[4096];
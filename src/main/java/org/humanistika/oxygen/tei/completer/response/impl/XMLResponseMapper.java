@@ -0,0 +1,302 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.response.impl;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseMapping;
+import org.humanistika.oxygen.tei.completer.response.ResponseMapper;
+import org.humanistika.oxygen.tei.completer.response.TransformationException;
+import javax.annotation.Nullable;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Maps an XML Response to suggestions using a
+ * {@link ResponseMapping} whose paths are simple slash
+ * separated paths of element local-names
+ *
+ * The response is read with a StAX parser, each suggestion
+ * is passed to the consumer as soon as its item has been read
+ * and no tree of the response is ever built.
+ *
+ * The items path is absolute, e.g. {@code /sgns/sgn}, or
+ * if it starts with {@code //} then it matches at any depth,
+ * e.g. {@code //entry}. The value and description paths are
+ * relative to an item, e.g. {@code form/orth}, may finish with
+ * an attribute, e.g. {@code sense/@n} or {@code @xml:id}, and may
+ * be {@code .} for the item itself. A step may be {@code *} to
+ * match any element. The value of an element is its text content
+ * with leading and trailing whitespace removed.
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class XMLResponseMapper implements ResponseMapper {
+
+    private final static String ANY = "*";
+
+    private final static XMLInputFactory INPUT_FACTORY = XMLInputFactory.newFactory();
+    static {
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    private final List<String> items;
+    private final boolean itemsAtAnyDepth;
+    private final RelativePath value;
+    @Nullable private final RelativePath description;
+
+    public XMLResponseMapper(final ResponseMapping mapping) {
+        final String itemsPath = mapping.getItems();
+        if(itemsPath.startsWith("//")) {
+            this.itemsAtAnyDepth = true;
+            this.items = parseSteps(itemsPath.substring(2));
+        } else if(itemsPath.startsWith("/")) {
+            this.itemsAtAnyDepth = false;
+            this.items = parseSteps(itemsPath.substring(1));
+        } else {
+            throw new IllegalArgumentException("Items path must start with '/' or '//': " + itemsPath);
+        }
+        if(items.isEmpty()) {
+            throw new IllegalArgumentException("Items path must address an element: " + itemsPath);
+        }
+
+        this.value = RelativePath.parse(mapping.getValue());
+        this.description = mapping.getDescription() == null ? null : RelativePath.parse(mapping.getDescription());
+    }
+
+    @Override
+    public void map(final InputStream content, final Consumer<Suggestion> suggestions) throws IOException, TransformationException {
+        try {
+            final XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(content);
+            try {
+                new Mapping(reader, suggestions).run();
+            } finally {
+                reader.close();
+            }
+        } catch(final XMLStreamException e) {
+            if(e.getNestedException() instanceof IOException) {
+                throw (IOException)e.getNestedException();
+            }
+            throw new TransformationException("Unable to map XML response: " + e.getMessage(), e);
+        }
+    }
+
+    private static List<String> parseSteps(final String path) {
+        if(path.isEmpty() || path.equals(".")) {
+            return Collections.emptyList();
+        }
+        final List<String> steps = new ArrayList<>();
+        for(final String step : path.split("/", -1)) {
+            if(step.isEmpty() || step.startsWith("@")) {
+                throw new IllegalArgumentException("Invalid step '" + step + "' in path: " + path);
+            }
+            steps.add(localName(step));
+        }
+        return steps;
+    }
+
+    private static String localName(final String name) {
+        final int idxColon = name.indexOf(':');
+        return idxColon == -1 ? name : name.substring(idxColon + 1);
+    }
+
+    private static boolean matches(final List<String> steps, final List<String> elements) {
+        if(steps.size() != elements.size()) {
+            return false;
+        }
+        for(int i = 0; i < steps.size(); i++) {
+            final String step = steps.get(i);
+            if(!step.equals(ANY) && !step.equals(elements.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A path relative to an item, which addresses an element
+     * or an attribute of an element
+     */
+    static class RelativePath {
+        final List<String> elements;
+        @Nullable final String attribute;
+
+        private RelativePath(final List<String> elements, @Nullable final String attribute) {
+            this.elements = elements;
+            this.attribute = attribute;
+        }
+
+        static RelativePath parse(final String path) {
+            if(path.startsWith("/")) {
+                throw new IllegalArgumentException("Path must be relative to the item: " + path);
+            }
+            final int idxAttribute = path.lastIndexOf('@');
+            if(idxAttribute == -1) {
+                return new RelativePath(parseSteps(path), null);
+            }
+            if(idxAttribute > 0 && path.charAt(idxAttribute - 1) != '/') {
+                throw new IllegalArgumentException("Invalid attribute step in path: " + path);
+            }
+            final String elements = idxAttribute == 0 ? "" : path.substring(0, idxAttribute - 1);
+            return new RelativePath(parseSteps(elements), localName(path.substring(idxAttribute + 1)));
+        }
+    }
+
+    /**
+     * The state of mapping a single response
+     */
+    private class Mapping {
+        private final XMLStreamReader reader;
+        private final Consumer<Suggestion> suggestions;
+
+        //the local-names of the currently open elements
+        private final List<String> elements = new ArrayList<>();
+
+        //the depth of the current item, or -1 when outside of an item
+        private int itemDepth = -1;
+        @Nullable private String itemValue;
+        @Nullable private String itemDescription;
+
+        //text being captured for the value and description, and the depth at which the capture started
+        @Nullable private StringBuilder valueText;
+        private int valueTextDepth;
+        @Nullable private StringBuilder descriptionText;
+        private int descriptionTextDepth;
+
+        Mapping(final XMLStreamReader reader, final Consumer<Suggestion> suggestions) {
+            this.reader = reader;
+            this.suggestions = suggestions;
+        }
+
+        void run() throws XMLStreamException {
+            while(reader.hasNext()) {
+                switch(reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        startElement();
+                        break;
+
+                    case XMLStreamConstants.END_ELEMENT:
+                        endElement();
+                        break;
+
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        if(valueText != null) {
+                            valueText.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                        if(descriptionText != null) {
+                            descriptionText.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                        break;
+
+                    default:
+                        break;
+                }
+            }
+        }
+
+        private void startElement() {
+            elements.add(reader.getLocalName());
+
+            if(itemDepth == -1) {
+                if(isItem()) {
+                    itemDepth = elements.size();
+                    itemValue = null;
+                    itemDescription = null;
+                } else {
+                    return;
+                }
+            }
+
+            final List<String> relative = elements.subList(itemDepth, elements.size());
+            if(itemValue == null && valueText == null && matches(value.elements, relative)) {
+                if(value.attribute != null) {
+                    itemValue = getAttributeValue(value.attribute);
+                } else {
+                    valueText = new StringBuilder();
+                    valueTextDepth = elements.size();
+                }
+            }
+            if(description != null && itemDescription == null && descriptionText == null && matches(description.elements, relative)) {
+                if(description.attribute != null) {
+                    itemDescription = getAttributeValue(description.attribute);
+                } else {
+                    descriptionText = new StringBuilder();
+                    descriptionTextDepth = elements.size();
+                }
+            }
+        }
+
+        private void endElement() {
+            if(valueText != null && valueTextDepth == elements.size()) {
+                itemValue = valueText.toString().trim();
+                valueText = null;
+            }
+            if(descriptionText != null && descriptionTextDepth == elements.size()) {
+                itemDescription = descriptionText.toString().trim();
+                descriptionText = null;
+            }
+
+            if(itemDepth == elements.size()) {
+                itemDepth = -1;
+                if(itemValue != null) {
+                    final Suggestion suggestion = new Suggestion();
+                    suggestion.setValue(itemValue);
+                    suggestion.setDescription(itemDescription);
+                    suggestions.accept(suggestion);
+                }
+            }
+
+            elements.remove(elements.size() - 1);
+        }
+
+        private boolean isItem() {
+            if(itemsAtAnyDepth) {
+                return elements.size() >= items.size()
+                        && matches(items, elements.subList(elements.size() - items.size(), elements.size()));
+            } else {
+                return matches(items, elements);
+            }
+        }
+
+        @Nullable
+        private String getAttributeValue(final String localName) {
+            for(int i = 0; i < reader.getAttributeCount(); i++) {
+                if(reader.getAttributeLocalName(i).equals(localName)) {
+                    return reader.getAttributeValue(i);
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -19,9 +19,19 @@
  */
 package org.humanistika.oxygen.tei.completer.response.impl;
 
+import org.humanistika.oxygen.tei.completer.FileWatcher;
 import org.humanistika.oxygen.tei.completer.response.Transformer;
 import org.humanistika.oxygen.tei.completer.response.TransformationException;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.Result;
 import javax.xml.transform.Templates;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -36,48 +46,235 @@ import java.nio.file.Path;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Transforms an XML Response using XSLT
+ *
+ * If the initial mode of a stylesheet is streamable, i.e. {@code <xsl:mode streamable="yes"/>},
+ * and Saxon-EE is available (as it is within Oxygen), then the stylesheet
+ * is compiled for streaming so that the response need not be held in memory,
+ * otherwise it is compiled by Saxon-HE which builds a tree of the response.
+ *
+ * Compiled stylesheets are cached, and invalidated when the stylesheet
+ * file changes. If the file cannot be watched for changes, then its
+ * modification time is checked each time it is used instead.
+ *
  * @author Adam Retter, Evolved Binary Ltd
  * @version 1.0
  * @serial 2016028
  */
 public class XMLTransformer implements Transformer {
+    private final static Logger LOGGER = LoggerFactory.getLogger(XMLTransformer.class);
+
     static {
         System.setProperty("javax.xml.transform.TransformerFactory", "net.sf.saxon.TransformerFactoryImpl");
     }
     final static TransformerFactory factory = TransformerFactory.newInstance();
 
+    private final static String XSLT_NS = "http://www.w3.org/1999/XSL/Transform";
+    private final static String UNNAMED_MODE = "#unnamed";
+    private final static String DEFAULT_MODE = "#default";
+    private final static String STREAMING_TRANSFORMER_FACTORY_CLASS = "com.saxonica.config.StreamingTransformerFactory";
+    @Nullable private final static TransformerFactory streamingFactory = newStreamingFactory();
+
+    private final static XMLInputFactory INPUT_FACTORY = XMLInputFactory.newFactory();
+    static {
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
     final ConcurrentHashMap<Path, TimestampedTemplates> cache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Path, Runnable> watched = new ConcurrentHashMap<>();
 
     @Override
     public void transform(final InputStream content, final Path transformation, final OutputStream result) throws IOException, TransformationException {
+        transform(content, transformation, new StreamResult(result));
+    }
+
+    /**
+     * Transform the content using the transformation
+     *
+     * Unlike {@link #transform(InputStream, Path, OutputStream)} the
+     * result need not be serialized, for example a SAX or JAXB result
+     * may receive the output of the transformation directly.
+     *
+     * @param content The content to transform
+     * @param transformation The transformation to apply to the content
+     * @param result The destination for the transformed content
+     *
+     * @throws IOException if an IO exception occurs whilst loading the transformation, or the content is unreadable
+     * @throws TransformationException If an exception occurs whilst executing the transformation
+     */
+    public void transform(final InputStream content, final Path transformation, final Result result) throws IOException, TransformationException {
         try {
             final Templates templates = getTemplates(transformation);
             final javax.xml.transform.Transformer transformer = templates.newTransformer();
-            transformer.transform(new StreamSource(content), new StreamResult(result));
+            transformer.transform(new StreamSource(content), result);
         } catch (final TransformerException e) {
             throw new TransformationException(e);
         }
     }
 
+    @Override
+    public void compile(final Path transformation) throws IOException, TransformationException {
+        try {
+            getTemplates(transformation);
+        } catch (final TransformerConfigurationException e) {
+            throw new TransformationException(e);
+        }
+    }
+
     private Templates getTemplates(final Path transformation) throws IOException, TransformerConfigurationException {
         final TimestampedTemplates cached = cache.get(transformation);
-        if (cached == null || cached.timestamp < Files.getLastModifiedTime(transformation).toMillis()) {
-            return cacheTemplates(compileTemplates(transformation), transformation);
-        } else {
+        if (cached != null && (watched.containsKey(transformation) || cached.timestamp >= Files.getLastModifiedTime(transformation).toMillis())) {
             return cached.templates;
+        } else {
+            watch(transformation);
+            return cacheTemplates(compileTemplates(transformation), transformation);
+        }
+    }
+
+    private void watch(final Path transformation) {
+        if(watched.containsKey(transformation)) {
+            return;
+        }
+
+        final Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                cache.remove(transformation);
+                //NOTE: if the file can no longer be watched, it is watched again when it is next used
+                if(!FileWatcher.getInstance().isWatched(transformation, this)) {
+                    watched.remove(transformation, this);
+                }
+            }
+        };
+        if(watched.putIfAbsent(transformation, listener) == null && !FileWatcher.getInstance().watch(transformation, listener)) {
+            watched.remove(transformation, listener);
         }
     }
 
     private TimestampedTemplates compileTemplates(final Path transformation) throws IOException, TransformerConfigurationException {
         final long timestamp = Files.getLastModifiedTime(transformation).toMillis();
+
+        if(isStreamable(transformation)) {
+            if(streamingFactory != null) {
+                try {
+                    final Templates templates = compileTemplates(streamingFactory, transformation);
+                    LOGGER.debug("Compiled streamable transformation: {}", transformation);
+                    return new TimestampedTemplates(timestamp, templates);
+                } catch(final TransformerConfigurationException | RuntimeException e) {
+                    LOGGER.warn("Unable to compile transformation: {} for streaming, it will not be streamed: {}", transformation, e.getMessage());
+                }
+            } else {
+                LOGGER.debug("Transformation: {} declares a streamable mode, but streaming requires Saxon-EE, it will not be streamed", transformation);
+            }
+        }
+
+        return new TimestampedTemplates(timestamp, compileTemplates(factory, transformation));
+    }
+
+    private static Templates compileTemplates(final TransformerFactory transformerFactory, final Path transformation) throws IOException, TransformerConfigurationException {
+        try(final InputStream is = Files.newInputStream(transformation)) {
+            return transformerFactory.newTemplates(new StreamSource(is, transformation.toAbsolutePath().toString()));
+        }
+    }
+
+    /**
+     * Determines if a stylesheet declares that its initial mode is streamable,
+     * only the top-level declarations of the stylesheet are read
+     *
+     * The initial mode is the default mode of the stylesheet, which unless
+     * the stylesheet has a {@code default-mode} is the unnamed mode. Other
+     * named modes which are streamable are not used by the transformation
+     * unless it applies them, and so the stylesheet is not compiled for
+     * streaming because of them.
+     *
+     * @param transformation The XSLT stylesheet
+     *
+     * @return true if the stylesheet has an {@code xsl:mode} for its initial mode with {@code streamable="yes"}
+     */
+    static boolean isStreamable(final Path transformation) throws IOException {
         try(final InputStream is = Files.newInputStream(transformation)) {
-            final Templates templates = factory.newTemplates(new StreamSource(is, transformation.toAbsolutePath().toString()));
-            return new TimestampedTemplates(timestamp, templates);
+            final XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(is);
+            try {
+                String defaultMode = UNNAMED_MODE;
+                int depth = 0;
+                while(reader.hasNext()) {
+                    final int event = reader.next();
+                    if(event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                        if(depth == 1) {
+                            final String mode = reader.getAttributeValue(XMLConstants.NULL_NS_URI, "default-mode");
+                            if(mode != null && !mode.trim().isEmpty()) {
+                                defaultMode = mode.trim();
+                            }
+                        } else if(depth == 2 && XSLT_NS.equals(reader.getNamespaceURI()) && "mode".equals(reader.getLocalName())) {
+                            final String streamable = reader.getAttributeValue(XMLConstants.NULL_NS_URI, "streamable");
+                            if(streamable != null && isYes(streamable.trim()) && isMode(reader.getAttributeValue(XMLConstants.NULL_NS_URI, "name"), defaultMode)) {
+                                return true;
+                            }
+                        }
+                    } else if(event == XMLStreamConstants.END_ELEMENT) {
+                        depth--;
+                        if(depth == 0) {
+                            break;
+                        }
+                    }
+                }
+                return false;
+            } finally {
+                reader.close();
+            }
+        } catch(final XMLStreamException e) {
+            //the stylesheet will be reported as invalid when it is compiled
+            return false;
+        }
+    }
+
+    /**
+     * Determines if the name of an {@code xsl:mode} refers to a mode
+     *
+     * @param name The name of the mode, or null for the unnamed mode
+     * @param mode The mode, either a name or {@code #unnamed}
+     *
+     * @return true if the name refers to the mode
+     */
+    private static boolean isMode(@Nullable final String name, final String mode) {
+        if(name == null || name.trim().isEmpty() || name.trim().equals(UNNAMED_MODE)) {
+            return mode.equals(UNNAMED_MODE);
         }
+        return name.trim().equals(DEFAULT_MODE) || name.trim().equals(mode);
+    }
+
+    private static boolean isYes(final String value) {
+        return value.equals("yes") || value.equals("true") || value.equals("1");
     }
 
-    private Templates cacheTemplates(final TimestampedTemplates timestampedTemplates, final Path transformation) {
+    @Nullable
+    private static TransformerFactory newStreamingFactory() {
+        try {
+            final Class<?> clazz = Class.forName(STREAMING_TRANSFORMER_FACTORY_CLASS);
+            return (TransformerFactory)clazz.getDeclaredConstructor().newInstance();
+        } catch(final ClassNotFoundException e) {
+            return null;
+        } catch(final ReflectiveOperationException | LinkageError | RuntimeException e) {
+            LOGGER.warn("Unable to create Saxon-EE streaming transformer factory: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Caches compiled templates, unless the file has changed since they were compiled
+     *
+     * The file may change whilst the templates are compiled, and the change be
+     * notified before the templates are cached. As a watched file's modification
+     * time is not otherwise checked, it is checked again once the templates have
+     * been cached, and the templates are removed if they are stale.
+     */
+    private Templates cacheTemplates(final TimestampedTemplates timestampedTemplates, final Path transformation) throws IOException {
         cache.put(transformation, timestampedTemplates);
+        if(timestampedTemplates.timestamp != Files.getLastModifiedTime(transformation).toMillis()) {
+            cache.remove(transformation, timestampedTemplates);
+        }
         return timestampedTemplates.templates;
     }
 
@@ -0,0 +1,122 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer;
+
+import org.humanistika.oxygen.tei.completer.configuration.beans.AutoComplete;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.humanistika.oxygen.tei.completer.XPathUtil.parseXPath;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link AutoCompleteIndex}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class AutoCompleteIndexTest {
+
+    private final static AutoComplete W_LEMMA = autoComplete("//w", "@lemma");
+    private final static AutoComplete W_ANY = autoComplete("//w", "@*");
+    private final static AutoComplete ANY_LEMMA = autoComplete("//*", "@lemma");
+    private final static AutoComplete DESCENDANT_LEMMA = autoComplete("/TEI/text/", "@lemma");
+    private final static AutoComplete PERS_NAME_REF = autoComplete("//persName", "@ref");
+    private final static AutoComplete NAME_REF = autoComplete("/TEI/text/body/p/name", "@ref");
+
+    private final static List<AutoComplete> AUTO_COMPLETES = Arrays.asList(
+            W_LEMMA, PERS_NAME_REF, W_ANY, ANY_LEMMA, NAME_REF, DESCENDANT_LEMMA
+    );
+
+    @Test
+    public void candidatesByElementAndAttribute() {
+        final AutoCompleteIndex<AutoComplete> index = index(AUTO_COMPLETES);
+
+        assertEquals(Arrays.asList(W_LEMMA, W_ANY, ANY_LEMMA, DESCENDANT_LEMMA), candidates(index, "/TEI/text[1]/body[1]/p[2]/w[7]/@lemma"));
+        assertEquals(Arrays.asList(PERS_NAME_REF), candidates(index, "/TEI/text[1]/body[1]/p[2]/persName[1]/@ref"));
+        assertEquals(Arrays.asList(W_ANY), candidates(index, "/TEI/text[1]/body[1]/p[2]/w[1]/@ana"));
+        assertEquals(Arrays.asList(ANY_LEMMA, DESCENDANT_LEMMA), candidates(index, "/TEI/text[1]/body[1]/p[2]/seg[1]/@lemma"));
+        assertTrue(candidates(index, "/TEI/text[1]/body[1]/p[2]/seg[1]/@ana").isEmpty());
+    }
+
+    @Test
+    public void candidatesAreSupersetOfMatches() {
+        final AutoCompleteIndex<AutoComplete> index = index(AUTO_COMPLETES);
+
+        final String[] attributeXPaths = {
+                "/TEI/text[1]/body[1]/p[2]/w[7]/@lemma",
+                "/TEI/text[1]/body[1]/p[2]/w[7]/@ana",
+                "/TEI/text[1]/body[1]/p[1]/name[1]/@ref",
+                "/TEI/text[1]/body[1]/p[1]/persName[1]/@ref",
+                "/TEI/text[1]/body[1]/p[1]/seg[1]/@lemma",
+                "/TEI/teiHeader[1]/@lemma"
+        };
+
+        for(final String attributeXPath : attributeXPaths) {
+            final List<AutoComplete> candidates = candidates(index, attributeXPath);
+            for(final AutoComplete autoComplete : AUTO_COMPLETES) {
+                if(XPathUtil.isSubset(attributeXPath, autoComplete.getContext() + "/" + autoComplete.getAttribute())) {
+                    assertTrue(candidates.contains(autoComplete), attributeXPath + " should have candidate " + autoComplete.getContext() + "/" + autoComplete.getAttribute());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void matchesAreMemoized() {
+        final AutoCompleteIndex<AutoComplete> index = index(AUTO_COMPLETES);
+
+        final List<AutoComplete> matches = index.getMatches("/TEI/text[1]/body[1]/p[2]/w[7]/@lemma");
+        assertEquals(Arrays.asList(W_LEMMA, W_ANY, ANY_LEMMA, DESCENDANT_LEMMA), matches);
+        assertSame(matches, index.getMatches("/TEI/text[1]/body[1]/p[2]/w[7]/@lemma"));
+        assertEquals(1, index.getMatchesMemo().getHitCount());
+        assertEquals(1, index.getMatchesMemo().getMissCount());
+
+        assertEquals(Arrays.asList(NAME_REF), index.getMatches("/TEI/text[1]/body[1]/p[1]/name[1]/@ref"));
+        assertEquals(2, index.getMatchesMemo().getMissCount());
+    }
+
+    @Test
+    public void emptyIndex() {
+        final AutoCompleteIndex<AutoComplete> index = index(Collections.emptyList());
+        assertTrue(candidates(index, "/TEI/text[1]/body[1]/p[2]/w[7]/@lemma").isEmpty());
+    }
+
+    private static AutoCompleteIndex<AutoComplete> index(final List<AutoComplete> autoCompletes) {
+        return new AutoCompleteIndex<>(autoCompletes, autoComplete -> parseXPath(autoComplete.getContext() + "/" + autoComplete.getAttribute()));
+    }
+
+    private static List<AutoComplete> candidates(final AutoCompleteIndex<AutoComplete> index, final String attributeXPath) {
+        return index.getCandidates(parseXPath(attributeXPath)).stream()
+                .map(AutoCompleteIndex.Entry::getAutoComplete)
+                .collect(Collectors.toList());
+    }
+
+    private static AutoComplete autoComplete(final String context, final String attribute) {
+        return new AutoComplete(Collections.emptyMap(), context, attribute, null, null, null, null);
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests for {@link BoundedMemo}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class BoundedMemoTest {
+
+    @Test
+    public void valuesAreMemoized() {
+        final AtomicInteger computations = new AtomicInteger();
+        final Function<String, String> compute = key -> {
+            computations.incrementAndGet();
+            return key.toUpperCase();
+        };
+        final BoundedMemo<String, String> memo = new BoundedMemo<>(10);
+
+        assertEquals("A", memo.computeIfAbsent("a", compute));
+        assertEquals("A", memo.computeIfAbsent("a", compute));
+        assertEquals(1, computations.get());
+        assertEquals(1, memo.getHitCount());
+        assertEquals(1, memo.getMissCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        final AtomicInteger computations = new AtomicInteger();
+        final Function<String, String> compute = key -> {
+            computations.incrementAndGet();
+            return key.toUpperCase();
+        };
+        final BoundedMemo<String, String> memo = new BoundedMemo<>(2);
+
+        memo.computeIfAbsent("a", compute);
+        memo.computeIfAbsent("b", compute);
+        memo.computeIfAbsent("a", compute);  // hit, "b" is now least recently used
+        memo.computeIfAbsent("c", compute);  // evicts "b"
+        assertEquals(2, memo.size());
+        assertEquals(3, computations.get());
+
+        memo.computeIfAbsent("a", compute);
+        assertEquals(3, computations.get());
+
+        memo.computeIfAbsent("b", compute);
+        assertEquals(4, computations.get());
+    }
+
+    @Test
+    public void nullIsNotMemoized() {
+        final AtomicInteger computations = new AtomicInteger();
+        final BoundedMemo<String, String> memo = new BoundedMemo<>(10);
+
+        assertNull(memo.computeIfAbsent("a", key -> { computations.incrementAndGet(); return null; }));
+        assertNull(memo.computeIfAbsent("a", key -> { computations.incrementAndGet(); return null; }));
+        assertEquals(2, computations.get());
+        assertEquals(0, memo.size());
+    }
+}
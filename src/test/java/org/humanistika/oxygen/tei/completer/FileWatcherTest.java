@@ -0,0 +1,139 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link FileWatcher}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class FileWatcherTest {
+
+    private final static long TIMEOUT = 30;  // seconds, some platforms poll for changes
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void listenerIsCalledWhenFileChanges() throws IOException, InterruptedException {
+        final Path file = Files.write(tempDir.resolve("watched.txt"), "before".getBytes(UTF_8));
+        final CountDownLatch changed = new CountDownLatch(1);
+        assertTrue(FileWatcher.getInstance().watch(file, changed::countDown));
+
+        Files.write(file, "after".getBytes(UTF_8));
+
+        assertTrue(changed.await(TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void onlyListenersOfTheChangedFileAreCalled() throws IOException, InterruptedException {
+        final Path file = Files.write(tempDir.resolve("watched.txt"), "before".getBytes(UTF_8));
+        final Path other = Files.write(tempDir.resolve("other.txt"), "before".getBytes(UTF_8));
+        final AtomicInteger otherChanges = new AtomicInteger();
+        final CountDownLatch changed = new CountDownLatch(1);
+        assertTrue(FileWatcher.getInstance().watch(other, otherChanges::incrementAndGet));
+        assertTrue(FileWatcher.getInstance().watch(file, changed::countDown));
+
+        Files.write(file, "after".getBytes(UTF_8));
+
+        assertTrue(changed.await(TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(0, otherChanges.get());
+    }
+
+    @Test
+    public void unwatchedListenerIsNotCalled() throws IOException, InterruptedException {
+        final Path file = Files.write(tempDir.resolve("watched.txt"), "before".getBytes(UTF_8));
+        final AtomicInteger unwatchedChanges = new AtomicInteger();
+        final Runnable unwatched = unwatchedChanges::incrementAndGet;
+        assertTrue(FileWatcher.getInstance().watch(file, unwatched));
+        final CountDownLatch changed = new CountDownLatch(1);
+        assertTrue(FileWatcher.getInstance().watch(file, changed::countDown));
+
+        FileWatcher.getInstance().unwatch(file, unwatched);
+        Files.write(file, "after".getBytes(UTF_8));
+
+        assertTrue(changed.await(TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(0, unwatchedChanges.get());
+    }
+
+    @Test
+    public void failingListenerDoesNotStopOthers() throws IOException, InterruptedException {
+        final Path file = Files.write(tempDir.resolve("watched.txt"), "before".getBytes(UTF_8));
+        final CountDownLatch changed = new CountDownLatch(1);
+        assertTrue(FileWatcher.getInstance().watch(file, () -> {
+            throw new IllegalStateException("listener failed");
+        }));
+        assertTrue(FileWatcher.getInstance().watch(file, changed::countDown));
+
+        Files.write(file, "after".getBytes(UTF_8));
+
+        assertTrue(changed.await(TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void listenerIsCalledWhenDirectoryIsNoLongerWatched() throws IOException, InterruptedException {
+        final Path dir = Files.createDirectory(tempDir.resolve("watched"));
+        final Path file = Files.write(dir.resolve("watched.txt"), "before".getBytes(UTF_8));
+        final CountDownLatch unwatched = new CountDownLatch(1);
+        final Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                if(!FileWatcher.getInstance().isWatched(file, this)) {
+                    unwatched.countDown();
+                }
+            }
+        };
+        assertTrue(FileWatcher.getInstance().watch(file, listener));
+        assertTrue(FileWatcher.getInstance().isWatched(file, listener));
+
+        Files.delete(file);
+        Files.delete(dir);
+
+        assertTrue(unwatched.await(TIMEOUT, TimeUnit.SECONDS));
+        assertFalse(FileWatcher.getInstance().isWatched(file, listener));
+
+        // the file may be watched again once its directory exists
+        Files.createDirectory(dir);
+        Files.write(file, "before".getBytes(UTF_8));
+        final CountDownLatch changed = new CountDownLatch(1);
+        assertTrue(FileWatcher.getInstance().watch(file, changed::countDown));
+
+        Files.write(file, "after".getBytes(UTF_8));
+
+        assertTrue(changed.await(TIMEOUT, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,418 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.ns.tei_completer.Suggestions;
+import org.humanistika.oxygen.tei.completer.configuration.Configuration;
+import org.humanistika.oxygen.tei.completer.configuration.Configuration.MatchMode;
+import org.humanistika.oxygen.tei.completer.configuration.impl.XmlConfiguration;
+import org.humanistika.oxygen.tei.completer.configuration.beans.Authentication;
+import org.humanistika.oxygen.tei.completer.configuration.beans.AutoComplete;
+import org.humanistika.oxygen.tei.completer.configuration.beans.CacheInfo;
+import org.humanistika.oxygen.tei.completer.configuration.beans.IndexInfo;
+import org.humanistika.oxygen.tei.completer.configuration.beans.RequestInfo;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseAction;
+import org.humanistika.oxygen.tei.completer.remote.Client;
+import org.humanistika.oxygen.tei.completer.remote.ClientFactory;
+import org.humanistika.oxygen.tei.completer.remote.impl.CachingClient;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ro.sync.contentcompletion.xml.CIValue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link TeiCompleter}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class TeiCompleterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final static String LEMMAS_URL = "http://localhost:8080/getlemma/$selection";
+    private final static String FORMS_URL = "http://localhost:8080/getform/$selection";
+    private final static String PLACES_URL = "http://localhost:8080/getplace/$selection";
+
+    @Test
+    public void requestAutoCompletesMergesInConfigurationOrder() {
+        final TeiCompleter teiCompleter = teiCompleter(MatchMode.ALL, new StubClient()
+                .suggest(LEMMAS_URL, "lemma1", "first lemma")
+                .suggest(LEMMAS_URL, "lemma2", "second lemma")
+                .suggest(FORMS_URL, "form1", "first form"));
+
+        final List<CIValue> results = teiCompleter.requestAutoCompletes(Arrays.asList(autoComplete("@lemma", FORMS_URL, null), autoComplete("@lemma", LEMMAS_URL, null)), "sel", null);
+
+        assertEquals(Arrays.asList("form1", "lemma1", "lemma2"), values(results));
+        assertEquals(Arrays.asList("first form", "first lemma", "second lemma"), annotations(results));
+    }
+
+    @Test
+    public void requestAutoCompletesDeduplicatesByValue() {
+        final TeiCompleter teiCompleter = teiCompleter(MatchMode.ALL, new StubClient()
+                .suggest(LEMMAS_URL, "lemma1", "from lemmas")
+                .suggest(LEMMAS_URL, "lemma2", "from lemmas")
+                .suggest(FORMS_URL, "lemma2", "from forms")
+                .suggest(FORMS_URL, "form1", "from forms"));
+
+        final List<CIValue> results = teiCompleter.requestAutoCompletes(Arrays.asList(autoComplete("@lemma", LEMMAS_URL, null), autoComplete("@lemma", FORMS_URL, null)), "sel", null);
+
+        //the suggestion from the earliest auto-complete is kept
+        assertEquals(Arrays.asList("lemma1", "lemma2", "form1"), values(results));
+        assertEquals(Arrays.asList("from lemmas", "from lemmas", "from forms"), annotations(results));
+    }
+
+    @Test
+    public void requestAutoCompletesAnnotatesWithLabel() {
+        final TeiCompleter teiCompleter = teiCompleter(MatchMode.ALL, new StubClient()
+                .suggest(LEMMAS_URL, "lemma1", "a lemma")
+                .suggest(LEMMAS_URL, "lemma2", null)
+                .suggest(FORMS_URL, "form1", "a form"));
+
+        final List<CIValue> results = teiCompleter.requestAutoCompletes(Arrays.asList(autoComplete("@lemma", LEMMAS_URL, "Lemmas"), autoComplete("@lemma", FORMS_URL, null)), "sel", null);
+
+        assertEquals(Arrays.asList("lemma1", "lemma2", "form1"), values(results));
+        assertEquals(Arrays.asList("[Lemmas] a lemma", "[Lemmas]", "a form"), annotations(results));
+    }
+
+    @Test
+    public void requestAutoCompletesStreamsDeduplicatedAndLabelled() throws InterruptedException, ExecutionException, TimeoutException {
+        final TeiCompleter teiCompleter = teiCompleter(MatchMode.ALL, new StubClient()
+                .suggest(LEMMAS_URL, "lemma1", "a lemma")
+                .suggest(FORMS_URL, "lemma1", "a form"));
+
+        final List<CIValue> results = Collections.synchronizedList(new ArrayList<>());
+        teiCompleter.requestAutoCompletes(Arrays.asList(autoComplete("@lemma", LEMMAS_URL, "Lemmas"), autoComplete("@lemma", FORMS_URL, "Forms")), "sel", null, results::add)
+                .get(10, TimeUnit.SECONDS);
+
+        //whichever suggestion arrives first is kept
+        assertEquals(Arrays.asList("lemma1"), values(results));
+        assertTrue(Arrays.asList("[Lemmas] a lemma", "[Forms] a form").contains(results.get(0).getAnnotation()));
+    }
+
+    @Test
+    public void matchFirstRequestsOnlyTheFirstMatchingAutoComplete() {
+        final AutoComplete lemmas = autoComplete("@lemma", LEMMAS_URL, null);
+        final AutoComplete forms = autoComplete("@*", FORMS_URL, null);
+        final AutoComplete places = autoComplete("@ref", PLACES_URL, null);
+        final TeiCompleter teiCompleter = teiCompleter(MatchMode.FIRST, new StubClient(), lemmas, forms, places);
+
+        assertEquals(Arrays.asList(lemmas, forms), teiCompleter.getMatchingAutoCompletes("/TEI/text[1]/body[1]/p[1]/w[1]", "lemma"));
+        assertEquals(Arrays.asList(lemmas), teiCompleter.getAutoCompletesToRequest("/TEI/text[1]/body[1]/p[1]/w[1]", "lemma"));
+        assertEquals(Arrays.asList(forms), teiCompleter.getAutoCompletesToRequest("/TEI/text[1]/body[1]/p[1]/w[1]", "ana"));
+        assertEquals(Collections.emptyList(), teiCompleter.getAutoCompletesToRequest("/TEI/text[1]/body[1]/p[1]/seg[1]", "lemma"));
+    }
+
+    @Test
+    public void matchAllRequestsAllMatchingAutoCompletes() {
+        final AutoComplete lemmas = autoComplete("@lemma", LEMMAS_URL, null);
+        final AutoComplete forms = autoComplete("@*", FORMS_URL, null);
+        final AutoComplete places = autoComplete("@ref", PLACES_URL, null);
+        final TeiCompleter teiCompleter = teiCompleter(MatchMode.ALL, new StubClient(), lemmas, forms, places);
+
+        assertEquals(Arrays.asList(lemmas, forms), teiCompleter.getAutoCompletesToRequest("/TEI/text[1]/body[1]/p[1]/w[1]", "lemma"));
+        assertEquals(Arrays.asList(forms, places), teiCompleter.getAutoCompletesToRequest("/TEI/text[1]/body[1]/p[1]/w[1]", "ref"));
+    }
+
+    @Test
+    public void deadlineFallsBackToStaleCachedSuggestions() throws InterruptedException {
+        final SlowClient slowClient = new SlowClient();
+        final TeiCompleter teiCompleter = teiCompleter(MatchMode.ALL, slowClient);
+        //cached suggestions expire immediately
+        final RequestInfo requestInfo = new RequestInfo(LEMMAS_URL, null, new CacheInfo(0), 250L);
+        final AutoComplete autoComplete = new AutoComplete(Collections.emptyMap(), "//w", "@lemma", null, null, requestInfo, null, null);
+
+        assertEquals(Arrays.asList("lemma1"), values(teiCompleter.requestAutoComplete(autoComplete, "sel", null)));
+
+        //the server is now slower than the deadline
+        assertEquals(Arrays.asList("lemma1"), values(teiCompleter.requestAutoComplete(autoComplete, "sel", null)));
+        assertFalse(slowClient.responded.await(0, TimeUnit.SECONDS));
+
+        //the late response is still cached for subsequent requests
+        slowClient.release.countDown();
+        assertTrue(slowClient.responded.await(10, TimeUnit.SECONDS));
+        final CachingClient cachingClient = (CachingClient)teiCompleter.getClient((Authentication.AuthenticationType)null);
+        for(int i = 0; i < 100 && !"lemma2".equals(cachingClient.getCachedSuggestions(requestInfo, "sel", null, null).getSuggestion().get(0).getValue()); i++) {
+            Thread.sleep(100);
+        }
+        assertEquals("lemma2", cachingClient.getCachedSuggestions(requestInfo, "sel", null, null).getSuggestion().get(0).getValue());
+    }
+
+    @Test
+    public void clearClientsKeepsClientsOfConfiguredIndexes() {
+        final AutoComplete lemmas = indexAutoComplete("lemmas.csv");
+        final AutoComplete places = indexAutoComplete("places.csv");
+        final TeiCompleter teiCompleter = teiCompleter(MatchMode.ALL, new StubClient(), lemmas, places);
+        final Client lemmasClient = teiCompleter.getClient(lemmas);
+        final Client placesClient = teiCompleter.getClient(places);
+        assertSame(lemmasClient, teiCompleter.getClient(indexAutoComplete("lemmas.csv")));
+
+        TeiCompleter.clearClients(Arrays.asList(indexAutoComplete("lemmas.csv")));
+        assertSame(lemmasClient, teiCompleter.getClient(lemmas));
+        assertNotSame(placesClient, teiCompleter.getClient(places));
+
+        TeiCompleter.clearClients();
+        assertNotSame(lemmasClient, teiCompleter.getClient(lemmas));
+    }
+
+    @Test
+    public void clearClientsClosesDiscardedClients() {
+        final AtomicInteger closed = new AtomicInteger();
+        final StubClient client = new StubClient() {
+            @Override
+            public void close() {
+                closed.incrementAndGet();
+            }
+        };
+        final TeiCompleter teiCompleter = teiCompleter(MatchMode.ALL, client);
+        teiCompleter.getClient((Authentication.AuthenticationType)null);
+
+        TeiCompleter.clearClients();
+        assertEquals(1, closed.get());
+
+        //a client is only closed once
+        TeiCompleter.clearClients();
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    public void configurationReloadedReplacesAutoCompletesAndClients() throws IOException, InterruptedException {
+        TeiCompleter.clearClients();
+
+        final Path configFile = writeConfig("//w");
+        final XmlConfiguration<AutoComplete> configuration = new XmlConfiguration<>(configFile);
+        final List<List<? extends AutoComplete>> warmUps = Collections.synchronizedList(new ArrayList<>());
+        final TeiCompleter teiCompleter = new TeiCompleter() {
+            @Override
+            protected Configuration<? extends AutoComplete> loadConfiguration() {
+                return configuration;
+            }
+
+            @Override
+            protected ClientFactory getClientFactory() {
+                return authenticationType -> new StubClient();
+            }
+
+            @Override
+            protected WarmUp startWarmUp(final List<? extends AutoComplete> autoCompletes, final Set<WarmUp.Step> steps) {
+                warmUps.add(autoCompletes);
+                return new WarmUp(this, autoCompletes, steps);
+            }
+        };
+
+        assertEquals(Arrays.asList("//w"), contexts(teiCompleter.getMatchingAutoCompletes("/TEI/text[1]/body[1]/p[1]/w[1]", "ref")));
+        final Client client = teiCompleter.getClient((Authentication.AuthenticationType)null);
+        assertSame(client, teiCompleter.getClient((Authentication.AuthenticationType)null));
+
+        //NOTE: listeners are called in the order they were registered, so this is called after the TeiCompleter's listener
+        final CountDownLatch reloaded = new CountDownLatch(1);
+        configuration.addReloadListener(reloaded::countDown);
+        writeConfig("//persName");
+        assertTrue(reloaded.await(30, TimeUnit.SECONDS));
+
+        assertEquals(Collections.emptyList(), teiCompleter.getMatchingAutoCompletes("/TEI/text[1]/body[1]/p[1]/w[1]", "ref"));
+        assertEquals(Arrays.asList("//persName"), contexts(teiCompleter.getMatchingAutoCompletes("/TEI/text[1]/body[1]/p[1]/persName[1]", "ref")));
+        assertNotSame(client, teiCompleter.getClient((Authentication.AuthenticationType)null));
+
+        //the reloaded configuration is prepared
+        assertEquals(2, warmUps.size());
+        assertEquals(Arrays.asList("//persName"), contexts(warmUps.get(1)));
+    }
+
+    private Path writeConfig(final String context) throws IOException {
+        final String config =
+                "<config xmlns=\"http://humanistika.org/ns/tei-completer\">\n" +
+                "    <server><baseUrl>http://localhost:8080</baseUrl></server>\n" +
+                "    <autoComplete>\n" +
+                "        <context>" + context + "</context>\n" +
+                "        <attribute>@ref</attribute>\n" +
+                "        <selection>./text()</selection>\n" +
+                "        <request><url>$baseUrl/lookup/$selection</url></request>\n" +
+                "    </autoComplete>\n" +
+                "</config>";
+        return Files.write(tempDir.resolve("config.xml"), config.getBytes(UTF_8));
+    }
+
+    private static List<String> contexts(final List<? extends AutoComplete> autoCompletes) {
+        final List<String> contexts = new ArrayList<>();
+        for(final AutoComplete autoComplete : autoCompletes) {
+            contexts.add(autoComplete.getContext());
+        }
+        return contexts;
+    }
+
+    private static TeiCompleter teiCompleter(final MatchMode matchMode, final Client client, final AutoComplete... autoCompletes) {
+        //clients are shared by all instances, so discard any created for another test
+        TeiCompleter.clearClients();
+
+        final Configuration<AutoComplete> configuration = new StubConfiguration(matchMode, Arrays.asList(autoCompletes));
+        return new TeiCompleter() {
+            @Override
+            public Configuration<? extends AutoComplete> getConfiguration() {
+                return configuration;
+            }
+
+            @Override
+            protected ClientFactory getClientFactory() {
+                return authenticationType -> client;
+            }
+        };
+    }
+
+    private static AutoComplete autoComplete(final String attribute, final String url, @Nullable final String label) {
+        return new AutoComplete(Collections.emptyMap(), "//w", attribute, null, null, new RequestInfo(url, null), null, label);
+    }
+
+    private AutoComplete indexAutoComplete(final String file) {
+        final IndexInfo indexInfo = new IndexInfo(tempDir.resolve(file), IndexInfo.Format.CSV, IndexInfo.Match.PREFIX, true, true, 100, IndexInfo.Storage.MEMORY);
+        return new AutoComplete(Collections.emptyMap(), "//w", "@lemma", null, null, null, null, null, indexInfo);
+    }
+
+    private static List<String> values(final List<CIValue> results) {
+        final List<String> values = new ArrayList<>();
+        for(final CIValue result : results) {
+            values.add(result.getValue());
+        }
+        return values;
+    }
+
+    private static List<String> annotations(final List<CIValue> results) {
+        final List<String> annotations = new ArrayList<>();
+        for(final CIValue result : results) {
+            annotations.add(result.getAnnotation());
+        }
+        return annotations;
+    }
+
+    private static class StubConfiguration implements Configuration<AutoComplete> {
+        private final MatchMode matchMode;
+        private final List<AutoComplete> autoCompletes;
+
+        StubConfiguration(final MatchMode matchMode, final List<AutoComplete> autoCompletes) {
+            this.matchMode = matchMode;
+            this.autoCompletes = autoCompletes;
+        }
+
+        @Override
+        public List<AutoComplete> getAutoCompletes() {
+            return autoCompletes;
+        }
+
+        @Override
+        public MatchMode getMatchMode() {
+            return matchMode;
+        }
+
+        @Override
+        public long getLiveSearchDelay() {
+            return 0;
+        }
+
+        @Override
+        public boolean isWarmUp() {
+            return false;
+        }
+    }
+
+    /**
+     * Client which returns the suggestions that were
+     * configured for the URL template of the request
+     */
+    private static class StubClient implements Client {
+        private final Map<String, List<Suggestion>> suggestions = new HashMap<>();
+
+        StubClient suggest(final String urlTemplate, final String value, @Nullable final String description) {
+            final Suggestion suggestion = new Suggestion();
+            suggestion.setValue(value);
+            suggestion.setDescription(description);
+            suggestions.computeIfAbsent(urlTemplate, key -> new ArrayList<>()).add(suggestion);
+            return this;
+        }
+
+        @Override
+        public Suggestions getSuggestions(final RequestInfo requestInfo, final String selection, @Nullable final String dependent, @Nullable final ResponseAction responseAction) {
+            final Suggestions result = new Suggestions();
+            result.getSuggestion().addAll(suggestions.getOrDefault(requestInfo.getUrlTemplate(), Collections.emptyList()));
+            return result;
+        }
+
+        @Override
+        public CompletionStage<Suggestions> getSuggestionsAsync(final RequestInfo requestInfo, final String selection, @Nullable final String dependent, @Nullable final ResponseAction responseAction) {
+            return CompletableFuture.completedFuture(getSuggestions(requestInfo, selection, dependent, responseAction));
+        }
+    }
+
+    /**
+     * Client which responds immediately to the first request,
+     * and to later requests only once it is released
+     */
+    private static class SlowClient implements Client {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch responded = new CountDownLatch(1);
+        private final AtomicInteger requests = new AtomicInteger();
+
+        @Override
+        public Suggestions getSuggestions(final RequestInfo requestInfo, final String selection, @Nullable final String dependent, @Nullable final ResponseAction responseAction) {
+            final Suggestion suggestion = new Suggestion();
+            if(requests.incrementAndGet() == 1) {
+                suggestion.setValue("lemma1");
+            } else {
+                try {
+                    release.await();
+                } catch(final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                suggestion.setValue("lemma2");
+                responded.countDown();
+            }
+            final Suggestions suggestions = new Suggestions();
+            suggestions.getSuggestion().add(suggestion);
+            return suggestions;
+        }
+    }
+}
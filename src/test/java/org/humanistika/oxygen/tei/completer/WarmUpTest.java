@@ -0,0 +1,106 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer;
+
+import org.humanistika.ns.tei_completer.Suggestions;
+import org.humanistika.oxygen.tei.completer.configuration.beans.AutoComplete;
+import org.humanistika.oxygen.tei.completer.configuration.beans.RequestInfo;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseAction;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseMapping;
+import org.humanistika.oxygen.tei.completer.remote.Client;
+import org.humanistika.oxygen.tei.completer.remote.ClientFactory;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link WarmUp}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class WarmUpTest {
+
+    @Test
+    public void warmsUpEachServerAndTransformationOnce() {
+        //clients are shared by all instances, so discard any created for another test
+        TeiCompleter.clearClients();
+
+        final RecordingClient client = new RecordingClient();
+        final TeiCompleter teiCompleter = new TeiCompleter() {
+            @Override
+            protected ClientFactory getClientFactory() {
+                return authenticationType -> client;
+            }
+        };
+
+        final ResponseAction transformation = new ResponseAction(Paths.get("transform.xslt"));
+        final List<AutoComplete> autoCompletes = Arrays.asList(
+                autoComplete("//w", "@lemma", "http://localhost:8080/getlemma/$selection", transformation),
+                autoComplete("//w", "@ana", "http://localhost:8080/getana/$selection", new ResponseAction(Paths.get("transform.xslt"))),
+                autoComplete("//persName", "@ref", "https://gazetteer.example.org/places?q=$selection", new ResponseAction(new ResponseMapping("/places", "/id", null))),
+                autoComplete("//unparseable", "@ref", "not a url", null)
+        );
+
+        final WarmUp warmUp = new WarmUp(teiCompleter, autoCompletes);
+        warmUp.run();
+
+        assertEquals(Arrays.asList("http://localhost:8080/getlemma/$selection", "https://gazetteer.example.org/places?q=$selection"), client.connections);
+        assertEquals(Collections.singletonList(transformation), client.responseActions);
+        assertEquals(EnumSet.allOf(WarmUp.Step.class), warmUp.getTimings().keySet());
+    }
+
+    private static AutoComplete autoComplete(final String context, final String attribute, final String url, @Nullable final ResponseAction responseAction) {
+        return new AutoComplete(Collections.emptyMap(), context, attribute, null, null, new RequestInfo(url, null), responseAction);
+    }
+
+    /**
+     * Client which records what it was asked to warm up
+     */
+    private static class RecordingClient implements Client {
+        final List<String> connections = Collections.synchronizedList(new ArrayList<>());
+        final List<ResponseAction> responseActions = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public Suggestions getSuggestions(final RequestInfo requestInfo, final String selection, @Nullable final String dependent, @Nullable final ResponseAction responseAction) {
+            return new Suggestions();
+        }
+
+        @Override
+        public void warmUpConnection(final RequestInfo requestInfo) throws IOException {
+            connections.add(requestInfo.getUrlTemplate());
+        }
+
+        @Override
+        public void warmUpResponseAction(final ResponseAction responseAction) {
+            responseActions.add(responseAction);
+        }
+    }
+}
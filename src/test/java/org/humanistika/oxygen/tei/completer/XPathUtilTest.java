@@ -19,13 +19,18 @@
  */
 package org.humanistika.oxygen.tei.completer;
 
+import com.evolvedbinary.xpath.parser.ast.Expr;
 import com.evolvedbinary.xpath.parser.ast.QNameW;
 
 import static com.evolvedbinary.xpath.parser.ast.QNameW.WILDCARD;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -116,4 +121,23 @@ public class XPathUtilTest {
         assertTrue(XPathUtil.isSubsetNameTest(new QNameW("ns:a"), new QNameW(WILDCARD, WILDCARD)));
         assertTrue(XPathUtil.isSubsetNameTest(new QNameW("a"), new QNameW("a")));
     }
+
+    @Test
+    public void parseXPathReportsNoDiagnosticsForValidXPath() {
+        final List<String> errors = new ArrayList<>();
+        final XPathUtil.ParseDiagnostics diagnostics = errors::add;
+
+        // parse twice to check the per-thread buffers are reused cleanly
+        for(int i = 0; i < 2; i++) {
+            final Expr expr = XPathUtil.parseXPath("/TEI/text[1]/body[1]/p[2]/w[7]/@lemma", diagnostics);
+            assertTrue(XPathUtil.isAbsolutePathExpr(expr));
+        }
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    public void parseXPathIsMemoized() {
+        final Expr expr = XPathUtil.parseXPath("/TEI/text[1]/body[1]/p[3]/w[1]/@lemma");
+        assertSame(expr, XPathUtil.parseXPath("/TEI/text[1]/body[1]/p[3]/w[1]/@lemma"));
+    }
 }
@@ -0,0 +1,93 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.configuration.beans;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URLEncoder;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link UrlTemplate}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class UrlTemplateTest {
+
+    @Test
+    public void expandSelectionAndDependent() {
+        final UrlTemplate template = UrlTemplate.parse("http://localhost:8080/getlemma/$selection/$dependent?q=$selection");
+        assertEquals("http://localhost:8080/getlemma/%D0%BF%D1%80%D0%B8%D0%BC%D0%B5%D1%80+%D1%80%D0%B5%D1%87%D0%B8/NCMSN?q=%D0%BF%D1%80%D0%B8%D0%BC%D0%B5%D1%80+%D1%80%D0%B5%D1%87%D0%B8",
+                template.expand("пример речи", "NCMSN"));
+    }
+
+    @Test
+    public void unsubstitutedVariableIsKept() {
+        final UrlTemplate template = UrlTemplate.parse("http://localhost:8080/getlemma/$selection/$dependent");
+        assertEquals("http://localhost:8080/getlemma/word/$dependent", template.expand("word", null));
+        assertEquals("http://localhost:8080/getlemma/$selection/$dependent", template.expand((Map<RequestInfo.UrlVar, String>)null));
+    }
+
+    @Test
+    public void unknownVariableIsLiteral() {
+        final UrlTemplate template = UrlTemplate.parse("$http://localhost:8080/$price/$$selection$");
+        assertEquals("$http://localhost:8080/$price/$word$", template.expand("word", null));
+        assertEquals("$http://localhost:8080/$price/$$selection$", template.getTemplate());
+    }
+
+    @Test
+    public void expandSubstitutions() {
+        final UrlTemplate template = UrlTemplate.parse("$baseUrl/getlemma?user=$username&selection=$selection");
+        final Map<RequestInfo.UrlVar, String> substitutions = new EnumMap<>(RequestInfo.UrlVar.class);
+        substitutions.put(RequestInfo.UrlVar.BASE_URL, "http://localhost");
+        substitutions.put(RequestInfo.UrlVar.SELECTION, "a&b");
+        assertEquals("http%3A%2F%2Flocalhost/getlemma?user=$username&selection=a%26b", template.expand(substitutions));
+    }
+
+    @Test
+    public void encodedAsUrlEncoder() {
+        final String[] values = {
+                "",
+                "simple",
+                "with space",
+                "reserved:/?#[]@!$&'()*+,;=",
+                "unreserved-._~*",
+                "ÄÖÜ ß é",
+                "пример речи",
+                "中文",
+                "😀 emoji",
+                "lone \uD800 high",
+                "lone \uDC00 low",
+                "\u0000\u007F\u0080߿ࠀ￿"
+        };
+
+        for(final String value : values) {
+            final StringBuilder builder = new StringBuilder();
+            UrlTemplate.appendEncoded(builder, value);
+            assertEquals(URLEncoder.encode(value, UTF_8), builder.toString(), value);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.configuration.impl;
+
+import org.humanistika.oxygen.tei.completer.FileWatcher;
+import org.humanistika.oxygen.tei.completer.configuration.beans.AutoComplete;
+import org.humanistika.oxygen.tei.completer.configuration.beans.RequestInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link XmlConfiguration}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class XmlConfigurationTest {
+
+    private final static long TIMEOUT = 30;  // seconds, some platforms poll for changes
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void serverTimeouts() throws IOException {
+        final Path configFile = write(
+                "<config xmlns=\"http://humanistika.org/ns/tei-completer\">\n" +
+                "    <server connectTimeout=\"500\" readTimeout=\"3000\">\n" +
+                "        <baseUrl>http://localhost:8080</baseUrl>\n" +
+                "    </server>\n" +
+                "    <autoComplete>\n" +
+                "        <context>//w</context>\n" +
+                "        <attribute>@lemma</attribute>\n" +
+                "        <selection>./text()</selection>\n" +
+                "        <request timeout=\"2000\">\n" +
+                "            <url>$baseUrl/getlemma/$selection</url>\n" +
+                "        </request>\n" +
+                "    </autoComplete>\n" +
+                "    <autoComplete>\n" +
+                "        <context>//w</context>\n" +
+                "        <attribute>@ana</attribute>\n" +
+                "        <selection>./text()</selection>\n" +
+                "        <request>\n" +
+                "            <server readTimeout=\"750\">\n" +
+                "                <baseUrl>http://localhost:8081</baseUrl>\n" +
+                "            </server>\n" +
+                "            <url>$baseUrl/getana/$selection</url>\n" +
+                "        </request>\n" +
+                "    </autoComplete>\n" +
+                "</config>");
+
+        final List<AutoComplete> autoCompletes = new XmlConfiguration<>(configFile).getAutoCompletes();
+        assertEquals(2, autoCompletes.size());
+
+        final RequestInfo global = autoCompletes.get(0).getRequestInfo();
+        assertEquals("http://localhost:8080/getlemma/$selection", global.getUrlTemplate());
+        assertEquals(Long.valueOf(2000), global.getTimeout());
+        assertEquals(Long.valueOf(500), global.getConnectTimeout());
+        assertEquals(Long.valueOf(3000), global.getReadTimeout());
+
+        //the timeouts of a request's own server replace those of the global server
+        final RequestInfo specific = autoCompletes.get(1).getRequestInfo();
+        assertEquals("http://localhost:8081/getana/$selection", specific.getUrlTemplate());
+        assertNull(specific.getTimeout());
+        assertNull(specific.getConnectTimeout());
+        assertEquals(Long.valueOf(750), specific.getReadTimeout());
+    }
+
+    @Test
+    public void reloadReplacesConfiguration() throws IOException, InterruptedException {
+        final Path configFile = write(config("//w"));
+        final XmlConfiguration<AutoComplete> configuration = new XmlConfiguration<>(configFile);
+        final CountDownLatch reloaded = new CountDownLatch(1);
+        configuration.addReloadListener(reloaded::countDown);
+
+        final List<AutoComplete> previous = configuration.getAutoCompletes();
+        assertEquals(Arrays.asList("//w"), contexts(previous));
+
+        write(config("//persName", "//placeName"));
+
+        assertTrue(reloaded.await(TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("//persName", "//placeName"), contexts(configuration.getAutoCompletes()));
+
+        //whoever obtained the previous auto-completes may continue to use them
+        assertEquals(Arrays.asList("//w"), contexts(previous));
+    }
+
+    @Test
+    public void invalidReloadKeepsPreviousConfiguration() throws IOException, InterruptedException {
+        final Path configFile = write(config("//w"));
+        final XmlConfiguration<AutoComplete> configuration = new XmlConfiguration<>(configFile);
+        final AtomicInteger reloads = new AtomicInteger();
+        configuration.addReloadListener(reloads::incrementAndGet);
+        final List<AutoComplete> previous = configuration.getAutoCompletes();
+
+        //NOTE: listeners are called in the order they were registered, so this is called after the configuration has tried to reload
+        final CountDownLatch changed = new CountDownLatch(1);
+        assertTrue(FileWatcher.getInstance().watch(configFile, changed::countDown));
+
+        write("<config xmlns=\"http://humanistika.org/ns/tei-completer\"><autoComplete>");
+
+        assertTrue(changed.await(TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(0, reloads.get());
+        assertSame(previous, configuration.getAutoCompletes());
+    }
+
+    private static String config(final String... contexts) {
+        final StringBuilder config = new StringBuilder("<config xmlns=\"http://humanistika.org/ns/tei-completer\">\n");
+        config.append("    <server><baseUrl>http://localhost:8080</baseUrl></server>\n");
+        for(final String context : contexts) {
+            config.append("    <autoComplete>\n")
+                    .append("        <context>").append(context).append("</context>\n")
+                    .append("        <attribute>@ref</attribute>\n")
+                    .append("        <selection>./text()</selection>\n")
+                    .append("        <request><url>$baseUrl/lookup/$selection</url></request>\n")
+                    .append("    </autoComplete>\n");
+        }
+        return config.append("</config>").toString();
+    }
+
+    private static List<String> contexts(final List<AutoComplete> autoCompletes) {
+        final List<String> contexts = new ArrayList<>();
+        for(final AutoComplete autoComplete : autoCompletes) {
+            contexts.add(autoComplete.getContext());
+        }
+        return contexts;
+    }
+
+    private Path write(final String config) throws IOException {
+        return Files.write(tempDir.resolve("config.xml"), config.getBytes(UTF_8));
+    }
+}
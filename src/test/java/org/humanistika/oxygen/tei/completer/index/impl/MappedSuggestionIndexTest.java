@@ -0,0 +1,252 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.index.impl;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.oxygen.tei.completer.configuration.beans.IndexInfo;
+import org.humanistika.oxygen.tei.completer.index.SuggestionIndex;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link MappedSuggestionIndex}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class MappedSuggestionIndexTest {
+
+    private final static String CSV =
+            "value,description,selection,dependent\n" +
+            "Beograd,Capital,,Srbija\n" +
+            "Beočin,,,Vojvodina\n" +
+            "Čačak,,,\n" +
+            "Novi Sad,,ns,Vojvodina\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void prefix() throws IOException {
+        final MappedSuggestionIndex index = load(write("index.csv", CSV), IndexInfo.Match.PREFIX, true, 100);
+        assertEquals(4, index.size());
+        assertEquals(Arrays.asList("Beočin", "Beograd"), values(index, "beo", null));
+        assertEquals(Arrays.asList("Čačak"), values(index, "cac", null));
+        assertEquals(Arrays.asList("Novi Sad"), values(index, "ns", null));
+        assertEquals(Arrays.asList(), values(index, "Zagreb", null));
+
+        final List<Suggestion> suggestions = find(index, "beog", null);
+        assertEquals(1, suggestions.size());
+        assertEquals("Capital", suggestions.get(0).getDescription());
+    }
+
+    @Test
+    public void exact() throws IOException {
+        final MappedSuggestionIndex index = load(write("index.csv", CSV), IndexInfo.Match.EXACT, true, 100);
+        assertEquals(Arrays.asList(), values(index, "beo", null));
+        assertEquals(Arrays.asList("Beograd"), values(index, "BEOGRAD", null));
+    }
+
+    @Test
+    public void dependent() throws IOException {
+        final MappedSuggestionIndex index = load(write("index.csv", CSV), IndexInfo.Match.PREFIX, true, 100);
+        assertEquals(Arrays.asList("Beograd"), values(index, "beo", "Srbija"));
+
+        // suggestions with a dependent are found when there is no dependent
+        assertEquals(Arrays.asList("Beočin", "Beograd"), values(index, "beo", ""));
+        assertEquals(Arrays.asList("Beočin", "Beograd"), values(index, "beo", null));
+
+        // suggestions without a dependent are found for any dependent
+        assertEquals(Arrays.asList("Čačak"), values(index, "cac", "Srbija"));
+    }
+
+    @Test
+    public void resultLimit() throws IOException {
+        final MappedSuggestionIndex index = load(write("index.csv", CSV), IndexInfo.Match.PREFIX, true, 1);
+        assertEquals(Arrays.asList("Beočin"), values(index, "beo", null));
+    }
+
+    @Test
+    public void empty() throws IOException {
+        final MappedSuggestionIndex index = load(write("index.csv", "value\n"), IndexInfo.Match.PREFIX, true, 100);
+        assertEquals(0, index.size());
+        assertEquals(Arrays.asList(), values(index, "beo", null));
+    }
+
+    /**
+     * Checks lookups which span many blocks against the same lookups in memory
+     */
+    @Test
+    public void sameAsMemoryIndex() throws IOException {
+        final String[] syllables = { "a", "be", "ča", "do", "đu", "ka", "li", "ma", "no", "še", "ži" };
+        final Random random = new Random(20261018);
+        final StringBuilder csv = new StringBuilder("value,description,selection,dependent\n");
+        for(int i = 0; i < 5000; i++) {
+            final StringBuilder selection = new StringBuilder();
+            for(int j = random.nextInt(4); j >= 0; j--) {
+                selection.append(syllables[random.nextInt(syllables.length)]);
+            }
+            csv.append("value-").append(i)
+                    .append(",description ").append(i)
+                    .append(',').append(selection)
+                    .append(',').append(random.nextBoolean() ? "" : "dep-" + random.nextInt(3))
+                    .append('\n');
+        }
+        final Path file = write("index.csv", csv.toString());
+
+        for(final IndexInfo.Match match : IndexInfo.Match.values()) {
+            final IndexInfo indexInfo = new IndexInfo(file, IndexInfo.Format.CSV, match, true, true, 50, IndexInfo.Storage.MAPPED);
+            final MappedSuggestionIndex mapped = MappedSuggestionIndex.load(indexInfo);
+            final MemorySuggestionIndex memory = MemorySuggestionIndex.load(indexInfo);
+            assertEquals(memory.size(), mapped.size());
+
+            for(final String first : syllables) {
+                for(final String second : syllables) {
+                    for(final String selection : Arrays.asList(first, first + second, first.substring(0, 1) + second)) {
+                        for(final String dependent : Arrays.asList(null, "dep-1")) {
+                            assertEquals(describe(memory, selection, dependent), describe(mapped, selection, dependent), selection + " " + dependent);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void reusesIndexFile() throws IOException {
+        final Path file = write("index.csv", CSV);
+        load(file, IndexInfo.Match.PREFIX, true, 100);
+
+        final Path indexFile = MappedSuggestionIndex.getIndexFile(indexInfo(file, IndexInfo.Match.PREFIX, true, 100));
+        assertTrue(Files.exists(indexFile));
+        final FileTime built = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(indexFile, built);
+
+        final MappedSuggestionIndex index = load(file, IndexInfo.Match.PREFIX, true, 100);
+        assertEquals(built, Files.getLastModifiedTime(indexFile));
+        assertEquals(Arrays.asList("Beočin", "Beograd"), values(index, "beo", null));
+    }
+
+    @Test
+    public void rebuildsWhenChanged() throws IOException {
+        final Path file = write("index.csv", CSV);
+        final MappedSuggestionIndex previous = load(file, IndexInfo.Match.PREFIX, true, 100);
+        final Path previousIndexFile = MappedSuggestionIndex.getIndexFile(indexInfo(file, IndexInfo.Match.PREFIX, true, 100));
+
+        write("index.csv", "value\nBeli Manastir\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        final MappedSuggestionIndex index = load(file, IndexInfo.Match.PREFIX, true, 100);
+        assertEquals(1, index.size());
+        assertEquals(Arrays.asList(), values(index, "beo", null));
+        assertEquals(Arrays.asList("Beli Manastir"), values(index, "bel", null));
+
+        //a new index file is built rather than replacing the mapped one, which is then deleted
+        final Path indexFile = MappedSuggestionIndex.getIndexFile(indexInfo(file, IndexInfo.Match.PREFIX, true, 100));
+        assertNotEquals(previousIndexFile, indexFile);
+        assertTrue(Files.exists(indexFile));
+        if(!System.getProperty("os.name").startsWith("Windows")) {
+            //NOTE: Windows does not delete a file whilst it is mapped
+            assertFalse(Files.exists(previousIndexFile));
+        }
+
+        //the previous index remains usable by whoever still has it
+        assertEquals(Arrays.asList("Beočin", "Beograd"), values(previous, "beo", null));
+    }
+
+    @Test
+    public void deletesLegacyIndexFile() throws IOException {
+        final Path file = write("index.csv", CSV);
+        final Path legacyIndexFile = write("index.csv.idx", "");
+        final Path otherIndexFile = write("other.csv.1-1-1.idx", "");
+
+        load(file, IndexInfo.Match.PREFIX, true, 100);
+
+        assertFalse(Files.exists(legacyIndexFile));
+        assertTrue(Files.exists(otherIndexFile));
+    }
+
+    @Test
+    public void rebuildsWhenNormalizationChanged() throws IOException {
+        final Path file = write("index.csv", CSV);
+        assertEquals(Arrays.asList("Čačak"), values(load(file, IndexInfo.Match.PREFIX, true, 100), "cac", null));
+
+        final MappedSuggestionIndex index = load(file, IndexInfo.Match.PREFIX, false, 100);
+        assertEquals(Arrays.asList(), values(index, "cac", null));
+        assertEquals(Arrays.asList("Čačak"), values(index, "Čač", null));
+
+        //the index files of both normalizations are kept
+        final Path ignoringIndexFile = MappedSuggestionIndex.getIndexFile(indexInfo(file, IndexInfo.Match.PREFIX, true, 100));
+        final Path indexFile = MappedSuggestionIndex.getIndexFile(indexInfo(file, IndexInfo.Match.PREFIX, false, 100));
+        assertNotEquals(ignoringIndexFile, indexFile);
+        assertTrue(Files.exists(ignoringIndexFile));
+        assertTrue(Files.exists(indexFile));
+    }
+
+    private MappedSuggestionIndex load(final Path file, final IndexInfo.Match match, final boolean ignore, final long resultLimit) throws IOException {
+        return MappedSuggestionIndex.load(indexInfo(file, match, ignore, resultLimit));
+    }
+
+    private static IndexInfo indexInfo(final Path file, final IndexInfo.Match match, final boolean ignore, final long resultLimit) {
+        return new IndexInfo(file, IndexInfo.Format.CSV, match, ignore, ignore, resultLimit, IndexInfo.Storage.MAPPED);
+    }
+
+    private Path write(final String name, final String content) throws IOException {
+        return Files.write(tempDir.resolve(name), content.getBytes(UTF_8));
+    }
+
+    private static List<Suggestion> find(final SuggestionIndex index, final String selection, @Nullable final String dependent) {
+        final List<Suggestion> suggestions = new ArrayList<>();
+        index.find(selection, dependent, suggestions::add);
+        return suggestions;
+    }
+
+    private static List<String> values(final SuggestionIndex index, final String selection, @Nullable final String dependent) {
+        final List<String> values = new ArrayList<>();
+        for(final Suggestion suggestion : find(index, selection, dependent)) {
+            values.add(suggestion.getValue());
+        }
+        return values;
+    }
+
+    private static List<String> describe(final SuggestionIndex index, final String selection, @Nullable final String dependent) {
+        final List<String> values = new ArrayList<>();
+        for(final Suggestion suggestion : find(index, selection, dependent)) {
+            values.add(suggestion.getValue() + "=" + suggestion.getDescription());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.index.impl;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.oxygen.tei.completer.configuration.beans.IndexInfo;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for {@link MemorySuggestionIndex}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class MemorySuggestionIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void prefix() throws IOException {
+        final MemorySuggestionIndex index = csvIndex(IndexInfo.Match.PREFIX, true, true, 100);
+        assertEquals(Arrays.asList("Beočin", "Beograd"), values(index, "beo", null));
+        assertEquals(Arrays.asList("Čačak"), values(index, "Čač", null));
+        assertEquals(Arrays.asList(), values(index, "Zagreb", null));
+    }
+
+    @Test
+    public void exact() throws IOException {
+        final MemorySuggestionIndex index = csvIndex(IndexInfo.Match.EXACT, true, true, 100);
+        assertEquals(Arrays.asList(), values(index, "beo", null));
+        assertEquals(Arrays.asList("Beograd"), values(index, "BEOGRAD", null));
+    }
+
+    @Test
+    public void caseAndDiacriticsSensitive() throws IOException {
+        final MemorySuggestionIndex index = csvIndex(IndexInfo.Match.PREFIX, false, false, 100);
+        assertEquals(Arrays.asList(), values(index, "cac", null));
+        assertEquals(Arrays.asList(), values(index, "čač", null));
+        assertEquals(Arrays.asList("Čačak"), values(index, "Čač", null));
+    }
+
+    @Test
+    public void diacriticsInsensitive() throws IOException {
+        final MemorySuggestionIndex index = csvIndex(IndexInfo.Match.PREFIX, true, true, 100);
+        assertEquals(Arrays.asList("Čačak"), values(index, "cacak", null));
+    }
+
+    @Test
+    public void dependent() throws IOException {
+        final MemorySuggestionIndex index = csvIndex(IndexInfo.Match.PREFIX, true, true, 100);
+        assertEquals(Arrays.asList("Beograd"), values(index, "beo", "Srbija"));
+
+        // suggestions with a dependent are found when there is no dependent
+        assertEquals(Arrays.asList("Beočin", "Beograd"), values(index, "beo", ""));
+        assertEquals(Arrays.asList("Beočin", "Beograd"), values(index, "beo", null));
+
+        // suggestions without a dependent are found for any dependent
+        assertEquals(Arrays.asList("Čačak"), values(index, "cac", "Srbija"));
+    }
+
+    @Test
+    public void selection() throws IOException {
+        final MemorySuggestionIndex index = csvIndex(IndexInfo.Match.PREFIX, true, true, 100);
+        assertEquals(Arrays.asList("Novi Sad"), values(index, "ns", null));
+    }
+
+    @Test
+    public void resultLimit() throws IOException {
+        final MemorySuggestionIndex index = csvIndex(IndexInfo.Match.PREFIX, true, true, 1);
+        assertEquals(Arrays.asList("Beočin"), values(index, "beo", null));
+    }
+
+    @Test
+    public void xml() throws IOException {
+        final Path file = write("index.xml",
+                "<suggestions xmlns=\"http://humanistika.org/ns/tei-completer\">\n" +
+                "    <suggestion selection=\"bg\" dependent=\"Srbija\"><value>Beograd</value><description>Capital</description></suggestion>\n" +
+                "    <suggestion><value>Čačak</value></suggestion>\n" +
+                "    <suggestion><description>No value</description></suggestion>\n" +
+                "</suggestions>");
+        final MemorySuggestionIndex index = MemorySuggestionIndex.load(indexInfo(file, IndexInfo.Format.XML, IndexInfo.Match.PREFIX, true, true, 100));
+
+        assertEquals(2, index.size());
+        final List<Suggestion> suggestions = find(index, "BG", "srbija");
+        assertEquals(1, suggestions.size());
+        assertEquals("Beograd", suggestions.get(0).getValue());
+        assertEquals("Capital", suggestions.get(0).getDescription());
+        assertEquals(Arrays.asList("Čačak"), values(index, "cac", null));
+    }
+
+    @Test
+    public void json() throws IOException {
+        final Path file = write("index.json",
+                "{\"suggestion\": [\n" +
+                "    {\"tc:value\": \"Beograd\", \"tc:description\": \"Capital\", \"selection\": \"bg\"},\n" +
+                "    {\"value\": \"Čačak\", \"extra\": {\"ignored\": true}}\n" +
+                "]}");
+        final MemorySuggestionIndex index = MemorySuggestionIndex.load(indexInfo(file, IndexInfo.Format.JSON, IndexInfo.Match.PREFIX, true, true, 100));
+
+        assertEquals(2, index.size());
+        final List<Suggestion> suggestions = find(index, "bg", null);
+        assertEquals(1, suggestions.size());
+        assertEquals("Beograd", suggestions.get(0).getValue());
+        assertEquals("Capital", suggestions.get(0).getDescription());
+        assertEquals(Arrays.asList("Čačak"), values(index, "cac", null));
+    }
+
+    @Test
+    public void csvQuoted() throws IOException {
+        final Path file = write("index.csv",
+                "\uFEFFdescription,VALUE\r\n" +
+                "\"Capital, \"\"Beli grad\"\"\",Beograd\r\n" +
+                "\"Two\nlines\",Čačak\r\n");
+        final MemorySuggestionIndex index = MemorySuggestionIndex.load(indexInfo(file, IndexInfo.Format.CSV, IndexInfo.Match.PREFIX, true, true, 100));
+
+        final List<Suggestion> suggestions = find(index, "beo", null);
+        assertEquals(1, suggestions.size());
+        assertEquals("Capital, \"Beli grad\"", suggestions.get(0).getDescription());
+        assertEquals("Two\nlines", find(index, "cac", null).get(0).getDescription());
+    }
+
+    @Test
+    public void csvWithoutValueColumn() throws IOException {
+        final Path file = write("index.csv", "description,selection\nCapital,bg\n");
+        assertThrows(IOException.class, () -> MemorySuggestionIndex.load(indexInfo(file, IndexInfo.Format.CSV, IndexInfo.Match.PREFIX, true, true, 100)));
+    }
+
+    private MemorySuggestionIndex csvIndex(final IndexInfo.Match match, final boolean ignoreCase, final boolean ignoreDiacritics, final long resultLimit) throws IOException {
+        final Path file = write("index.csv",
+                "value,description,selection,dependent\n" +
+                "Beograd,Capital,,Srbija\n" +
+                "Beočin,,,Vojvodina\n" +
+                "Čačak,,,\n" +
+                "Novi Sad,,ns,Vojvodina\n");
+        return MemorySuggestionIndex.load(indexInfo(file, IndexInfo.Format.CSV, match, ignoreCase, ignoreDiacritics, resultLimit));
+    }
+
+    private Path write(final String name, final String content) throws IOException {
+        return Files.write(tempDir.resolve(name), content.getBytes(UTF_8));
+    }
+
+    private static IndexInfo indexInfo(final Path file, final IndexInfo.Format format, final IndexInfo.Match match, final boolean ignoreCase, final boolean ignoreDiacritics, final long resultLimit) {
+        return new IndexInfo(file, format, match, ignoreCase, ignoreDiacritics, resultLimit);
+    }
+
+    private static List<Suggestion> find(final MemorySuggestionIndex index, final String selection, @Nullable final String dependent) {
+        final List<Suggestion> suggestions = new ArrayList<>();
+        index.find(selection, dependent, suggestions::add);
+        return suggestions;
+    }
+
+    private static List<String> values(final MemorySuggestionIndex index, final String selection, @Nullable final String dependent) {
+        final List<String> values = new ArrayList<>();
+        for(final Suggestion suggestion : find(index, selection, dependent)) {
+            values.add(suggestion.getValue());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,279 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.remote.impl;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.ns.tei_completer.Suggestions;
+import org.humanistika.oxygen.tei.completer.configuration.beans.CacheInfo;
+import org.humanistika.oxygen.tei.completer.configuration.beans.RequestInfo;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseAction;
+import org.humanistika.oxygen.tei.completer.remote.Client;
+import org.humanistika.oxygen.tei.completer.remote.SuggestionPublisher;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link CachingClient}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class CachingClientTest {
+
+    private final static String URL_TEMPLATE = "http://localhost/getlemma/" + RequestInfo.UrlVar.SELECTION.var() + "/" + RequestInfo.UrlVar.DEPENDENT.var();
+
+    @Test
+    public void uncachedRequestsArePassedThrough() {
+        final CountingClient countingClient = new CountingClient();
+        final CachingClient cachingClient = new CachingClient(countingClient);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null);
+
+        cachingClient.getSuggestions(requestInfo, "lemma", null, null);
+        cachingClient.getSuggestions(requestInfo, "lemma", null, null);
+
+        assertEquals(2, countingClient.count.get());
+        assertEquals(0, cachingClient.getHitCount());
+        assertEquals(0, cachingClient.getMissCount());
+    }
+
+    @Test
+    public void cachedRequestsAreReused() {
+        final CountingClient countingClient = new CountingClient();
+        final CachingClient cachingClient = new CachingClient(countingClient);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null, new CacheInfo(300));
+
+        final Suggestions first = cachingClient.getSuggestions(requestInfo, "lemma", "ana", null);
+        final Suggestions second = cachingClient.getSuggestions(requestInfo, "lemma", "ana", null);
+
+        assertSame(first, second);
+        assertEquals(1, countingClient.count.get());
+        assertEquals(1, cachingClient.getHitCount());
+        assertEquals(1, cachingClient.getMissCount());
+
+        // a different dependent is a different request
+        cachingClient.getSuggestions(requestInfo, "lemma", "other", null);
+        assertEquals(2, countingClient.count.get());
+        assertEquals(2, cachingClient.getMissCount());
+    }
+
+    @Test
+    public void expiredEntriesAreRefreshed() {
+        final CountingClient countingClient = new CountingClient();
+        final CachingClient cachingClient = new CachingClient(countingClient);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null, new CacheInfo(0));
+
+        cachingClient.getSuggestions(requestInfo, "lemma", null, null);
+        cachingClient.getSuggestions(requestInfo, "lemma", null, null);
+
+        assertEquals(2, countingClient.count.get());
+        assertEquals(0, cachingClient.getHitCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        final CountingClient countingClient = new CountingClient();
+        final CachingClient cachingClient = new CachingClient(countingClient, 2);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null, new CacheInfo(300));
+
+        cachingClient.getSuggestions(requestInfo, "aaa", null, null);
+        cachingClient.getSuggestions(requestInfo, "bbb", null, null);
+        cachingClient.getSuggestions(requestInfo, "aaa", null, null);  // hit, "bbb" is now least recently used
+        cachingClient.getSuggestions(requestInfo, "ccc", null, null);  // evicts "bbb"
+        assertEquals(2, cachingClient.size());
+        assertEquals(3, countingClient.count.get());
+
+        cachingClient.getSuggestions(requestInfo, "aaa", null, null);
+        assertEquals(3, countingClient.count.get());
+
+        cachingClient.getSuggestions(requestInfo, "bbb", null, null);
+        assertEquals(4, countingClient.count.get());
+    }
+
+    @Test
+    public void emptySuggestionsAreNotCached() {
+        final CountingClient countingClient = new CountingClient(0);
+        final CachingClient cachingClient = new CachingClient(countingClient);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null, new CacheInfo(300));
+
+        cachingClient.getSuggestions(requestInfo, "lemma", null, null);
+        cachingClient.getSuggestions(requestInfo, "lemma", null, null);
+
+        assertEquals(2, countingClient.count.get());
+        assertEquals(0, cachingClient.size());
+    }
+
+    @Test
+    public void asyncRequestsAreCached() throws ExecutionException, InterruptedException {
+        final CountingClient countingClient = new CountingClient();
+        final CachingClient cachingClient = new CachingClient(countingClient);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null, new CacheInfo(300));
+
+        final Suggestions first = cachingClient.getSuggestionsAsync(requestInfo, "lemma", null, null).toCompletableFuture().get();
+        final Suggestions second = cachingClient.getSuggestionsAsync(requestInfo, "lemma", null, null).toCompletableFuture().get();
+
+        assertSame(first, second);
+        assertEquals(1, countingClient.count.get());
+    }
+
+    @Test
+    public void publishedSuggestionsAreCached() throws ExecutionException, InterruptedException {
+        final CountingClient countingClient = new CountingClient();
+        final CachingClient cachingClient = new CachingClient(countingClient);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null, new CacheInfo(300));
+
+        final Flow.Publisher<Suggestion> publisher = cachingClient.getSuggestionsPublisher(requestInfo, "lemma", null, null);
+        assertEquals(0, countingClient.count.get());
+
+        final List<Suggestion> first = JerseyClientTest.collect(publisher);
+        assertEquals(2, first.size());
+        assertEquals(1, countingClient.count.get());
+        assertEquals(1, cachingClient.size());
+
+        final List<Suggestion> second = JerseyClientTest.collect(cachingClient.getSuggestionsPublisher(requestInfo, "lemma", null, null));
+        assertEquals(first, second);
+        assertEquals(1, countingClient.count.get());
+        assertEquals(1, cachingClient.getHitCount());
+    }
+
+    @Test
+    public void expiredEntriesAreAvailableAsFallback() {
+        final CountingClient countingClient = new CountingClient();
+        final CachingClient cachingClient = new CachingClient(countingClient);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null, new CacheInfo(0));
+
+        assertNull(cachingClient.getCachedSuggestions(requestInfo, "lemma", null, null));
+        final Suggestions suggestions = cachingClient.getSuggestions(requestInfo, "lemma", null, null);
+        assertSame(suggestions, cachingClient.getCachedSuggestions(requestInfo, "lemma", null, null));
+    }
+
+    @Test
+    public void prefixMonotonicFiltersShorterPrefix() {
+        final CountingClient countingClient = new CountingClient();
+        final CachingClient cachingClient = new CachingClient(countingClient);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null, new CacheInfo(300, true, null));
+
+        final Suggestions prefixSuggestions = cachingClient.getSuggestions(requestInfo, "lem", null, null);
+        assertEquals(2, prefixSuggestions.getSuggestion().size());
+
+        final Suggestions suggestions = cachingClient.getSuggestions(requestInfo, "lem1", null, null);
+        assertEquals(1, countingClient.count.get());
+        assertEquals(1, suggestions.getSuggestion().size());
+        assertEquals("lem1", suggestions.getSuggestion().get(0).getValue());
+        assertEquals(1, cachingClient.getPrefixHitCount());
+
+        // a different dependent may not use the prefix
+        cachingClient.getSuggestions(requestInfo, "lem1", "ana", null);
+        assertEquals(2, countingClient.count.get());
+    }
+
+    @Test
+    public void prefixMonotonicDoesNotCacheEmptyFilteredSuggestions() {
+        final CountingClient countingClient = new CountingClient();
+        final CachingClient cachingClient = new CachingClient(countingClient);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null, new CacheInfo(300, true, null));
+
+        cachingClient.getSuggestions(requestInfo, "lem", null, null);
+        final Suggestions suggestions = cachingClient.getSuggestions(requestInfo, "lemx", null, null);
+
+        assertEquals(1, countingClient.count.get());
+        assertTrue(suggestions.getSuggestion().isEmpty());
+        assertEquals(1, cachingClient.size());
+        assertNull(cachingClient.getCachedSuggestions(requestInfo, "lemx", null, null));
+    }
+
+    @Test
+    public void prefixMonotonicIgnoresTruncatedPrefix() {
+        final CountingClient countingClient = new CountingClient();
+        final CachingClient cachingClient = new CachingClient(countingClient);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null, new CacheInfo(300, true, 2L));
+
+        cachingClient.getSuggestions(requestInfo, "lem", null, null);
+        cachingClient.getSuggestions(requestInfo, "lem1", null, null);
+
+        assertEquals(2, countingClient.count.get());
+        assertEquals(0, cachingClient.getPrefixHitCount());
+    }
+
+    @Test
+    public void prefixMonotonicIsOptIn() {
+        final CountingClient countingClient = new CountingClient();
+        final CachingClient cachingClient = new CachingClient(countingClient);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null, new CacheInfo(300));
+
+        cachingClient.getSuggestions(requestInfo, "lem", null, null);
+        cachingClient.getSuggestions(requestInfo, "lem1", null, null);
+
+        assertEquals(2, countingClient.count.get());
+    }
+
+    /**
+     * Client which returns {@code suggestionCount} suggestions
+     * whose values are prefixed by the selection, and counts the
+     * number of requests made to it
+     */
+    static class CountingClient implements Client {
+        final AtomicInteger count = new AtomicInteger();
+        private final int suggestionCount;
+
+        CountingClient() {
+            this(2);
+        }
+
+        CountingClient(final int suggestionCount) {
+            this.suggestionCount = suggestionCount;
+        }
+
+        @Override
+        public Suggestions getSuggestions(final RequestInfo requestInfo, final String selection, @Nullable final String dependent, @Nullable final ResponseAction responseAction) {
+            count.incrementAndGet();
+            final Suggestions suggestions = new Suggestions();
+            for(int i = 0; i < suggestionCount; i++) {
+                final Suggestion suggestion = new Suggestion();
+                suggestion.setValue(selection + i);
+                suggestion.setDescription(dependent);
+                suggestions.getSuggestion().add(suggestion);
+            }
+            return suggestions;
+        }
+
+        @Override
+        public CompletionStage<Suggestions> getSuggestionsAsync(final RequestInfo requestInfo, final String selection, @Nullable final String dependent, @Nullable final ResponseAction responseAction) {
+            return CompletableFuture.completedFuture(getSuggestions(requestInfo, selection, dependent, responseAction));
+        }
+
+        @Override
+        public Flow.Publisher<Suggestion> getSuggestionsPublisher(final RequestInfo requestInfo, final String selection, @Nullable final String dependent, @Nullable final ResponseAction responseAction) {
+            return subscriber -> SuggestionPublisher.fromSuggestions(getSuggestionsAsync(requestInfo, selection, dependent, responseAction)).subscribe(subscriber);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.remote.impl;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.ns.tei_completer.Suggestions;
+import org.humanistika.oxygen.tei.completer.configuration.beans.RequestInfo;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseAction;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseMapping;
+import org.humanistika.oxygen.tei.completer.remote.Client;
+import org.humanistika.oxygen.tei.completer.remote.SuggestionPublisher;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link CoalescingClient}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class CoalescingClientTest {
+
+    private final static String URL_TEMPLATE = "http://localhost/getlemma/" + RequestInfo.UrlVar.SELECTION.var() + "/" + RequestInfo.UrlVar.DEPENDENT.var();
+
+    @Test
+    public void concurrentIdenticalRequestsAreCoalesced() throws ExecutionException, InterruptedException {
+        final BlockingClient blockingClient = new BlockingClient();
+        final CoalescingClient coalescingClient = new CoalescingClient(blockingClient);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Suggestions> first = executor.submit(() -> coalescingClient.getSuggestions(requestInfo, "lemma", "ana", null));
+            blockingClient.started.await();
+
+            final Future<Suggestions> second = executor.submit(() -> coalescingClient.getSuggestions(requestInfo, "lemma", "ana", null));
+            while(coalescingClient.getCoalescedCount() == 0) {
+                Thread.sleep(1);
+            }
+
+            blockingClient.release.countDown();
+            assertSame(first.get(), second.get());
+            assertEquals(1, blockingClient.count.get());
+            assertEquals(1, coalescingClient.getCoalescedCount());
+            assertEquals(0, coalescingClient.getInFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void differentRequestsAreNotCoalesced() {
+        final BlockingClient blockingClient = new BlockingClient();
+        final CoalescingClient coalescingClient = new CoalescingClient(blockingClient);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null);
+
+        coalescingClient.getSuggestionsAsync(requestInfo, "lemma", "ana", null);
+        coalescingClient.getSuggestionsAsync(requestInfo, "lemma", "other", null);
+        coalescingClient.getSuggestionsAsync(requestInfo, "lemma", "ana", new ResponseAction(new ResponseMapping("/items", "/value", null)));
+
+        assertEquals(3, blockingClient.count.get());
+        assertEquals(0, coalescingClient.getCoalescedCount());
+        assertEquals(3, coalescingClient.getInFlightCount());
+    }
+
+    @Test
+    public void asyncRequestsAreCoalesced() throws ExecutionException, InterruptedException {
+        final BlockingClient blockingClient = new BlockingClient();
+        final CoalescingClient coalescingClient = new CoalescingClient(blockingClient);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null);
+
+        final CompletableFuture<Suggestions> first = coalescingClient.getSuggestionsAsync(requestInfo, "lemma", null, null).toCompletableFuture();
+        final CompletableFuture<Suggestions> second = coalescingClient.getSuggestionsAsync(requestInfo, "lemma", null, null).toCompletableFuture();
+        assertEquals(1, blockingClient.count.get());
+        assertEquals(1, coalescingClient.getCoalescedCount());
+
+        final Suggestions suggestions = BlockingClient.suggestions("lemma");
+        blockingClient.pending.get(0).complete(suggestions);
+        assertSame(suggestions, first.get());
+        assertSame(suggestions, second.get());
+        assertEquals(0, coalescingClient.getInFlightCount());
+
+        // once complete, the same request is made again
+        coalescingClient.getSuggestionsAsync(requestInfo, "lemma", null, null);
+        assertEquals(2, blockingClient.count.get());
+    }
+
+    @Test
+    public void failuresAreShared() {
+        final BlockingClient blockingClient = new BlockingClient();
+        final CoalescingClient coalescingClient = new CoalescingClient(blockingClient);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null);
+
+        final CompletableFuture<Suggestions> first = coalescingClient.getSuggestionsAsync(requestInfo, "lemma", null, null).toCompletableFuture();
+        final CompletableFuture<Suggestions> second = coalescingClient.getSuggestionsAsync(requestInfo, "lemma", null, null).toCompletableFuture();
+
+        blockingClient.pending.get(0).completeExceptionally(new IllegalStateException("server unavailable"));
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+        assertEquals(0, coalescingClient.getInFlightCount());
+    }
+
+    @Test
+    public void publishedRequestsAreCoalesced() throws ExecutionException, InterruptedException {
+        final BlockingClient blockingClient = new BlockingClient();
+        final CoalescingClient coalescingClient = new CoalescingClient(blockingClient);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null);
+
+        final CompletableFuture<List<Suggestion>> first = CompletableFuture.supplyAsync(() -> collect(coalescingClient.getSuggestionsPublisher(requestInfo, "lemma", null, null)));
+        while(blockingClient.pending.isEmpty()) {
+            Thread.sleep(1);
+        }
+        final CompletableFuture<Suggestions> second = coalescingClient.getSuggestionsAsync(requestInfo, "lemma", null, null).toCompletableFuture();
+        assertEquals(1, blockingClient.count.get());
+        assertEquals(1, coalescingClient.getCoalescedCount());
+
+        final Suggestions suggestions = BlockingClient.suggestions("lemma");
+        blockingClient.pending.get(0).complete(suggestions);
+        assertEquals(suggestions.getSuggestion(), first.get());
+        assertEquals(suggestions.getSuggestion(), second.get().getSuggestion());
+    }
+
+    @Test
+    public void followerOfCancelledPublishedRequestReceivesSuggestions() throws ExecutionException, InterruptedException {
+        final BlockingClient blockingClient = new BlockingClient();
+        final CoalescingClient coalescingClient = new CoalescingClient(blockingClient);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null);
+
+        final CancellingSubscriber leader = new CancellingSubscriber();
+        coalescingClient.getSuggestionsPublisher(requestInfo, "lemma", null, null).subscribe(leader);
+        final Flow.Subscription subscription = leader.subscription.get();
+        final CompletableFuture<Suggestions> asyncFollower = coalescingClient.getSuggestionsAsync(requestInfo, "lemma", null, null).toCompletableFuture();
+        final CompletableFuture<List<Suggestion>> publishedFollower = CompletableFuture.supplyAsync(() -> collect(coalescingClient.getSuggestionsPublisher(requestInfo, "lemma", null, null)));
+        while(coalescingClient.getCoalescedCount() < 2) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, blockingClient.count.get());
+
+        // the leader cancels, the followers make the request again, and share it
+        subscription.cancel();
+        while(blockingClient.pending.size() < 2) {
+            Thread.sleep(1);
+        }
+        assertFalse(asyncFollower.isDone());
+        assertEquals(2, blockingClient.count.get());
+
+        final Suggestions suggestions = BlockingClient.suggestions("lemma");
+        blockingClient.pending.get(1).complete(suggestions);
+        assertSame(suggestions, asyncFollower.get());
+        assertEquals(suggestions.getSuggestion(), publishedFollower.get());
+        assertEquals(0, coalescingClient.getInFlightCount());
+    }
+
+    @Test
+    public void synchronousFollowerOfCancelledPublishedRequestReceivesSuggestions() throws ExecutionException, InterruptedException {
+        final BlockingClient blockingClient = new BlockingClient();
+        final CoalescingClient coalescingClient = new CoalescingClient(blockingClient);
+        final RequestInfo requestInfo = new RequestInfo(URL_TEMPLATE, null);
+
+        final CancellingSubscriber leader = new CancellingSubscriber();
+        coalescingClient.getSuggestionsPublisher(requestInfo, "lemma", null, null).subscribe(leader);
+        final Flow.Subscription subscription = leader.subscription.get();
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Suggestions> follower = executor.submit(() -> coalescingClient.getSuggestions(requestInfo, "lemma", null, null));
+            while(coalescingClient.getCoalescedCount() == 0) {
+                Thread.sleep(1);
+            }
+
+            subscription.cancel();
+            blockingClient.started.await();
+            blockingClient.release.countDown();
+            assertEquals("lemma1", follower.get().getSuggestion().get(0).getValue());
+            assertEquals(2, blockingClient.count.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Subscriber which only keeps its subscription, so that it can be cancelled
+     */
+    private static class CancellingSubscriber implements Flow.Subscriber<Suggestion> {
+        final CompletableFuture<Flow.Subscription> subscription = new CompletableFuture<>();
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription.complete(subscription);
+        }
+
+        @Override
+        public void onNext(final Suggestion item) {
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    private static List<Suggestion> collect(final Flow.Publisher<Suggestion> publisher) {
+        try {
+            return JerseyClientTest.collect(publisher);
+        } catch(final ExecutionException | InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Client whose synchronous requests block until released,
+     * and whose asynchronous requests complete when their
+     * pending future is completed
+     */
+    static class BlockingClient implements Client {
+        final AtomicInteger count = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<CompletableFuture<Suggestions>> pending = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Suggestions getSuggestions(final RequestInfo requestInfo, final String selection, @Nullable final String dependent, @Nullable final ResponseAction responseAction) {
+            count.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch(final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return suggestions(selection);
+        }
+
+        @Override
+        public CompletionStage<Suggestions> getSuggestionsAsync(final RequestInfo requestInfo, final String selection, @Nullable final String dependent, @Nullable final ResponseAction responseAction) {
+            count.incrementAndGet();
+            final CompletableFuture<Suggestions> future = new CompletableFuture<>();
+            pending.add(future);
+            return future;
+        }
+
+        @Override
+        public Flow.Publisher<Suggestion> getSuggestionsPublisher(final RequestInfo requestInfo, final String selection, @Nullable final String dependent, @Nullable final ResponseAction responseAction) {
+            return subscriber -> SuggestionPublisher.fromSuggestions(getSuggestionsAsync(requestInfo, selection, dependent, responseAction)).subscribe(subscriber);
+        }
+
+        static Suggestions suggestions(final String selection) {
+            final Suggestions suggestions = new Suggestions();
+            final Suggestion suggestion = new Suggestion();
+            suggestion.setValue(selection + "1");
+            suggestions.getSuggestion().add(suggestion);
+            return suggestions;
+        }
+    }
+}
@@ -20,6 +20,8 @@
 package org.humanistika.oxygen.tei.completer.remote.impl;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestWrapper;
 import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.server.filter.RolesAllowedDynamicFeature;
 import org.glassfish.jersey.test.JerseyTest;
@@ -28,7 +30,9 @@ import org.humanistika.ns.tei_completer.Suggestions;
 import org.humanistika.oxygen.tei.completer.configuration.beans.Authentication;
 import org.humanistika.oxygen.tei.completer.configuration.beans.RequestInfo;
 import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseAction;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseMapping;
 import org.humanistika.oxygen.tei.completer.remote.ClientFactory.AuthenticationType;
+import org.humanistika.oxygen.tei.completer.remote.SuggestionPublisher;
 import javax.annotation.Nullable;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -51,9 +55,25 @@ import java.net.URISyntaxException;
 import java.nio.file.Paths;
 import java.nio.file.attribute.UserPrincipal;
 import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Integration tests for {@link org.humanistika.oxygen.tei.completer.remote.impl.JerseyClient}
@@ -64,6 +84,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
  */
 public class JerseyClientTest extends JerseyTest {
 
+    private static volatile CountDownLatch slowRequestReceived = new CountDownLatch(1);
+    private static volatile CountDownLatch slowResponse = new CountDownLatch(1);
+
     @Override
     protected Application configure() {
         return new ResourceConfig(MockServer.class)
@@ -211,6 +234,19 @@ public class JerseyClientTest extends JerseyTest {
             return getTestSuggestions_CustomJson(selection, dependent);
         }
 
+        /**
+         * Same as {@link MockServer#getLemmaSelection_Xml(String)} except the
+         * response is not sent until the test releases it
+         */
+        @GET
+        @Path("getlemma/slow/xml/{selection}")
+        @Produces({MediaType.APPLICATION_XML})
+        public Suggestions getLemmaSelection_Slow_Xml(@PathParam("selection") final String selection) throws InterruptedException {
+            slowRequestReceived.countDown();
+            slowResponse.await(10, TimeUnit.SECONDS);
+            return getTestSuggestions(selection, null);
+        }
+
 
         /* resources for tests with security */
 
@@ -382,6 +418,34 @@ public class JerseyClientTest extends JerseyTest {
         assertEquals(expectedSuggestions.getSuggestion(), suggestions.getSuggestion());
     }
 
+    @Test
+    public void getLemmaSelection_Mapped_Xml() {
+        final String selection = "some-selection";
+        final String dependent = null;
+
+        final RequestInfo requestInfo = new RequestInfo(getBaseUri() + "multext/getlemma/custom/xml/" + RequestInfo.UrlVar.SELECTION.var(), null);
+        final ResponseAction responseAction = new ResponseAction(new ResponseMapping("/sgns/sgn", "v", "d"));
+        final Suggestions suggestions = new JerseyClient(AuthenticationType.NONE, client()).getSuggestions(requestInfo, selection, dependent, responseAction);
+
+        final Suggestions expectedSuggestions = getTestSuggestions(selection, dependent);
+
+        assertEquals(expectedSuggestions.getSuggestion(), suggestions.getSuggestion());
+    }
+
+    @Test
+    public void getLemmaSelectionDependent_Mapped_TextXml() {
+        final String selection = "some-selection";
+        final String dependent = "some-dependent";
+
+        final RequestInfo requestInfo = new RequestInfo(getBaseUri() + "multext/getlemma/custom/text-xml/" + RequestInfo.UrlVar.SELECTION.var() + "/" + RequestInfo.UrlVar.DEPENDENT.var(), null);
+        final ResponseAction responseAction = new ResponseAction(new ResponseMapping("//sgn", "v", "d"));
+        final Suggestions suggestions = new JerseyClient(AuthenticationType.NONE, client()).getSuggestions(requestInfo, selection, dependent, responseAction);
+
+        final Suggestions expectedSuggestions = getTestSuggestions(selection, dependent);
+
+        assertEquals(expectedSuggestions.getSuggestion(), suggestions.getSuggestion());
+    }
+
     @Test
     public void getLemmaSelection_Gzip_Xml() {
         final String selection = "some-selection";
@@ -464,6 +528,255 @@ public class JerseyClientTest extends JerseyTest {
         assertEquals(expectedSuggestions.getSuggestion(), suggestions.getSuggestion());
     }
 
+    @Test
+    public void getLemmaSelection_Mapped_Json() {
+        final String selection = "some-selection";
+        final String dependent = null;
+
+        final RequestInfo requestInfo = new RequestInfo(getBaseUri() + "multext/getlemma/custom/json/" + RequestInfo.UrlVar.SELECTION.var(), null);
+        final ResponseAction responseAction = new ResponseAction(new ResponseMapping("/sgns", "/v", "/d"));
+        final Suggestions suggestions = new JerseyClient(AuthenticationType.NONE, client()).getSuggestions(requestInfo, selection, dependent, responseAction);
+
+        final Suggestions expectedSuggestions = getTestSuggestions(selection, dependent);
+
+        assertEquals(expectedSuggestions.getSuggestion(), suggestions.getSuggestion());
+    }
+
+    @Test
+    public void getLemmaSelectionDependent_Mapped_Json() {
+        final String selection = "some-selection";
+        final String dependent = "some-dependent";
+
+        final RequestInfo requestInfo = new RequestInfo(getBaseUri() + "multext/getlemma/custom/json/" + RequestInfo.UrlVar.SELECTION.var() + "/" + RequestInfo.UrlVar.DEPENDENT.var(), null);
+        final ResponseAction responseAction = new ResponseAction(new ResponseMapping("/sgns", "/v", "/d"));
+        final Suggestions suggestions = new JerseyClient(AuthenticationType.NONE, client()).getSuggestions(requestInfo, selection, dependent, responseAction);
+
+        final Suggestions expectedSuggestions = getTestSuggestions(selection, dependent);
+
+        assertEquals(expectedSuggestions.getSuggestion(), suggestions.getSuggestion());
+    }
+
+    @Test
+    public void publishLemmaSelectionDependent_Xml() throws ExecutionException, InterruptedException {
+        final String selection = "some-selection";
+        final String dependent = "some-dependent";
+
+        final RequestInfo requestInfo = new RequestInfo(getBaseUri() + "multext/getlemma/xml/" + RequestInfo.UrlVar.SELECTION.var() + "/" + RequestInfo.UrlVar.DEPENDENT.var(), null);
+        final List<Suggestion> suggestions = collect(new JerseyClient(AuthenticationType.NONE, client()).getSuggestionsPublisher(requestInfo, selection, dependent, null));
+
+        assertEquals(getTestSuggestions(selection, dependent).getSuggestion(), suggestions);
+    }
+
+    @Test
+    public void publishLemmaSelection_Gzip_Xml() throws ExecutionException, InterruptedException {
+        final String selection = "some-selection";
+        final String dependent = null;
+
+        final RequestInfo requestInfo = new RequestInfo(getBaseUri() + "multext/getlemma/gzip/xml/" + RequestInfo.UrlVar.SELECTION.var(), null);
+        final List<Suggestion> suggestions = collect(new JerseyClient(AuthenticationType.NONE, client()).getSuggestionsPublisher(requestInfo, selection, dependent, null));
+
+        assertEquals(getTestSuggestions(selection, dependent).getSuggestion(), suggestions);
+    }
+
+    @Test
+    public void publishLemmaSelectionDependent_Json() throws ExecutionException, InterruptedException {
+        final String selection = "some-selection";
+        final String dependent = "some-dependent";
+
+        final RequestInfo requestInfo = new RequestInfo(getBaseUri() + "multext/getlemma/json/" + RequestInfo.UrlVar.SELECTION.var() + "/" + RequestInfo.UrlVar.DEPENDENT.var(), null);
+        final List<Suggestion> suggestions = collect(new JerseyClient(AuthenticationType.NONE, client()).getSuggestionsPublisher(requestInfo, selection, dependent, null));
+
+        assertEquals(getTestSuggestions(selection, dependent).getSuggestion(), suggestions);
+    }
+
+    @Test
+    public void publishLemmaSelection_Mapped_Xml() throws ExecutionException, InterruptedException {
+        final String selection = "some-selection";
+        final String dependent = null;
+
+        final RequestInfo requestInfo = new RequestInfo(getBaseUri() + "multext/getlemma/custom/xml/" + RequestInfo.UrlVar.SELECTION.var(), null);
+        final ResponseAction responseAction = new ResponseAction(new ResponseMapping("/sgns/sgn", "v", "d"));
+        final List<Suggestion> suggestions = collect(new JerseyClient(AuthenticationType.NONE, client()).getSuggestionsPublisher(requestInfo, selection, dependent, responseAction));
+
+        assertEquals(getTestSuggestions(selection, dependent).getSuggestion(), suggestions);
+    }
+
+    @Test
+    public void publishLemmaSelection_Custom_Json() throws URISyntaxException, ExecutionException, InterruptedException {
+        final String selection = "some-selection";
+        final String dependent = null;
+
+        final RequestInfo requestInfo = new RequestInfo(getBaseUri() + "multext/getlemma/custom/json/" + RequestInfo.UrlVar.SELECTION.var(), null);
+        final java.nio.file.Path testTransform = Paths.get(getClass().getResource("custom-transform-test.js").toURI());
+        final ResponseAction responseAction = new ResponseAction(testTransform);
+        final List<Suggestion> suggestions = collect(new JerseyClient(AuthenticationType.NONE, client()).getSuggestionsPublisher(requestInfo, selection, dependent, responseAction));
+
+        assertEquals(getTestSuggestions(selection, dependent).getSuggestion(), suggestions);
+    }
+
+    @Test
+    public void publishNotFound() {
+        final RequestInfo requestInfo = new RequestInfo(getBaseUri() + "multext/no-such-resource/" + RequestInfo.UrlVar.SELECTION.var(), null);
+        final Flow.Publisher<Suggestion> publisher = new JerseyClient(AuthenticationType.NONE, client()).getSuggestionsPublisher(requestInfo, "some-selection", null, null);
+
+        assertThrows(ExecutionException.class, () -> collect(publisher));
+    }
+
+    @Test
+    public void cancelPublishedRequest() throws InterruptedException, ExecutionException, TimeoutException {
+        slowRequestReceived = new CountDownLatch(1);
+        slowResponse = new CountDownLatch(1);
+
+        final RequestInfo requestInfo = new RequestInfo(getBaseUri() + "multext/getlemma/slow/xml/" + RequestInfo.UrlVar.SELECTION.var(), null);
+        final Flow.Publisher<Suggestion> publisher = new JerseyClient(AuthenticationType.NONE, client()).getSuggestionsPublisher(requestInfo, "some-selection", null, null);
+
+        final CompletableFuture<Flow.Subscription> subscription = new CompletableFuture<>();
+        final List<String> signals = Collections.synchronizedList(new ArrayList<>());
+        final CompletableFuture<Throwable> completion = new CompletableFuture<>();
+        publisher.subscribe(new CollectingSubscriber(new Flow.Subscriber<Suggestion>() {
+            @Override
+            public void onSubscribe(final Flow.Subscription s) {
+                s.request(Long.MAX_VALUE);
+                subscription.complete(s);
+            }
+
+            @Override
+            public void onNext(final Suggestion suggestion) {
+                signals.add("onNext");
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                signals.add("onError");
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add("onComplete");
+            }
+        }, (suggestions, throwable) -> completion.complete(throwable)));
+
+        try {
+            assertTrue(slowRequestReceived.await(10, TimeUnit.SECONDS));
+            subscription.get(10, TimeUnit.SECONDS).cancel();
+
+            //the collected suggestions are not reported, the cancellation is
+            assertTrue(completion.get(10, TimeUnit.SECONDS) instanceof CancellationException);
+        } finally {
+            slowResponse.countDown();
+        }
+
+        //nothing is delivered once the subscription has been cancelled, even when the response arrives
+        final Suggestions suggestions = new JerseyClient(AuthenticationType.NONE, client()).getSuggestions(requestInfo, "some-selection", null, null);
+        assertEquals(getTestSuggestions("some-selection", null).getSuggestion(), suggestions.getSuggestion());
+        assertEquals(Collections.emptyList(), signals);
+    }
+
+    @Test
+    public void cancelInterruptsProducer() throws InterruptedException, ExecutionException, TimeoutException {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final CountDownLatch producing = new CountDownLatch(1);
+            final CompletableFuture<Boolean> interrupted = new CompletableFuture<>();
+            final Flow.Publisher<Suggestion> publisher = SuggestionPublisher.fromProducer(executor, suggestions -> {
+                producing.countDown();
+                try {
+                    new CountDownLatch(1).await(10, TimeUnit.SECONDS);
+                    interrupted.complete(false);
+                } catch(final InterruptedException e) {
+                    interrupted.complete(true);
+                    throw e;
+                }
+            });
+
+            final CompletableFuture<Flow.Subscription> subscription = new CompletableFuture<>();
+            publisher.subscribe(new Flow.Subscriber<Suggestion>() {
+                @Override
+                public void onSubscribe(final Flow.Subscription s) {
+                    s.request(Long.MAX_VALUE);
+                    subscription.complete(s);
+                }
+
+                @Override
+                public void onNext(final Suggestion suggestion) {
+                }
+
+                @Override
+                public void onError(final Throwable throwable) {
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+
+            assertTrue(producing.await(10, TimeUnit.SECONDS));
+            subscription.get(10, TimeUnit.SECONDS).cancel();
+            assertTrue(interrupted.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void abortCapturedRequest() {
+        final HttpGet request = new HttpGet("http://localhost/multext/getlemma/xml/some-selection");
+        final JerseyClient.RequestAborter aborter = new JerseyClient.RequestAborter();
+
+        JerseyClient.currentAborter.set(aborter);
+        JerseyClient.captureAbortableRequest(HttpRequestWrapper.wrap(request));
+        assertNull(JerseyClient.currentAborter.get());
+        assertFalse(request.isAborted());
+
+        aborter.abort();
+        assertTrue(request.isAborted());
+    }
+
+    @Test
+    public void abortRequestBeforeItIsSent() {
+        final HttpGet request = new HttpGet("http://localhost/multext/getlemma/xml/some-selection");
+        final JerseyClient.RequestAborter aborter = new JerseyClient.RequestAborter();
+        aborter.abort();
+
+        JerseyClient.currentAborter.set(aborter);
+        JerseyClient.captureAbortableRequest(HttpRequestWrapper.wrap(request));
+        assertTrue(request.isAborted());
+    }
+
+    /**
+     * Subscribes to a publisher and waits for all of its suggestions
+     *
+     * @param publisher The publisher of suggestions
+     *
+     * @return The suggestions in the order that they were published
+     */
+    static List<Suggestion> collect(final Flow.Publisher<Suggestion> publisher) throws ExecutionException, InterruptedException {
+        final List<Suggestion> suggestions = Collections.synchronizedList(new ArrayList<>());
+        final CompletableFuture<List<Suggestion>> completed = new CompletableFuture<>();
+        publisher.subscribe(new Flow.Subscriber<Suggestion>() {
+            @Override
+            public void onSubscribe(final Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(final Suggestion suggestion) {
+                suggestions.add(suggestion);
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                completed.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                completed.complete(suggestions);
+            }
+        });
+        return completed.get();
+    }
+
     @Test
     public void secure_preemptiveBasic_GetLemmaSelection_Xml() {
         final String selection = "some-selection";
@@ -0,0 +1,100 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.remote.impl;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.oxygen.tei.completer.configuration.beans.IndexInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link LocalIndexClient}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class LocalIndexClientTest {
+
+    private final static long TIMEOUT = 30;  // seconds, some platforms poll for changes
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void changedIndexIsReloaded() throws IOException, InterruptedException {
+        final Path file = write("value,description,selection,dependent\nBeograd,,,\n");
+        final LocalIndexClient client = new LocalIndexClient(indexInfo(file));
+        try {
+            assertEquals(Arrays.asList("Beograd"), values(client, "beo"));
+
+            write("value,description,selection,dependent\nBeograd,,,\nBeočin,,,\n");
+
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+            while(values(client, "beo").size() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(Arrays.asList("Beočin", "Beograd"), values(client, "beo"));
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void closedClientLoadsIndexAgain() throws IOException {
+        final Path file = write("value,description,selection,dependent\nBeograd,,,\n");
+        final LocalIndexClient client = new LocalIndexClient(indexInfo(file));
+        try {
+            assertEquals(Arrays.asList("Beograd"), values(client, "beo"));
+            client.close();
+
+            write("value,description,selection,dependent\nBeočin,,,\n");
+
+            assertEquals(Arrays.asList("Beočin"), values(client, "beo"));
+        } finally {
+            client.close();
+        }
+    }
+
+    private Path write(final String content) throws IOException {
+        return Files.write(tempDir.resolve("index.csv"), content.getBytes(UTF_8));
+    }
+
+    private static IndexInfo indexInfo(final Path file) {
+        return new IndexInfo(file, IndexInfo.Format.CSV, IndexInfo.Match.PREFIX, true, true, 100);
+    }
+
+    private static List<String> values(final LocalIndexClient client, final String selection) {
+        return client.getSuggestions(null, selection, null, null).getSuggestion().stream()
+                .map(Suggestion::getValue)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.remote.impl;
+
+import org.humanistika.ns.tei_completer.Suggestions;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import java.io.StringReader;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for {@link UnmarshallerPool}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class UnmarshallerPoolTest {
+
+    private final static String SUGGESTIONS_XML =
+            "<tc:suggestions xmlns:tc=\"http://humanistika.org/ns/tei-completer\">" +
+            "<tc:suggestion><tc:value>suggestion1</tc:value><tc:description>some-selection</tc:description></tc:suggestion>" +
+            "</tc:suggestions>";
+
+    @Test
+    public void contextIsCreatedOnceAndUnmarshallersReused() throws JAXBException {
+        final AtomicInteger contexts = new AtomicInteger();
+        final AtomicInteger configured = new AtomicInteger();
+        final UnmarshallerPool pool = new UnmarshallerPool(() -> {
+            contexts.incrementAndGet();
+            return JAXBContext.newInstance(Suggestions.class);
+        }, unmarshaller -> configured.incrementAndGet(), 2);
+
+        final Unmarshaller first = pool.borrow();
+        pool.release(first);
+        assertSame(first, pool.borrow());
+
+        final Unmarshaller second = pool.borrow();
+        assertNotSame(first, second);
+
+        assertEquals(1, contexts.get());
+        assertEquals(2, configured.get());
+    }
+
+    @Test
+    public void idleUnmarshallersAreBounded() throws JAXBException {
+        final UnmarshallerPool pool = new UnmarshallerPool(() -> JAXBContext.newInstance(Suggestions.class), unmarshaller -> {}, 1);
+
+        final Unmarshaller first = pool.borrow();
+        final Unmarshaller second = pool.borrow();
+        pool.release(first);
+        pool.release(second);
+
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void unmarshal() throws JAXBException {
+        final UnmarshallerPool pool = new UnmarshallerPool(() -> JAXBContext.newInstance(Suggestions.class), unmarshaller -> {}, 1);
+
+        final Suggestions suggestions = pool.unmarshal(unmarshaller -> (Suggestions)unmarshaller.unmarshal(new StringReader(SUGGESTIONS_XML)));
+        assertEquals(1, suggestions.getSuggestion().size());
+        assertEquals("suggestion1", suggestions.getSuggestion().get(0).getValue());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void failedUnmarshalDiscardsUnmarshaller() {
+        final UnmarshallerPool pool = new UnmarshallerPool(() -> JAXBContext.newInstance(Suggestions.class), unmarshaller -> {}, 1);
+
+        assertThrows(JAXBException.class, () -> pool.unmarshal(unmarshaller -> unmarshaller.unmarshal(new StringReader("<not-xml"))));
+        assertEquals(0, pool.getIdleCount());
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.response.impl;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseMapping;
+import org.humanistika.oxygen.tei.completer.response.TransformationException;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link JSONResponseMapper}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class JSONResponseMapperTest {
+
+    @Test
+    public void arrayOfItems() throws IOException, TransformationException {
+        final String json = "{\"total\": 2, \"results\": [" +
+                "{\"lemma\": \"a\", \"gloss\": \"first\", \"extra\": {\"lemma\": \"ignored\"}}," +
+                "{\"gloss\": \"second\", \"lemma\": \"b\"}" +
+                "]}";
+
+        assertEquals(Arrays.asList(suggestion("a", "first"), suggestion("b", "second")),
+                map(new ResponseMapping("/results", "/lemma", "/gloss"), json));
+    }
+
+    @Test
+    public void singleItem() throws IOException, TransformationException {
+        final String json = "{\"result\": {\"lemma\": \"a\", \"gloss\": \"first\"}}";
+
+        assertEquals(Arrays.asList(suggestion("a", "first")),
+                map(new ResponseMapping("/result", "/lemma", "/gloss"), json));
+    }
+
+    @Test
+    public void rootArrayOfScalars() throws IOException, TransformationException {
+        final String json = "[\"a\", 2, true, null]";
+
+        assertEquals(Arrays.asList(suggestion("a", null), suggestion("2", null), suggestion("true", null)),
+                map(new ResponseMapping("", "", null), json));
+    }
+
+    @Test
+    public void nestedAndIndexedPointers() throws IOException, TransformationException {
+        final String json = "{\"data\": {\"a/b\": [" +
+                "{\"forms\": [\"x\", \"y\"], \"sense\": {\"def\": \"ex\"}}," +
+                "{\"forms\": [\"z\"], \"sense\": {\"def\": \"zed\"}}" +
+                "]}}";
+
+        assertEquals(Arrays.asList(suggestion("x", "ex"), suggestion("z", "zed")),
+                map(new ResponseMapping("/data/a~1b", "/forms/0", "/sense/def"), json));
+    }
+
+    @Test
+    public void itemsWithoutValueAreSkipped() throws IOException, TransformationException {
+        final String json = "{\"results\": [{\"gloss\": \"first\"}, {\"lemma\": null}, {\"lemma\": {\"nested\": \"x\"}}, {\"lemma\": \"c\"}]}";
+
+        assertEquals(Arrays.asList(suggestion("c", null)),
+                map(new ResponseMapping("/results", "/lemma", "/gloss"), json));
+    }
+
+    @Test
+    public void missingItems() throws IOException, TransformationException {
+        final String json = "{\"other\": [{\"lemma\": \"a\"}]}";
+
+        assertTrue(map(new ResponseMapping("/results", "/lemma", null), json).isEmpty());
+    }
+
+    @Test
+    public void invalidJson() {
+        assertThrows(TransformationException.class, () -> map(new ResponseMapping("/results", "/lemma", null), "{\"results\": [}"));
+    }
+
+    @Test
+    public void parsePointer() {
+        assertTrue(JSONResponseMapper.parsePointer("").isEmpty());
+        assertEquals(Arrays.asList(""), JSONResponseMapper.parsePointer("/"));
+        assertEquals(Arrays.asList("a/b", "m~n", "0"), JSONResponseMapper.parsePointer("/a~1b/m~0n/0"));
+        assertThrows(IllegalArgumentException.class, () -> JSONResponseMapper.parsePointer("results"));
+    }
+
+    private static List<Suggestion> map(final ResponseMapping mapping, final String json) throws IOException, TransformationException {
+        final List<Suggestion> suggestions = new ArrayList<>();
+        new JSONResponseMapper(mapping).map(new ByteArrayInputStream(json.getBytes(UTF_8)), suggestions::add);
+        return suggestions;
+    }
+
+    private static Suggestion suggestion(final String value, @Nullable final String description) {
+        final Suggestion suggestion = new Suggestion();
+        suggestion.setValue(value);
+        suggestion.setDescription(description);
+        return suggestion;
+    }
+}
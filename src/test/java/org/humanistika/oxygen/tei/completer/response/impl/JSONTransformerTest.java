@@ -0,0 +1,167 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.response.impl;
+
+import org.humanistika.ns.tei_completer.Suggestions;
+import org.humanistika.oxygen.tei.completer.response.TransformationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link JSONTransformer}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class JSONTransformerTest {
+
+    private final static long INVALIDATION_TIMEOUT = 15_000;  // milliseconds
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void compiledScriptIsReused() throws IOException, TransformationException {
+        final Path transformation = tempDir.resolve("transform.js");
+        Files.write(transformation, "function transform(content) { return { \"v\": content.a }; }".getBytes(UTF_8));
+
+        final JSONTransformer transformer = new JSONTransformer();
+        assertEquals("{\"v\":1}", transform(transformer, "{\"a\": 1}", transformation));
+        final JSONTransformer.TimestampedScript compiled = transformer.cache.get(transformation);
+
+        assertEquals("{\"v\":2}", transform(transformer, "{\"a\": 2}", transformation));
+        assertSame(compiled, transformer.cache.get(transformation));
+    }
+
+    @Test
+    public void modifiedScriptIsRecompiled() throws IOException, TransformationException, InterruptedException {
+        final Path transformation = tempDir.resolve("transform.js");
+        Files.write(transformation, "function transform(content) { return { \"v\": content.a }; }".getBytes(UTF_8));
+
+        final JSONTransformer transformer = new JSONTransformer();
+        assertEquals("{\"v\":1}", transform(transformer, "{\"a\": 1}", transformation));
+
+        Files.write(transformation, "function transform(content) { return { \"w\": content.a }; }".getBytes(UTF_8));
+        Files.setLastModifiedTime(transformation, FileTime.fromMillis(Files.getLastModifiedTime(transformation).toMillis() + 1000));
+
+        // the compiled script is invalidated in the background when the change is detected
+        final long deadline = System.currentTimeMillis() + INVALIDATION_TIMEOUT;
+        while(transformer.cache.containsKey(transformation) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals("{\"w\":1}", transform(transformer, "{\"a\": 1}", transformation));
+    }
+
+    @Test
+    public void compileCachesScript() throws IOException, TransformationException {
+        final Path transformation = tempDir.resolve("transform.js");
+        Files.write(transformation, "function transform(content) { return content; }".getBytes(UTF_8));
+
+        final JSONTransformer transformer = new JSONTransformer();
+        transformer.compile(transformation);
+        assertTrue(transformer.cache.containsKey(transformation));
+    }
+
+    @Test
+    public void globalsDoNotLeakBetweenCalls() throws IOException, TransformationException {
+        final Path transformation = tempDir.resolve("transform.js");
+        Files.write(transformation, ("var count;\n" +
+                "function transform(content) { count = (count || 0) + 1; return { \"count\": count }; }").getBytes(UTF_8));
+
+        final JSONTransformer transformer = new JSONTransformer();
+        assertEquals("{\"count\":1}", transform(transformer, "{}", transformation));
+        assertEquals("{\"count\":1}", transform(transformer, "{}", transformation));
+    }
+
+    @Test
+    public void missingTransformFunction() throws IOException {
+        final Path transformation = tempDir.resolve("transform.js");
+        Files.write(transformation, "function other(content) { return content; }".getBytes(UTF_8));
+
+        final JSONTransformer transformer = new JSONTransformer();
+        assertThrows(TransformationException.class, () -> transform(transformer, "{}", transformation));
+    }
+
+    @Test
+    public void suggestionsAreBuiltWithoutSerializing() throws IOException, TransformationException {
+        final Path transformation = tempDir.resolve("transform.js");
+        Files.write(transformation, ("function transform(content) {\n" +
+                "  var suggestion = [];\n" +
+                "  for(var i = 0; i < content.sgns.length; i++) {\n" +
+                "    suggestion.push({ \"tc:value\": content.sgns[i].v, \"tc:description\": content.sgns[i].d });\n" +
+                "  }\n" +
+                "  return { \"tc:suggestion\": suggestion };\n" +
+                "}").getBytes(UTF_8));
+
+        final JSONTransformer transformer = new JSONTransformer();
+        final String json = "{\"sgns\": [{\"v\": \"suggestion1\", \"d\": \"desc1\"}, {\"v\": 2}]}";
+        final Suggestions suggestions = transformer.transform(new ByteArrayInputStream(json.getBytes(UTF_8)), transformation, reader -> {
+            throw new TransformationException("fallback should not be used");
+        });
+
+        assertEquals(2, suggestions.getSuggestion().size());
+        assertEquals("suggestion1", suggestions.getSuggestion().get(0).getValue());
+        assertEquals("desc1", suggestions.getSuggestion().get(0).getDescription());
+        assertEquals("2", suggestions.getSuggestion().get(1).getValue());
+        assertNull(suggestions.getSuggestion().get(1).getDescription());
+    }
+
+    @Test
+    public void unrecognisedResultUsesFallback() throws IOException, TransformationException {
+        final Path transformation = tempDir.resolve("transform.js");
+        Files.write(transformation, "function transform(content) { return { \"suggestion\": [ { \"value\": \"v1\" } ] }; }".getBytes(UTF_8));
+
+        final JSONTransformer transformer = new JSONTransformer();
+        final StringBuilder fallbackJson = new StringBuilder();
+        final Suggestions fallbackSuggestions = new Suggestions();
+        final Suggestions suggestions = transformer.transform(new ByteArrayInputStream("{}".getBytes(UTF_8)), transformation, reader -> {
+            final char[] buf = new char[4096];
+            int read;
+            while((read = reader.read(buf)) > -1) {
+                fallbackJson.append(buf, 0, read);
+            }
+            return fallbackSuggestions;
+        });
+
+        assertSame(fallbackSuggestions, suggestions);
+        assertEquals("{\"suggestion\":[{\"value\":\"v1\"}]}", fallbackJson.toString());
+    }
+
+    private static String transform(final JSONTransformer transformer, final String json, final Path transformation) throws IOException, TransformationException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        transformer.transform(new ByteArrayInputStream(json.getBytes(UTF_8)), transformation, result);
+        return new String(result.toByteArray(), UTF_8);
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.response.impl;
+
+import org.humanistika.ns.tei_completer.Suggestion;
+import org.humanistika.oxygen.tei.completer.configuration.beans.ResponseMapping;
+import org.humanistika.oxygen.tei.completer.response.TransformationException;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link XMLResponseMapper}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class XMLResponseMapperTest {
+
+    private final static String TEI_DICTIONARY =
+            "<TEI xmlns=\"http://www.tei-c.org/ns/1.0\">\n" +
+            "  <text><body>\n" +
+            "    <entry xml:id=\"e1\">\n" +
+            "      <form type=\"lemma\"><orth>kuća</orth></form>\n" +
+            "      <sense n=\"1\"><def>house</def></sense>\n" +
+            "      <sense n=\"2\"><def>home</def></sense>\n" +
+            "    </entry>\n" +
+            "    <div><entry xml:id=\"e2\">\n" +
+            "      <form type=\"lemma\"><orth> <![CDATA[kuš]]> </orth></form>\n" +
+            "    </entry></div>\n" +
+            "    <entry xml:id=\"e3\"><sense><def>no form</def></sense></entry>\n" +
+            "  </body></text>\n" +
+            "</TEI>";
+
+    @Test
+    public void absoluteItems() throws IOException, TransformationException {
+        final String xml = "<sgns><sgn><v>a</v><d>first</d></sgn><other><sgn><v>ignored</v></sgn></other><sgn><d>second</d><v>b</v></sgn></sgns>";
+
+        assertEquals(Arrays.asList(suggestion("a", "first"), suggestion("b", "second")),
+                map(new ResponseMapping("/sgns/sgn", "v", "d"), xml));
+    }
+
+    @Test
+    public void itemsAtAnyDepth() throws IOException, TransformationException {
+        assertEquals(Arrays.asList(suggestion("kuća", "house"), suggestion("kuš", null)),
+                map(new ResponseMapping("//entry", "form/orth", "sense/def"), TEI_DICTIONARY));
+    }
+
+    @Test
+    public void attributesAndWildcards() throws IOException, TransformationException {
+        assertEquals(Arrays.asList(suggestion("e1", "1"), suggestion("e2", null), suggestion("e3", null)),
+                map(new ResponseMapping("/TEI/*/body/entry", "@xml:id", "sense/@n"), TEI_DICTIONARY.replace("<div>", "").replace("</div>", "")));
+    }
+
+    @Test
+    public void itemValue() throws IOException, TransformationException {
+        final String xml = "<values><value lang=\"en\">  a  </value><value><b>b</b>c</value></values>";
+
+        assertEquals(Arrays.asList(suggestion("a", "en"), suggestion("bc", null)),
+                map(new ResponseMapping("/values/value", ".", "@lang"), xml));
+    }
+
+    @Test
+    public void missingItems() throws IOException, TransformationException {
+        assertTrue(map(new ResponseMapping("/sgns/sgn", "v", null), "<other><sgn><v>a</v></sgn></other>").isEmpty());
+    }
+
+    @Test
+    public void invalidXml() {
+        assertThrows(TransformationException.class, () -> map(new ResponseMapping("/sgns/sgn", "v", null), "<sgns><sgn></sgns>"));
+    }
+
+    @Test
+    public void invalidPaths() {
+        assertThrows(IllegalArgumentException.class, () -> new XMLResponseMapper(new ResponseMapping("sgns/sgn", "v", null)));
+        assertThrows(IllegalArgumentException.class, () -> new XMLResponseMapper(new ResponseMapping("/", "v", null)));
+        assertThrows(IllegalArgumentException.class, () -> new XMLResponseMapper(new ResponseMapping("/sgns/sgn", "/v", null)));
+        assertThrows(IllegalArgumentException.class, () -> new XMLResponseMapper(new ResponseMapping("/sgns/sgn", "v@id", null)));
+    }
+
+    private static List<Suggestion> map(final ResponseMapping mapping, final String xml) throws IOException, TransformationException {
+        final List<Suggestion> suggestions = new ArrayList<>();
+        new XMLResponseMapper(mapping).map(new ByteArrayInputStream(xml.getBytes(UTF_8)), suggestions::add);
+        return suggestions;
+    }
+
+    private static Suggestion suggestion(final String value, @Nullable final String description) {
+        final Suggestion suggestion = new Suggestion();
+        suggestion.setValue(value);
+        suggestion.setDescription(description);
+        return suggestion;
+    }
+}
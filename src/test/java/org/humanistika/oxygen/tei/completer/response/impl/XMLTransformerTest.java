@@ -0,0 +1,89 @@
+/**
+ * TEI Completer
+ * An Oxygen XML Editor plugin for customizable attribute and value completion for TEI P5 documents
+ * Copyright (C) 2016 Belgrade Center for Digital Humanities
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.humanistika.oxygen.tei.completer.response.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link XMLTransformer}
+ *
+ * @author Adam Retter, Evolved Binary Ltd
+ * @version 1.0
+ * @serial 20261018
+ */
+public class XMLTransformerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void streamableModeIsDetected() throws IOException {
+        assertTrue(XMLTransformer.isStreamable(stylesheet("<xsl:mode streamable=\"yes\"/>")));
+        assertTrue(XMLTransformer.isStreamable(stylesheet("<xsl:mode name=\"#unnamed\" streamable=\" true \"/>")));
+        assertTrue(XMLTransformer.isStreamable(stylesheet("<xsl:mode name=\"#default\" streamable=\"1\"/>")));
+        assertTrue(XMLTransformer.isStreamable(stylesheet("<xsl:mode name=\"s\"/><xsl:mode streamable=\"yes\"/>")));
+    }
+
+    @Test
+    public void streamableDefaultModeIsDetected() throws IOException {
+        assertTrue(XMLTransformer.isStreamable(stylesheet("default-mode=\"s\"", "<xsl:mode name=\"s\" streamable=\"yes\"/>")));
+        assertFalse(XMLTransformer.isStreamable(stylesheet("default-mode=\"s\"", "<xsl:mode streamable=\"yes\"/>")));
+    }
+
+    @Test
+    public void streamableNamedModeIsNotDetected() throws IOException {
+        assertFalse(XMLTransformer.isStreamable(stylesheet("<xsl:mode name=\"s\" streamable=\"yes\"/>")));
+    }
+
+    @Test
+    public void nonStreamableIsNotDetected() throws IOException {
+        assertFalse(XMLTransformer.isStreamable(stylesheet("")));
+        assertFalse(XMLTransformer.isStreamable(stylesheet("<xsl:mode streamable=\"no\"/>")));
+        assertFalse(XMLTransformer.isStreamable(stylesheet("<xsl:template match=\"/\"><xsl:mode streamable=\"yes\"/></xsl:template>")));
+        assertFalse(XMLTransformer.isStreamable(stylesheet("<mode streamable=\"yes\"/>")));
+    }
+
+    @Test
+    public void invalidStylesheetIsNotStreamable() throws IOException {
+        final Path transformation = tempDir.resolve("invalid.xslt");
+        Files.write(transformation, "<xsl:stylesheet".getBytes(UTF_8));
+        assertFalse(XMLTransformer.isStreamable(transformation));
+    }
+
+    private Path stylesheet(final String declarations) throws IOException {
+        return stylesheet("", declarations);
+    }
+
+    private Path stylesheet(final String attributes, final String declarations) throws IOException {
+        final Path transformation = Files.createTempFile(tempDir, "transform", ".xslt");
+        final String xslt = "<xsl:stylesheet xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\" version=\"3.0\" " + attributes + ">" + declarations + "</xsl:stylesheet>";
+        Files.write(transformation, xslt.getBytes(UTF_8));
+        return transformation;
+    }
+}